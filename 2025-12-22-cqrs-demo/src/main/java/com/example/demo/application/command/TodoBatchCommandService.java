@@ -0,0 +1,115 @@
+package com.example.demo.application.command;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.application.command.TodoCommandResult.Status;
+import com.example.demo.domain.Todo;
+import com.example.demo.domain.UuidV7;
+import com.example.demo.exceptions.ConflictException;
+
+/**
+ * 多数のコマンドをまとめて実行する（インポートなどの一括処理用）
+ *
+ * 1. 対象のTodoを1回の読み込みでまとめて復元する
+ * 2. コマンドをリクエストの順にメモリ上で適用する（同じTodoへの複数のコマンドも順に適用される）
+ * 3. 生じたイベントを1トランザクション・1回のバッチ書き込みで追記する
+ *
+ * 結果はコマンドごとに返します。存在しないTodo、ドメインのルール違反、expectedVersionの不一致、
+ * 追記時の他のコマンドとの競合は、そのコマンド（競合は同じTodoへのコマンドすべて）だけが失敗になり、
+ * 他のコマンドの結果は保存されます。
+ * 集約ごとのメールボックスは通らないため、同じTodoへの並行する更新とは楽観ロックで競合を検出します。
+ *
+ * executeにはあえてトランザクションを張りません。書き込みはsaveAllの1トランザクションだけで、
+ * 読み込みはその前に読み取り用の接続で行います（読んだバージョンより後に追記されていれば、
+ * 書き込み時に一意インデックスの競合として検出されるため、読み込みを同じトランザクションに入れる必要はありません）。
+ * 外側にトランザクションがあると、saveAllが競合で失敗した時点でそのトランザクションがロールバック専用になり、
+ * 競合した集約を除いて追記し直せなくなります。
+ */
+@Service
+public class TodoBatchCommandService {
+    private final TodoRepository todoRepository;
+    private final int maxCommands;
+
+    public TodoBatchCommandService(
+            TodoRepository todoRepository,
+            @Value("${command.batch.max-commands:10000}") int maxCommands) {
+        this.todoRepository = todoRepository;
+        this.maxCommands = maxCommands;
+    }
+
+    public List<TodoCommandResult> execute(List<TodoCommand> commands) {
+        if (commands.size() > maxCommands) {
+            throw new IllegalArgumentException(
+                "Too many commands in one batch: " + commands.size() + " (max " + maxCommands + ")");
+        }
+
+        Set<UUID> targetIds = commands.stream()
+            .filter(command -> command.type() != null && command.type() != TodoCommand.Type.CREATE)
+            .map(TodoCommand::id)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        Map<UUID, Todo> todos = new LinkedHashMap<>(todoRepository.loadAll(targetIds));
+
+        List<TodoCommandResult> results = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            results.add(apply(i, commands.get(i), todos));
+        }
+
+        Set<UUID> conflicts = todoRepository.saveAll(todos.values());
+        if (conflicts.isEmpty()) {
+            return results;
+        }
+        return results.stream()
+            .map(result -> result.status() == Status.OK && conflicts.contains(result.id())
+                ? TodoCommandResult.failed(result.index(), Status.CONFLICT, result.id(),
+                    "Todo was modified concurrently: " + result.id())
+                : result)
+            .toList();
+    }
+
+    private TodoCommandResult apply(int index, TodoCommand command, Map<UUID, Todo> todos) {
+        if (command.type() == null) {
+            return TodoCommandResult.failed(index, Status.INVALID, command.id(), "type is required");
+        }
+        if (command.type() == TodoCommand.Type.CREATE) {
+            // 時刻順のIDにして、event_store/todo_read_modelのインデックスへの挿入を末尾に寄せる
+            Todo todo = Todo.create(UuidV7.generate(), command.title(), command.description());
+            todos.put(todo.getId(), todo);
+            return TodoCommandResult.ok(index, todo.getId(), todo.getVersion());
+        }
+        if (command.id() == null) {
+            return TodoCommandResult.failed(index, Status.INVALID, null, "id is required");
+        }
+
+        Todo todo = todos.get(command.id());
+        if (todo == null) {
+            return TodoCommandResult.failed(index, Status.NOT_FOUND, command.id(), "Todo not found: " + command.id());
+        }
+        if (command.expectedVersion() != null && command.expectedVersion() != todo.getVersion()) {
+            return TodoCommandResult.failed(index, Status.CONFLICT, command.id(), String.format(
+                "Version mismatch. Expected version: %d, Current version: %d",
+                command.expectedVersion(), todo.getVersion()));
+        }
+        try {
+            switch (command.type()) {
+                case COMPLETE -> todo.complete();
+                case UPDATE -> todo.update(command.title(), command.description());
+                case DELETE -> todo.delete();
+                default -> throw new IllegalStateException("Unexpected command: " + command.type());
+            }
+        } catch (ConflictException e) {
+            return TodoCommandResult.failed(index, Status.CONFLICT, command.id(), e.getMessage());
+        }
+        return TodoCommandResult.ok(index, todo.getId(), todo.getVersion());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.application.command;
+
+import java.util.UUID;
+
+/**
+ * 一括コマンドの1件
+ *
+ * @param type            コマンドの種類
+ * @param id              対象のTodo（CREATE以外で必須）
+ * @param title           CREATE/UPDATEのタイトル
+ * @param description     CREATE/UPDATEの説明
+ * @param expectedVersion 指定した場合、Todoの現在のバージョンと異なればCONFLICTにする
+ */
+public record TodoCommand(Type type, UUID id, String title, String description, Long expectedVersion) {
+    public enum Type {
+        CREATE,
+        COMPLETE,
+        UPDATE,
+        DELETE
+    }
+}
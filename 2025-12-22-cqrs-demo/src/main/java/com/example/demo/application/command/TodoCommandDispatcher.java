@@ -0,0 +1,233 @@
+package com.example.demo.application.command;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.domain.Todo;
+import com.example.demo.exceptions.ConflictException;
+import com.example.demo.exceptions.OptimisticLockingException;
+import com.example.demo.infrastructure.eventstore.EventStore;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 既存のTodoに対するコマンドを、集約ごとのメールボックスで直列に実行する
+ *
+ * 同じTodoへのコマンドが同時に来ると、load → 変更 → save の間に追い越しが起きて
+ * OptimisticLockingExceptionになります。ここでは集約IDごとにメールボックス（キュー）と
+ * 仮想スレッドを1つずつ割り当て、コマンドを1件ずつ順に実行するため、プロセス内での競合は起きません。
+ * メールボックスは復元済みのTodoを保持し続けるので、2件目以降はEvent Storeから復元し直しません。
+ * 一定時間コマンドが来なければ、スレッドを終了してメールボックスを破棄します。
+ *
+ * 追記が呼び出し元のトランザクションの外で行われるEvent Store（グループコミット）では、
+ * コマンドのトランザクションを読み取り専用にして、書き込み用の接続を持ったまま追記を待たないようにします。
+ *
+ * 呼び出し元はコマンドの完了を待ってから戻るため、APIの振る舞い（同期的な成功・失敗）は変わりません。
+ * command.mailbox.enabled=false のときは、呼び出し元のスレッドでそのまま実行します。
+ *
+ * メトリクス:
+ * - todo.command        : 受け付けから完了までの時間（tag: outcome=success/conflict/error）
+ * - todo.mailbox.active : 稼働中のメールボックス数
+ */
+@Component
+public class TodoCommandDispatcher {
+    private final TodoRepository todoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int capacity;
+    private final long idleTimeoutMillis;
+    private final Map<UUID, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Timer succeeded;
+    private final Timer conflicted;
+    private final Timer failed;
+
+    public TodoCommandDispatcher(
+            TodoRepository todoRepository,
+            EventStore eventStore,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${command.mailbox.enabled:true}") boolean enabled,
+            @Value("${command.mailbox.capacity:1000}") int capacity,
+            @Value("${command.mailbox.idle-timeout-ms:1000}") long idleTimeoutMillis) {
+        this.todoRepository = todoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(eventStore.appendsOutsideCallerTransaction());
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.succeeded = commandTimer(meterRegistry, "success");
+        this.conflicted = commandTimer(meterRegistry, "conflict");
+        this.failed = commandTimer(meterRegistry, "error");
+        Gauge.builder("todo.mailbox.active", mailboxes, Map::size)
+            .description("Number of per-aggregate command mailboxes with a running thread")
+            .register(meterRegistry);
+    }
+
+    private static Timer commandTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("todo.command")
+            .description("Time from accepting a command until it was committed or failed")
+            .tag("outcome", outcome)
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 指定したTodoにコマンドを実行し、完了するまで待つ
+     *
+     * コマンドで発生した例外（NotFoundException、ConflictExceptionなど）はそのまま投げ直します。
+     * メールボックスにcapacity件を超えるコマンドが溜まっている場合はConflictExceptionになります。
+     */
+    public void dispatch(UUID todoId, Consumer<Todo> command) {
+        long start = System.nanoTime();
+        try {
+            if (enabled) {
+                enqueue(todoId, command).join();
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Todo todo = todoRepository.load(todoId);
+                    command.accept(todo);
+                    todoRepository.save(todo);
+                });
+            }
+            succeeded.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (CompletionException e) {
+            RuntimeException cause = e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            timerFor(cause).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw cause;
+        } catch (RuntimeException e) {
+            timerFor(e).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timerFor(RuntimeException e) {
+        return e instanceof OptimisticLockingException ? conflicted : failed;
+    }
+
+    private CompletableFuture<Void> enqueue(UUID todoId, Consumer<Todo> command) {
+        PendingCommand pending = new PendingCommand(command, new CompletableFuture<>());
+        while (true) {
+            Mailbox mailbox = mailboxes.get(todoId);
+            if (mailbox == null) {
+                // 登録に勝ったメールボックスだけスレッドを起動する（負けた方は起動せずに捨てる）
+                Mailbox created = new Mailbox(todoId);
+                mailbox = mailboxes.putIfAbsent(todoId, created);
+                if (mailbox == null) {
+                    mailbox = created;
+                    mailbox.start();
+                }
+            }
+            // 破棄と入れ違いになった場合は、新しいメールボックスを作って入れ直す
+            if (mailbox.offer(pending)) {
+                return pending.result();
+            }
+        }
+    }
+
+    private record PendingCommand(Consumer<Todo> command, CompletableFuture<Void> result) {}
+
+    private final class Mailbox implements Runnable {
+        private final UUID todoId;
+        private final BlockingQueue<PendingCommand> queue = new LinkedBlockingQueue<>();
+        private boolean retired;
+        // メールボックスのスレッドだけが触る、復元済みのTodo
+        private Todo todo;
+
+        Mailbox(UUID todoId) {
+            this.todoId = todoId;
+        }
+
+        void start() {
+            Thread.ofVirtual().name("todo-mailbox-" + todoId).start(this);
+        }
+
+        synchronized boolean offer(PendingCommand pending) {
+            if (retired) {
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                throw new ConflictException("Too many pending commands for todo: " + todoId);
+            }
+            return queue.add(pending);
+        }
+
+        // キューが空のときだけ破棄する。以降のofferはfalseを返し、呼び出し元が新しいメールボックスを作る
+        private synchronized boolean retireIfIdle() {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+            retired = true;
+            mailboxes.remove(todoId, this);
+            return true;
+        }
+
+        // 割り込まれたら、残っているコマンドを失敗させて破棄する
+        private synchronized void abandon() {
+            retired = true;
+            mailboxes.remove(todoId, this);
+            queue.forEach(pending -> pending.result().completeExceptionally(
+                new IllegalStateException("Command mailbox is stopped: " + todoId)));
+            queue.clear();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    PendingCommand pending = queue.poll(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+                    if (pending == null) {
+                        if (retireIfIdle()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    execute(pending);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abandon();
+            }
+        }
+
+        private void execute(PendingCommand pending) {
+            // 保持していたTodoが別経路の追記で古くなっていた場合に限り、復元し直して1回だけ再試行する
+            boolean retry = todo != null;
+            while (true) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (todo == null) {
+                            todo = todoRepository.load(todoId);
+                        }
+                        pending.command().accept(todo);
+                        todoRepository.save(todo);
+                    });
+                    pending.result().complete(null);
+                    return;
+                } catch (RuntimeException e) {
+                    // 失敗したコマンドの途中の変更を持ち越さないよう、次はEvent Storeから復元し直す
+                    todo = null;
+                    if (retry && e instanceof OptimisticLockingException) {
+                        retry = false;
+                        continue;
+                    }
+                    pending.result().completeExceptionally(e);
+                    return;
+                }
+            }
+        }
+    }
+}
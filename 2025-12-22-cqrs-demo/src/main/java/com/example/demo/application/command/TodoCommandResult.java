@@ -0,0 +1,29 @@
+package com.example.demo.application.command;
+
+import java.util.UUID;
+
+/**
+ * 一括コマンドの1件ごとの結果
+ *
+ * @param index   リクエスト内でのコマンドの位置（0始まり）
+ * @param status  結果
+ * @param id      対象のTodo（CREATEでは採番したID）
+ * @param version 成功した場合、コマンド適用後のTodoのバージョン
+ * @param error   失敗した場合の理由
+ */
+public record TodoCommandResult(int index, Status status, UUID id, Long version, String error) {
+    public enum Status {
+        OK,
+        NOT_FOUND,
+        CONFLICT,
+        INVALID
+    }
+
+    static TodoCommandResult ok(int index, UUID id, long version) {
+        return new TodoCommandResult(index, Status.OK, id, version, null);
+    }
+
+    static TodoCommandResult failed(int index, Status status, UUID id, String error) {
+        return new TodoCommandResult(index, status, id, null, error);
+    }
+}
@@ -1,69 +1,42 @@
 package com.example.demo.application.command;
 
-import java.util.List;
 import java.util.UUID;
 
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import com.example.demo.domain.events.DomainEvent;
-import com.example.demo.exceptions.NotFoundException;
 import com.example.demo.domain.Todo;
-import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.domain.UuidV7;
 
 @Service
 public class TodoCommandService {
-    private final EventStore eventStore;
+    private final TodoRepository todoRepository;
+    private final TodoCommandDispatcher dispatcher;
 
-    public TodoCommandService(EventStore eventStore) {
-        this.eventStore = eventStore;
+    public TodoCommandService(TodoRepository todoRepository, TodoCommandDispatcher dispatcher) {
+        this.todoRepository = todoRepository;
+        this.dispatcher = dispatcher;
     }
 
     @Transactional
     public UUID createTodo(String title, String description) {
-        UUID id = UUID.randomUUID();
+        // 時刻順のIDにして、event_store/todo_read_modelのインデックスへの挿入を末尾に寄せる
+        UUID id = UuidV7.generate();
         Todo todo = Todo.create(id, title, description);
 
-        List<DomainEvent> events = todo.getUncommittedEvents();
-        eventStore.save(events);
-        todo.clearUncommittedEvents();
+        todoRepository.save(todo);
         return id;
     }
 
-    @Transactional
+    // 既存のTodoへのコマンドは集約ごとのメールボックスで直列に実行する（トランザクションもメールボックス側で張る）
     public void completeTodo(UUID todoId) {
-        Todo todo = loadTodo(todoId);
-        todo.complete();
-
-        List<DomainEvent> events = todo.getUncommittedEvents();
-        eventStore.save(events);
-        todo.clearUncommittedEvents();
+        dispatcher.dispatch(todoId, Todo::complete);
     }
 
-    @Transactional
     public void deleteTodo(UUID todoId) {
-        Todo todo = loadTodo(todoId);
-        todo.delete();
-
-        List<DomainEvent> events = todo.getUncommittedEvents();
-        eventStore.save(events);
-        todo.clearUncommittedEvents();
+        dispatcher.dispatch(todoId, Todo::delete);
     }
 
-    @Transactional
     public void updateTodo(UUID todoId, String title, String description) {
-        Todo todo = loadTodo(todoId);
-        todo.update(title, description);
-
-        List<DomainEvent> events = todo.getUncommittedEvents();
-        eventStore.save(events);
-        todo.clearUncommittedEvents();
-    }
-
-    private Todo loadTodo(UUID todoId) {
-        List<DomainEvent> events = eventStore.getEvents(todoId);
-        if (events.isEmpty()) {
-            throw new NotFoundException("Todo not found: " + todoId);
-        }
-        return Todo.fromEvents(events);
+        dispatcher.dispatch(todoId, todo -> todo.update(title, description));
     }
 }
@@ -0,0 +1,331 @@
+package com.example.demo.application.command;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.domain.Todo;
+import com.example.demo.domain.TodoSnapshot;
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.exceptions.NotFoundException;
+import com.example.demo.exceptions.OptimisticLockingException;
+import com.example.demo.infrastructure.cache.TodoAggregateCache;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.jfr.TodoLoadEvent;
+import com.example.demo.infrastructure.jfr.TodoSaveEvent;
+import com.example.demo.infrastructure.snapshot.SnapshotPolicy;
+import com.example.demo.infrastructure.snapshot.SnapshotStore;
+import com.example.demo.infrastructure.snapshot.SnapshotWriter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Todo集約の読み込みと保存
+ *
+ * プロセス内キャッシュ、最新のスナップショットの順に起点を探し、以降のイベントだけを再生して
+ * 集約を復元します。保存がコミットされたらキャッシュを最新バージョンに進め、
+ * 競合やロールバック時はキャッシュから取り除きます。
+ * スナップショットは派生データなので、コマンドのトランザクションがコミットされた後に
+ * SnapshotWriterのスレッドで保存します（コマンドの接続を返却する前に書き込み用の接続を待たないため）。
+ * 復元にかかった時間と再生したイベント数は、起点の種類（source=cache/snapshot/full）で
+ * タグ分けして記録するため、/actuator/metrics からスナップショットの効果を比較できます。
+ *
+ * 保存側のメトリクス（タグ operation=save|saveAll）:
+ * - todo.save           : イベントの追記にかかった時間（outcome=success/conflict）
+ * - todo.save.events    : 1集約あたりの追記イベント数
+ * - todo.save.conflicts : 楽観的ロックで競合した集約数
+ * 読み込みと保存はJFRイベント（com.example.demo.TodoLoad / TodoSave）としても記録するため、
+ * JFRの記録上でGCやロック待ちと突き合わせられます。
+ *
+ * 過去の時点の復元（loadAsOf/loadAt）は todo.load.asof と todo.load.asof.replayed.events に
+ * 起点の種類（source=snapshot/full）でタグ分けして記録します。
+ */
+@Component
+public class TodoRepository {
+    private final EventStore eventStore;
+    private final SnapshotStore snapshotStore;
+    private final SnapshotPolicy snapshotPolicy;
+    private final TodoAggregateCache aggregateCache;
+    private final SnapshotWriter snapshotWriter;
+    // メーターは呼び出しのたびにレジストリを引かないよう、タグの組み合わせごとに先に作っておく
+    private final Map<String, LoadMeters> loadMeters;
+    private final Map<String, LoadMeters> loadAsOfMeters;
+    private final SaveMeters saveMeters;
+    private final SaveMeters saveAllMeters;
+
+    public TodoRepository(
+            EventStore eventStore,
+            SnapshotStore snapshotStore,
+            SnapshotPolicy snapshotPolicy,
+            TodoAggregateCache aggregateCache,
+            SnapshotWriter snapshotWriter,
+            MeterRegistry meterRegistry) {
+        this.eventStore = eventStore;
+        this.snapshotStore = snapshotStore;
+        this.snapshotPolicy = snapshotPolicy;
+        this.aggregateCache = aggregateCache;
+        this.snapshotWriter = snapshotWriter;
+        this.loadMeters = Map.of(
+            "cache", LoadMeters.of(meterRegistry, "todo.load", "", "cache"),
+            "snapshot", LoadMeters.of(meterRegistry, "todo.load", "", "snapshot"),
+            "full", LoadMeters.of(meterRegistry, "todo.load", "", "full"));
+        this.loadAsOfMeters = Map.of(
+            "snapshot", LoadMeters.of(meterRegistry, "todo.load.asof", " as of a past version", "snapshot"),
+            "full", LoadMeters.of(meterRegistry, "todo.load.asof", " as of a past version", "full"));
+        this.saveMeters = SaveMeters.of(meterRegistry, "save");
+        this.saveAllMeters = SaveMeters.of(meterRegistry, "saveAll");
+    }
+
+    public Todo load(UUID todoId) {
+        TodoLoadEvent jfrEvent = new TodoLoadEvent();
+        jfrEvent.begin();
+        long start = System.nanoTime();
+        String source;
+        Optional<TodoSnapshot> base = aggregateCache.get(todoId);
+        if (base.isPresent()) {
+            source = "cache";
+        } else {
+            base = snapshotStore.findLatest(todoId);
+            source = base.isPresent() ? "snapshot" : "full";
+        }
+
+        // 起点のバージョンより後に別プロセス等で追加されたイベントがあれば、読みながら適用して最新化する
+        // （イベントのリストは作らないため、長いストリームでもメモリは一定）
+        long baseVersion = base.map(TodoSnapshot::version).orElse(-1L);
+        Todo todo = eventStore.foldEvents(todoId, baseVersion, Todo.replayFrom(base.orElse(null)), Todo::replay);
+        if (todo.getId() == null) {
+            throw new NotFoundException("Todo not found: " + todoId);
+        }
+        // バージョンは集約ごとに欠番のない連番なので、差が再生したイベント数になる
+        long replayed = todo.getVersion() - baseVersion;
+
+        loadMeters.get(source).record(System.nanoTime() - start, replayed);
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.aggregateId = todoId.toString();
+            jfrEvent.source = source;
+            jfrEvent.replayedEvents = replayed;
+            jfrEvent.commit();
+        }
+        return todo;
+    }
+
+    /**
+     * 指定したバージョンの時点のTodoを復元する（監査などで過去の状態を見るため）
+     *
+     * そのバージョン以下で最新のスナップショットを起点に、そのバージョンまでのイベントだけを読みます。
+     * スナップショットは一定のイベント数ごとに取って古いものも残しているため、再生するイベント数は
+     * ストリームの長さによらずスナップショットの間隔程度に収まります。
+     * キャッシュは最新の状態しか持たないので使いません。
+     * 削除済みの時点なら、isDeletedがtrueのTodoを返します。
+     */
+    public Todo loadAsOf(UUID todoId, long version) {
+        long start = System.nanoTime();
+        Optional<TodoSnapshot> base = snapshotStore.findLatestAtOrBefore(todoId, version);
+        long baseVersion = base.map(TodoSnapshot::version).orElse(-1L);
+        Todo todo = eventStore.foldEvents(todoId, baseVersion, version, Todo.replayFrom(base.orElse(null)), Todo::replay);
+        // バージョンが届かなければ、そのバージョンのイベントはまだない
+        if (todo.getId() == null || todo.getVersion() != version) {
+            throw new NotFoundException("Todo version not found: " + todoId + " (version " + version + ")");
+        }
+
+        String source = base.isPresent() ? "snapshot" : "full";
+        loadAsOfMeters.get(source).record(System.nanoTime() - start, version - baseVersion);
+        return todo;
+    }
+
+    // 指定した時刻の時点のTodoを復元する（その時刻までに発生したイベントを適用した状態）
+    public Todo loadAt(UUID todoId, Instant at) {
+        long version = eventStore.findVersionAt(todoId, at);
+        if (version < 0) {
+            throw new NotFoundException("Todo not found at " + at + ": " + todoId);
+        }
+        return loadAsOf(todoId, version);
+    }
+
+    /**
+     * 複数のTodoをまとめて復元する（一括コマンド用）
+     *
+     * キャッシュにあるTodoはそのバージョン以降、ないTodoは全イベントを、1回のgetEventsでまとめて読みます。
+     * スナップショットは集約ごとの読み込みになるため使いません。
+     * 戻り値に含まれないIDは、存在しないTodoです。
+     */
+    public Map<UUID, Todo> loadAll(Collection<UUID> todoIds) {
+        Map<UUID, TodoSnapshot> bases = new HashMap<>();
+        Map<UUID, Long> afterVersions = new LinkedHashMap<>();
+        for (UUID todoId : todoIds) {
+            Optional<TodoSnapshot> cached = aggregateCache.get(todoId);
+            cached.ifPresent(snapshot -> bases.put(todoId, snapshot));
+            afterVersions.put(todoId, cached.map(TodoSnapshot::version).orElse(-1L));
+        }
+
+        Map<UUID, Todo> todos = new LinkedHashMap<>();
+        eventStore.getEvents(afterVersions).forEach((todoId, events) -> {
+            TodoSnapshot base = bases.get(todoId);
+            if (base != null) {
+                todos.put(todoId, Todo.fromSnapshot(base, events));
+            } else if (!events.isEmpty()) {
+                todos.put(todoId, Todo.fromEvents(events));
+            }
+        });
+        return todos;
+    }
+
+    public void save(Todo todo) {
+        List<DomainEvent> events = todo.getUncommittedEvents();
+        if (events.isEmpty()) {
+            return;
+        }
+        long previousVersion = events.get(0).getVersion() - 1;
+
+        TodoSaveEvent jfrEvent = new TodoSaveEvent();
+        jfrEvent.begin();
+        long start = System.nanoTime();
+        try {
+            eventStore.save(events);
+        } catch (OptimisticLockingException e) {
+            aggregateCache.evict(todo.getId());
+            recordSave(saveMeters, start, jfrEvent, List.of(events), 1);
+            throw e;
+        }
+        recordSave(saveMeters, start, jfrEvent, List.of(events), 0);
+        afterSave(todo, previousVersion);
+    }
+
+    /**
+     * 複数のTodoのイベントをまとめて追記する（一括コマンド用）
+     *
+     * 競合したTodoは追記せず、そのIDを返します。追記できたTodoはsaveと同じく
+     * コミット後にキャッシュを進め、必要ならスナップショットを保存します。
+     */
+    public Set<UUID> saveAll(Collection<Todo> todos) {
+        List<Todo> changed = todos.stream()
+            .filter(todo -> !todo.getUncommittedEvents().isEmpty())
+            .toList();
+        List<List<DomainEvent>> streams = changed.stream()
+            .map(Todo::getUncommittedEvents)
+            .toList();
+        TodoSaveEvent jfrEvent = new TodoSaveEvent();
+        jfrEvent.begin();
+        long start = System.nanoTime();
+        Set<UUID> conflicts = eventStore.saveAll(streams);
+        recordSave(saveAllMeters, start, jfrEvent, streams, conflicts.size());
+        for (Todo todo : changed) {
+            if (conflicts.contains(todo.getId())) {
+                aggregateCache.evict(todo.getId());
+            } else {
+                afterSave(todo, todo.getUncommittedEvents().get(0).getVersion() - 1);
+            }
+        }
+        return conflicts;
+    }
+
+    // 競合した集約のイベントも、追記しようとした数として記録する
+    private void recordSave(SaveMeters meters, long start, TodoSaveEvent jfrEvent, List<List<DomainEvent>> streams, int conflicts) {
+        (conflicts == 0 ? meters.succeeded() : meters.conflicted())
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        int events = 0;
+        for (List<DomainEvent> stream : streams) {
+            meters.eventsPerAggregate().record(stream.size());
+            events += stream.size();
+        }
+        if (conflicts > 0) {
+            meters.conflicts().increment(conflicts);
+        }
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.operation = meters.operation();
+            jfrEvent.aggregates = streams.size();
+            jfrEvent.events = events;
+            jfrEvent.conflicts = conflicts;
+            jfrEvent.commit();
+        }
+    }
+
+    private void afterSave(Todo todo, long previousVersion) {
+        todo.clearUncommittedEvents();
+
+        TodoSnapshot snapshot = todo.toSnapshot();
+        boolean takeSnapshot = snapshotPolicy.shouldTakeSnapshot(previousVersion, todo.getVersion());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommitted(snapshot, takeSnapshot);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onCommitted(snapshot, takeSnapshot);
+                } else {
+                    aggregateCache.evict(snapshot.id());
+                }
+            }
+        });
+    }
+
+    private void onCommitted(TodoSnapshot snapshot, boolean takeSnapshot) {
+        aggregateCache.put(snapshot);
+        if (takeSnapshot) {
+            snapshotWriter.submit(snapshot);
+        }
+    }
+
+    // 読み込みのメーター（起点の種類ごと）
+    private record LoadMeters(Timer timer, DistributionSummary replayedEvents) {
+        // qualifierは説明文の末尾（過去の時点の復元なら " as of a past version"）
+        static LoadMeters of(MeterRegistry meterRegistry, String name, String qualifier, String source) {
+            return new LoadMeters(
+                Timer.builder(name)
+                    .description("Time to rehydrate a Todo aggregate" + qualifier)
+                    .tag("source", source)
+                    .register(meterRegistry),
+                DistributionSummary.builder(name + ".replayed.events")
+                    .description("Number of events replayed to rehydrate a Todo aggregate" + qualifier)
+                    .tag("source", source)
+                    .register(meterRegistry));
+        }
+
+        void record(long elapsedNanos, long replayed) {
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            replayedEvents.record(replayed);
+        }
+    }
+
+    // 保存のメーター（operationごと）
+    private record SaveMeters(String operation, Timer succeeded, Timer conflicted,
+            DistributionSummary eventsPerAggregate, Counter conflicts) {
+        static SaveMeters of(MeterRegistry meterRegistry, String operation) {
+            return new SaveMeters(operation,
+                saveTimer(meterRegistry, operation, "success"),
+                saveTimer(meterRegistry, operation, "conflict"),
+                DistributionSummary.builder("todo.save.events")
+                    .description("Number of events appended per Todo aggregate")
+                    .tag("operation", operation)
+                    .register(meterRegistry),
+                Counter.builder("todo.save.conflicts")
+                    .description("Todo aggregates rejected by optimistic locking")
+                    .tag("operation", operation)
+                    .register(meterRegistry));
+        }
+
+        private static Timer saveTimer(MeterRegistry meterRegistry, String operation, String outcome) {
+            return Timer.builder("todo.save")
+                .description("Time to append the events of Todo aggregates")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+        }
+    }
+}
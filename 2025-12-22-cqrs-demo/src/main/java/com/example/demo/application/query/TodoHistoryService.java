@@ -0,0 +1,54 @@
+package com.example.demo.application.query;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.application.command.TodoRepository;
+import com.example.demo.domain.Todo;
+
+/**
+ * 過去の時点のTodoの参照（as-of）
+ *
+ * Read Modelは最新の状態しか持たないため、Event Storeとスナップショットから集約を復元します。
+ * 読み取り専用トランザクションで実行し、読み取り用のコネクションプールで読みます。
+ */
+@Service
+@Transactional(readOnly = true)
+public class TodoHistoryService {
+    private final TodoRepository todoRepository;
+
+    public TodoHistoryService(TodoRepository todoRepository) {
+        this.todoRepository = todoRepository;
+    }
+
+    /**
+     * versionかatのどちらか一方を指定して、その時点のTodoを返す
+     *
+     * @param version 集約バージョン（0が作成時）
+     * @param at      時刻。その時刻までに発生したイベントを適用した状態を返す（ミリ秒単位で比べ、同じミリ秒のイベントは含む）
+     */
+    public TodoHistoryView getTodoAsOf(UUID todoId, Long version, Instant at) {
+        if ((version == null) == (at == null)) {
+            throw new IllegalArgumentException("Specify exactly one of version and at");
+        }
+        Todo todo;
+        if (version != null) {
+            if (version < 0) {
+                throw new IllegalArgumentException("version must not be negative: " + version);
+            }
+            todo = todoRepository.loadAsOf(todoId, version);
+        } else {
+            todo = todoRepository.loadAt(todoId, at);
+        }
+        return new TodoHistoryView(
+            todo.getId(),
+            todo.getTitle(),
+            todo.getDescription(),
+            todo.isCompleted(),
+            todo.isDeleted(),
+            todo.getVersion());
+    }
+}
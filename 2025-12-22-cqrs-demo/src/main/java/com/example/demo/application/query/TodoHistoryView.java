@@ -0,0 +1,13 @@
+package com.example.demo.application.query;
+
+import java.util.UUID;
+
+// ある時点（version）のTodo。Read Modelと違い、削除済みの状態も返す
+public record TodoHistoryView(
+    UUID id,
+    String title,
+    String description,
+    boolean completed,
+    boolean deleted,
+    long version
+) {}
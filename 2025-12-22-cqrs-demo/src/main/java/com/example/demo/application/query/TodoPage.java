@@ -0,0 +1,10 @@
+package com.example.demo.application.query;
+
+import java.util.List;
+import java.util.UUID;
+
+// nextCursorがnullなら最後のページ
+public record TodoPage(
+    List<TodoView> items,
+    UUID nextCursor
+) {}
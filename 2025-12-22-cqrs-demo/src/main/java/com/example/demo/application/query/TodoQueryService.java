@@ -1,31 +1,216 @@
 package com.example.demo.application.query;
 
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.example.demo.exceptions.NotFoundException;
+import com.example.demo.infrastructure.cache.TodoResponseCache;
+import com.example.demo.infrastructure.cache.TodoResponseCache.CachedResponse;
+import com.example.demo.infrastructure.projection.ProjectionCheckpoint;
+import com.example.demo.infrastructure.projection.ProjectionCheckpointRepository;
 import com.example.demo.infrastructure.readmodel.TodoReadModel;
 import com.example.demo.infrastructure.readmodel.TodoReadModelRepository;
+import com.example.demo.infrastructure.search.TodoSearchRepository;
+import com.example.demo.infrastructure.search.TodoSearchRow;
+import com.example.demo.infrastructure.stats.TodoStats;
+import com.example.demo.infrastructure.stats.TodoStatsProjection;
+import com.example.demo.infrastructure.stats.TodoStatsRepository;
 
+// 読み取り専用トランザクションで実行し、書き込み用とは別の読み取り用のコネクションプールで読む
 @Service
+@Transactional(readOnly = true)
 public class TodoQueryService {
+    public static final int MAX_PAGE_SIZE = 1000;
+    // 検索で辿れる最大の件数。深いページほど順位付けの結果を多く読み飛ばすため上限を設ける
+    public static final int MAX_SEARCH_RESULTS = 1000;
+    // 一覧のバージョンには、todo_read_modelのプロジェクションのチェックポイントを使う
+    private static final String PROJECTION_NAME = "todo_read_model";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
     private final TodoReadModelRepository readModelRepository;
+    private final TodoResponseCache responseCache;
+    private final ProjectionCheckpointRepository checkpointRepository;
+    private final TodoStatsRepository statsRepository;
+    private final TodoSearchRepository searchRepository;
 
-    public TodoQueryService(TodoReadModelRepository readModelRepository) {
+    public TodoQueryService(
+            TodoReadModelRepository readModelRepository,
+            TodoResponseCache responseCache,
+            ProjectionCheckpointRepository checkpointRepository,
+            TodoStatsRepository statsRepository,
+            TodoSearchRepository searchRepository) {
         this.readModelRepository = readModelRepository;
+        this.responseCache = responseCache;
+        this.checkpointRepository = checkpointRepository;
+        this.statsRepository = statsRepository;
+        this.searchRepository = searchRepository;
     }
 
     public TodoView getTodo(UUID todoId) {
+        return toView(findTodo(todoId));
+    }
+
+    /**
+     * getTodoの結果を、シリアライズ済みのJSONと集約バージョンで返す
+     *
+     * キャッシュにあれば、Read Modelの読み込みもシリアライズもせずにそのバイト列を返します。
+     * 戻り値のバイト列はキャッシュと共有しているため、変更しないでください。
+     */
+    public CachedResponse getTodoJson(UUID todoId) {
+        return responseCache.getTodo(todoId).orElseGet(() -> {
+            long generation = responseCache.generation();
+            TodoReadModel readModel = findTodo(todoId);
+            CachedResponse response = new CachedResponse(readModel.getVersion(), toJson(toView(readModel)));
+            responseCache.putTodo(todoId, response, generation);
+            return response;
+        });
+    }
+
+    /**
+     * Todoの集約バージョン（getTodoJsonのバージョンと同じ値）
+     *
+     * キャッシュにあればその値を、なければRead Modelのversion列だけを読みます。
+     * JSONは作らないため、If-None-Matchの確認に使えます。存在しないか削除済みなら空です。
+     */
+    public OptionalLong findTodoVersion(UUID todoId) {
+        return responseCache.getTodo(todoId)
+            .map(cached -> OptionalLong.of(cached.version()))
+            .orElseGet(() -> readModelRepository.findVersionById(todoId)
+                .map(OptionalLong::of)
+                .orElseGet(OptionalLong::empty));
+    }
+
+    /**
+     * getTodosの結果を、シリアライズ済みのJSONと一覧のバージョンで返す
+     *
+     * 一覧のバージョンは行より先に読むため、返す内容はそのバージョン以降の状態です
+     * （ETagが内容より古くなることはあっても、新しくなることはありません）。
+     */
+    public CachedResponse getTodosJson(UUID cursor, int limit) {
+        return responseCache.getPage(cursor, limit).orElseGet(() -> {
+            long generation = responseCache.generation();
+            long version = getListVersion();
+            CachedResponse response = new CachedResponse(version, toJson(getTodos(cursor, limit)));
+            responseCache.putPage(cursor, limit, response, generation);
+            return response;
+        });
+    }
+
+    /**
+     * 一覧のバージョン（Read Modelに反映済みの最後のイベントのEvent Store上の位置）
+     *
+     * Read Modelの更新と同じトランザクションで進むため、同じ値なら一覧の内容も同じです。
+     * 主キーでの1行の読み込みなので、一覧を読まずにETagを確認するのに使えます。
+     */
+    public long getListVersion() {
+        return getCheckpoint(PROJECTION_NAME);
+    }
+
+    // Todoの件数。一覧を読まず、todo_statsの1行を主キーで読むだけ
+    public TodoStatsView getStats() {
+        return statsRepository.findById(TodoStats.ALL)
+            .map(stats -> new TodoStatsView(stats.getOpenCount(), stats.getCompletedCount(), stats.getDeletedCount()))
+            .orElseGet(() -> new TodoStatsView(0, 0, 0));
+    }
+
+    // 件数のバージョン（件数に反映済みの最後のイベントのEvent Store上の位置）
+    public long getStatsVersion() {
+        return getCheckpoint(TodoStatsProjection.NAME);
+    }
+
+    /**
+     * キーセットページングでTodoを取得する
+     *
+     * @param cursor 前のページのnextCursor（先頭ページはnull）
+     * @param limit  1ページの件数（1〜MAX_PAGE_SIZE）
+     */
+    public TodoPage getTodos(UUID cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE + ": " + limit);
+        }
+        // 1件多く読んで、次のページがあるかを判定する
+        Limit fetch = Limit.of(limit + 1);
+        List<TodoReadModel> readModels = cursor == null
+            ? readModelRepository.findByDeletedFalseOrderByIdAsc(fetch)
+            : readModelRepository.findByDeletedFalseAndIdGreaterThanOrderByIdAsc(cursor, fetch);
+
+        List<TodoView> items = readModels.stream()
+            .limit(limit)
+            .map(this::toView)
+            .collect(Collectors.toList());
+        UUID nextCursor = readModels.size() > limit ? items.get(items.size() - 1).id() : null;
+        return new TodoPage(items, nextCursor);
+    }
+
+    /**
+     * タイトルと説明を全文検索する（関連度の高い順）
+     *
+     * 空白で区切った語をすべて含むTodoを返します。語は3文字以上にしてください。
+     * 削除されたTodoは検索インデックスから取り除かれるため、結果に含まれません。
+     *
+     * @param query  検索する文字列
+     * @param offset 何件目から返すか（前のページのoffset + 件数）
+     * @param limit  1ページの件数（1〜MAX_PAGE_SIZE）
+     */
+    public TodoSearchPage searchTodos(String query, int offset, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("q must not be blank");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE + ": " + limit);
+        }
+        if (offset < 0 || offset + limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException("offset + limit must be between 1 and " + MAX_SEARCH_RESULTS + ": " + (offset + limit));
+        }
+        // 1件多く読んで、次のページがあるかを判定する
+        List<TodoSearchRow> rows = searchRepository.search(query, limit + 1, offset);
+        List<TodoSearchHit> items = rows.stream()
+            .limit(limit)
+            .map(row -> new TodoSearchHit(row.id(), row.title(), row.description(), row.score()))
+            .toList();
+        return new TodoSearchPage(items, offset, rows.size() > limit && offset + limit < MAX_SEARCH_RESULTS);
+    }
+
+    // 削除されていない全Todoを、リストに溜めずに1件ずつconsumerに渡す
+    public void streamTodos(Consumer<TodoView> consumer) {
+        readModelRepository.forEachNotDeleted(readModel -> consumer.accept(toView(readModel)));
+    }
+
+    private long getCheckpoint(String projectionName) {
+        return checkpointRepository.findById(projectionName)
+            .map(ProjectionCheckpoint::getPosition)
+            .orElse(0L);
+    }
+
+    private TodoReadModel findTodo(UUID todoId) {
         TodoReadModel readModel = readModelRepository.findById(todoId)
             .orElseThrow(() -> new NotFoundException("Todo not found: " + todoId));
 
         if (readModel.isDeleted()) {
             throw new NotFoundException("Todo is deleted: " + todoId);
         }
+        return readModel;
+    }
 
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize response", e);
+        }
+    }
+
+    private TodoView toView(TodoReadModel readModel) {
         return new TodoView(
             readModel.getId(),
             readModel.getTitle(),
@@ -33,15 +218,4 @@ public class TodoQueryService {
             readModel.isCompleted()
         );
     }
-
-    public List<TodoView> getAllTodos() {
-        return readModelRepository.findByDeletedFalse().stream()
-            .map(readModel -> new TodoView(
-                readModel.getId(),
-                readModel.getTitle(),
-                readModel.getDescription(),
-                readModel.isCompleted()
-            ))
-            .collect(Collectors.toList());
-    }
 }
@@ -0,0 +1,11 @@
+package com.example.demo.application.query;
+
+import java.util.UUID;
+
+// 検索結果の1件。scoreは大きいほど関連度が高い
+public record TodoSearchHit(
+    UUID id,
+    String title,
+    String description,
+    double score
+) {}
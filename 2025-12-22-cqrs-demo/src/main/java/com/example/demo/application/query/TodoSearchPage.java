@@ -0,0 +1,16 @@
+package com.example.demo.application.query;
+
+import java.util.List;
+
+/**
+ * 全文検索の1ページ（関連度の高い順）
+ *
+ * @param items   このページの結果
+ * @param offset  このページの先頭が何件目か
+ * @param hasMore 次のページがあるか（offset + items.size() を次のoffsetにする）
+ */
+public record TodoSearchPage(
+    List<TodoSearchHit> items,
+    int offset,
+    boolean hasMore
+) {}
@@ -0,0 +1,8 @@
+package com.example.demo.application.query;
+
+// Todoの件数。open/completedは削除されていないTodoだけを数える
+public record TodoStatsView(
+    long open,
+    long completed,
+    long deleted
+) {}
@@ -30,6 +30,40 @@ public class Todo {
         return todo;
     }
 
+    // スナップショットを起点に、それ以降のイベントだけを適用して復元する
+    public static Todo fromSnapshot(TodoSnapshot snapshot, List<DomainEvent> events) {
+        Todo todo = replayFrom(snapshot);
+        for (DomainEvent event : events) {
+            todo.apply(event);
+        }
+        return todo;
+    }
+
+    /**
+     * イベントを1件ずつreplayで適用して復元するための起点（snapshotがnullなら空の状態）
+     *
+     * Event Storeから読みながら畳み込むときに使います（EventStore.foldEvents）。
+     * 作成イベントを1件も適用していなければgetIdはnullです。
+     */
+    public static Todo replayFrom(TodoSnapshot snapshot) {
+        Todo todo = new Todo();
+        if (snapshot != null) {
+            todo.id = snapshot.id();
+            todo.title = snapshot.title();
+            todo.description = snapshot.description();
+            todo.completed = snapshot.completed();
+            todo.deleted = snapshot.deleted();
+            todo.version = snapshot.version();
+        }
+        return todo;
+    }
+
+    // 保存済みのイベントを1件適用する（未コミットのイベントには含めない）
+    public Todo replay(DomainEvent event) {
+        apply(event);
+        return this;
+    }
+
     public static Todo create(UUID id, String title, String description) {
         Todo todo = new Todo();
         todo.applyChange(new TodoCreatedEvent(id, title, description, 0L), true);
@@ -103,6 +137,10 @@ public class Todo {
         this.uncommittedEvents.clear();
     }
 
+    public TodoSnapshot toSnapshot() {
+        return new TodoSnapshot(this.id, this.title, this.description, this.completed, this.deleted, this.version);
+    }
+
     public UUID getId() {
         return this.id;
     }
@@ -0,0 +1,13 @@
+package com.example.demo.domain;
+
+import java.util.UUID;
+
+// Todo集約のある時点（version）における状態のスナップショット
+public record TodoSnapshot(
+    UUID id,
+    String title,
+    String description,
+    boolean completed,
+    boolean deleted,
+    long version
+) {}
@@ -0,0 +1,34 @@
+package com.example.demo.domain;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 時刻順に並ぶUUID（RFC 9562のバージョン7）の生成
+ *
+ * 上位48bitがミリ秒単位のUNIX時刻なので、新しい集約のIDはインデックスの末尾に追加されていきます
+ * （ランダムなUUIDv4のように、挿入のたびにB-treeのランダムなページを書き換えることがありません）。
+ * 同じミリ秒内ではrand_aの12bitをカウンタとして使い、このプロセス内で生成したIDは必ず単調増加します。
+ */
+public final class UuidV7 {
+    // 直前に使った (ミリ秒 << 12 | カウンタ)
+    private static final AtomicLong last = new AtomicLong();
+
+    private UuidV7() {}
+
+    public static UUID generate() {
+        long now = System.currentTimeMillis() << 12;
+        long prev;
+        long next;
+        do {
+            prev = last.get();
+            // 同じミリ秒（または時計の巻き戻り）ならカウンタを進める。溢れたら次のミリ秒に繰り上がる
+            next = now > prev ? now : prev + 1;
+        } while (!last.compareAndSet(prev, next));
+
+        long msb = ((next >>> 12) << 16) | 0x7000L | (next & 0xFFFL);
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.infrastructure.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.TodoSnapshot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 復元済みTodo集約のプロセス内キャッシュ（LRU）
+ *
+ * 集約そのものは可変なので、不変のスナップショット（TodoSnapshot）として保持します。
+ * エントリは集約IDをキーにバージョン付きで保持し、利用側はそのバージョンより後の
+ * イベントだけをEvent Storeから読んで最新化します（バージョンチェック付きの再利用）。
+ * 上限を超えると最も長く使われていないエントリから破棄します。
+ */
+@Component
+public class TodoAggregateCache {
+    private final int maxSize;
+    private final Map<UUID, TodoSnapshot> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public TodoAggregateCache(
+            @Value("${eventstore.cache.max-size:10000}") int maxSize,
+            MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("todo.cache.hits")
+            .description("Aggregate cache lookups that found an entry")
+            .register(meterRegistry);
+        this.misses = Counter.builder("todo.cache.misses")
+            .description("Aggregate cache lookups that found no entry")
+            .register(meterRegistry);
+        this.evictions = Counter.builder("todo.cache.evictions")
+            .description("Aggregate cache entries removed by LRU or invalidation")
+            .register(meterRegistry);
+        // accessOrder = true でLRU順に並べる
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, TodoSnapshot> eldest) {
+                boolean evict = size() > TodoAggregateCache.this.maxSize;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+        Gauge.builder("todo.cache.size", this, TodoAggregateCache::size)
+            .description("Number of cached Todo aggregates")
+            .register(meterRegistry);
+    }
+
+    public synchronized Optional<TodoSnapshot> get(UUID aggregateId) {
+        TodoSnapshot snapshot = entries.get(aggregateId);
+        if (snapshot == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(snapshot);
+    }
+
+    // 保持しているものより新しいバージョンのときだけ差し替える（古い状態で上書きしない）
+    public synchronized void put(TodoSnapshot snapshot) {
+        if (maxSize <= 0) {
+            return;
+        }
+        TodoSnapshot current = entries.get(snapshot.id());
+        if (current == null || current.version() < snapshot.version()) {
+            entries.put(snapshot.id(), snapshot);
+        }
+    }
+
+    public synchronized void evict(UUID aggregateId) {
+        if (entries.remove(aggregateId) != null) {
+            evictions.increment();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
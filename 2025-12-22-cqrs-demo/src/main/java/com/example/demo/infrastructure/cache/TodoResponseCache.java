@@ -0,0 +1,165 @@
+package com.example.demo.infrastructure.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 参照APIのレスポンス（シリアライズ済みのJSON）のキャッシュ
+ *
+ * Todo 1件ごとのレスポンスと、一覧のページ（cursor, limit）ごとのレスポンスを、送信するバイト列のまま保持します。
+ * ETagを作れるよう、レスポンスと一緒にその内容のバージョン（Todoは集約バージョン、ページは一覧のバージョン）を持ちます。
+ * プロジェクションがRead Modelを更新したら、変更されたTodoのエントリと全ページのエントリを破棄します
+ * （どのTodoの変更も、いずれかのページの内容を変えうるため）。
+ *
+ * 読み込み中にRead Modelが更新された場合に古いレスポンスを入れないよう、読み込み前に世代番号を取得し、
+ * 破棄によって世代が進んでいたら格納しません。
+ * 保持するバイト数の合計が上限を超えると、最も長く使われていないエントリから破棄します。
+ */
+@Component
+public class TodoResponseCache {
+    private final long maxBytes;
+    private final Map<Object, CachedResponse> entries;
+    private final Counter todoHits;
+    private final Counter todoMisses;
+    private final Counter pageHits;
+    private final Counter pageMisses;
+    private final Counter evictions;
+    private long totalBytes;
+    private long generation;
+
+    public TodoResponseCache(
+            @Value("${query.cache.max-bytes:67108864}") long maxBytes,
+            MeterRegistry meterRegistry) {
+        this.maxBytes = maxBytes;
+        this.todoHits = counter(meterRegistry, "query.cache.hits", "todo");
+        this.todoMisses = counter(meterRegistry, "query.cache.misses", "todo");
+        this.pageHits = counter(meterRegistry, "query.cache.hits", "page");
+        this.pageMisses = counter(meterRegistry, "query.cache.misses", "page");
+        this.evictions = Counter.builder("query.cache.evictions")
+            .description("Cached responses removed by the size limit or by projection updates")
+            .register(meterRegistry);
+        // accessOrder = true でLRU順に並べる
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        Gauge.builder("query.cache.bytes", this, TodoResponseCache::bytes)
+            .description("Total size of cached response bodies")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("query.cache.entries", this, TodoResponseCache::size)
+            .description("Number of cached responses")
+            .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String cache) {
+        return Counter.builder(name)
+            .description("Response cache lookups")
+            .tag("cache", cache)
+            .register(meterRegistry);
+    }
+
+    // 読み込みを始める前に取得し、putTodo/putPageに渡す
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized Optional<CachedResponse> getTodo(UUID todoId) {
+        return lookup(new TodoKey(todoId), todoHits, todoMisses);
+    }
+
+    public synchronized void putTodo(UUID todoId, CachedResponse response, long generation) {
+        store(new TodoKey(todoId), response, generation);
+    }
+
+    public synchronized Optional<CachedResponse> getPage(UUID cursor, int limit) {
+        return lookup(new PageKey(cursor, limit), pageHits, pageMisses);
+    }
+
+    public synchronized void putPage(UUID cursor, int limit, CachedResponse response, long generation) {
+        store(new PageKey(cursor, limit), response, generation);
+    }
+
+    // Read Modelの更新がコミットされた後に呼ぶ
+    public synchronized void invalidate(Collection<UUID> todoIds) {
+        generation++;
+        todoIds.forEach(id -> remove(new TodoKey(id)));
+        // accessOrderのLinkedHashMapではgetも構造の変更になるため、値はイテレータから取る
+        var iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Object, CachedResponse> entry = iterator.next();
+            if (entry.getKey() instanceof PageKey) {
+                totalBytes -= entry.getValue().body().length;
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    // Read Modelを作り直したときなど、全エントリを破棄する
+    public synchronized void invalidateAll() {
+        generation++;
+        evictions.increment(entries.size());
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized long bytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Optional<CachedResponse> lookup(Object key, Counter hits, Counter misses) {
+        CachedResponse response = entries.get(key);
+        if (response == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(response);
+    }
+
+    private void store(Object key, CachedResponse response, long generation) {
+        if (generation != this.generation || response.body().length > maxBytes) {
+            return;
+        }
+        CachedResponse previous = entries.put(key, response);
+        totalBytes += response.body().length - (previous == null ? 0 : previous.body().length);
+        var iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().body().length;
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(Object key) {
+        CachedResponse removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.body().length;
+            evictions.increment();
+        }
+    }
+
+    /**
+     * シリアライズ済みのレスポンス
+     *
+     * @param version 内容のバージョン（同じバージョンなら同じ内容）
+     * @param body    JSONのバイト列（キャッシュと共有しているため変更しないこと）
+     */
+    public record CachedResponse(long version, byte[] body) {}
+
+    private record TodoKey(UUID id) {}
+
+    private record PageKey(UUID cursor, int limit) {}
+}
@@ -0,0 +1,4 @@
+package com.example.demo.infrastructure.eventstore;
+
+// グローバルフィードの読み出し用の行（エンティティとして管理させず、永続化コンテキストを膨らませない）
+public record EventFeedRow(Long id, String eventType, byte[] eventData) {}
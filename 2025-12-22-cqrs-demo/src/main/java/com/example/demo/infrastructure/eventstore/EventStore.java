@@ -1,11 +1,130 @@
 package com.example.demo.infrastructure.eventstore;
 
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
 
 import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.exceptions.OptimisticLockingException;
 
+/**
+ * Event Store
+ *
+ * 位置（position）は追記順に振られるグローバルな連番で、readAll/streamAll はこの順で読み出します。
+ * 位置は途中で欠けることはあっても、後から小さい位置のイベントが現れることはありません。
+ */
 public interface EventStore {
     void save(List<DomainEvent> events);
+
+    /**
+     * saveが呼び出し元のトランザクションに参加せず、別のスレッド・接続で追記するか
+     *
+     * trueなら、コマンドのトランザクションは読み取り専用にします（DataSourceConfigurationにより読み取り用の接続を使う）。
+     * 書き込み用の接続を持ったまま、その接続を必要とする追記の完了を待たないためです。
+     */
+    default boolean appendsOutsideCallerTransaction() {
+        return false;
+    }
     List<DomainEvent> getEvents(UUID aggregateId);
+    // 指定したバージョンより後のイベントのみを取得（スナップショットからの復元用）
+    List<DomainEvent> getEvents(UUID aggregateId, long afterVersion);
+
+    /**
+     * 指定したバージョンより後のイベントをバージョン順に1件ずつfolderに渡し、状態に畳み込む（-1で全件）
+     *
+     * getEventsと違ってイベントのリストを作らないため、長いストリームを再生しても
+     * 必要なメモリはイベント数に比例しません。
+     * デフォルト実装はgetEventsで読んでから畳み込みます。読みながら畳み込める実装は上書きしてください。
+     */
+    default <S> S foldEvents(UUID aggregateId, long afterVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        S state = initial;
+        for (DomainEvent event : getEvents(aggregateId, afterVersion)) {
+            state = folder.apply(state, event);
+        }
+        return state;
+    }
+
+    /**
+     * foldEventsと同じだが、untilVersionまでのイベントだけを畳み込む（過去の時点の状態の復元用）
+     *
+     * デフォルト実装はfoldEventsでuntilVersionより後のイベントも読み、畳み込まずに読み飛ばします。
+     * バージョンの範囲で読める実装は上書きしてください。
+     */
+    default <S> S foldEvents(UUID aggregateId, long afterVersion, long untilVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        return foldEvents(aggregateId, afterVersion, initial,
+            (state, event) -> event.getVersion() <= untilVersion ? folder.apply(state, event) : state);
+    }
+
+    /**
+     * 指定した時刻の時点での集約のバージョン（その時刻までに発生した最後のイベントのバージョン。なければ-1）
+     *
+     * 集約のイベントはバージョン順に発生する（occurredAtがバージョンとともに増える）ものとして扱います。
+     * 発生時刻はミリ秒単位で保存するため、時刻はミリ秒未満を切り捨てて比較します。
+     * atと同じミリ秒に発生したイベントは、atより後に発生していてもatまでに発生したものとして扱います。
+     * デフォルト実装は集約の全イベントを読みます。時刻で索引を引ける実装は上書きしてください。
+     */
+    default long findVersionAt(UUID aggregateId, Instant at) {
+        long atMillis = at.toEpochMilli();
+        return foldEvents(aggregateId, -1, -1L,
+            (version, event) -> event.getOccurredAt().toEpochMilli() > atMillis ? version : event.getVersion());
+    }
+
+    /**
+     * 複数の集約のイベントをまとめて追記する（一括コマンド用）
+     *
+     * eventsPerAggregateの各要素は1つの集約のイベントで、saveと同じく集約ごとに楽観ロックを確認します。
+     * 競合した集約のイベントは追記せず、そのIDを返します（他の集約の追記は続けます）。
+     * デフォルト実装は集約ごとにsaveを呼びます。1回の書き込みにまとめられる実装は上書きしてください。
+     */
+    default Set<UUID> saveAll(List<List<DomainEvent>> eventsPerAggregate) {
+        Set<UUID> conflicts = new HashSet<>();
+        for (List<DomainEvent> events : eventsPerAggregate) {
+            try {
+                save(events);
+            } catch (OptimisticLockingException e) {
+                conflicts.add(events.get(0).getAggregateId());
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * 複数の集約について、集約ごとに指定したバージョンより後のイベントを取得する（-1で全件）
+     *
+     * 戻り値には指定した全集約のキーが入ります（イベントがなければ空リスト）。
+     * デフォルト実装は集約ごとにgetEventsを呼びます。1回の読み込みにまとめられる実装は上書きしてください。
+     */
+    default Map<UUID, List<DomainEvent>> getEvents(Map<UUID, Long> afterVersions) {
+        Map<UUID, List<DomainEvent>> events = new LinkedHashMap<>();
+        afterVersions.forEach((aggregateId, afterVersion) -> events.put(aggregateId, getEvents(aggregateId, afterVersion)));
+        return events;
+    }
+
+    // 全集約のイベントを、指定した位置より後から追記順に最大maxCount件取得
+    List<StoredEvent> readAll(long fromPosition, int maxCount);
+    // 最後に追記されたイベントの位置（イベントがない場合は0）
+    long getLastPosition();
+
+    /**
+     * 指定した位置より後の全イベントを追記順に流す
+     *
+     * batchSize件ずつ位置をキーにして読み進めるため、テーブル全体をメモリに載せることはありません。
+     * Streamは消費された分だけ読み出すので、途中で打ち切れば以降のバッチは読みません。
+     */
+    default Stream<StoredEvent> streamAll(long fromPosition, int batchSize) {
+        return Stream.iterate(
+                readAll(fromPosition, batchSize),
+                batch -> !batch.isEmpty(),
+                // batchSizeに満たなければ末尾まで読み切っているので、次のバッチは読まない
+                batch -> batch.size() < batchSize
+                    ? List.of()
+                    : readAll(batch.get(batch.size() - 1).position(), batchSize))
+            .flatMap(List::stream);
+    }
 }
@@ -3,23 +3,34 @@ package com.example.demo.infrastructure.eventstore;
 import java.time.Instant;
 import java.util.UUID;
 
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "event_store", indexes = @Index(name = "idx_aggregate_id", columnList = "aggregateId"))
+// (aggregateId, version) の一意インデックスで同じバージョンの重複追記（競合）を防ぎ、集約ごとのバージョン順の読み出しにも使う
+// (aggregateId, occurredAt, version) のインデックスは、ある時刻の時点のバージョンを表を読まずに引くため（EventStore.findVersionAt）
+@Table(name = "event_store", indexes = {
+    @Index(name = "ux_event_store_aggregate_version", columnList = "aggregateId, version", unique = true),
+    @Index(name = "ix_event_store_aggregate_occurred_at", columnList = "aggregateId, occurredAt, version")
+})
 public class EventStoreEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, length = 36)
+    // 集約IDは16バイトのバイナリで保存する（36文字の文字列より索引が小さく、比較も速い）
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(nullable = false, length = 16)
     private UUID aggregateId;
 
     @Column(nullable = false)
     private String eventType;
     
-    @Column(nullable = false, columnDefinition = "TEXT")
-    private String eventData;
+    // 形式はevent_typeで判別する（バイナリ形式 or JSON）。JSONで書かれた既存の行もバイト列として読める
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] eventData;
 
     @Column(nullable = false)
     private long version;
@@ -29,7 +40,7 @@ public class EventStoreEntity {
     
     protected EventStoreEntity() {}
 
-    public EventStoreEntity(UUID aggregateId, String eventType, String eventData, long version, Instant occurredAt) {
+    public EventStoreEntity(UUID aggregateId, String eventType, byte[] eventData, long version, Instant occurredAt) {
         this.aggregateId = aggregateId;
         this.eventType = eventType;
         this.eventData = eventData;
@@ -49,7 +60,7 @@ public class EventStoreEntity {
         return eventType;
     }
 
-    public String getEventData() {
+    public byte[] getEventData() {
         return eventData;
     }
 
@@ -73,7 +84,7 @@ public class EventStoreEntity {
         this.eventType = eventType;
     }
 
-    public void setEventData(String eventData) {
+    public void setEventData(byte[] eventData) {
         this.eventData = eventData;
     }
 
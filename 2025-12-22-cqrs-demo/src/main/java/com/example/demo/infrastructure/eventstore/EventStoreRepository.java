@@ -4,16 +4,21 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface EventStoreRepository extends JpaRepository<EventStoreEntity, Long> {
-    // 集約IDでイベントを取得
-    List<EventStoreEntity> findByAggregateIdOrderByVersionAsc(UUID aggregateId);
-
     // 集約IDで最新バージョンを取得
     @org.springframework.data.jpa.repository.Query("SELECT MAX(e.version) FROM EventStoreEntity e WHERE e.aggregateId = :aggregateId")
     Optional<Long> findMaxVersionByAggregateId(@Param("aggregateId") UUID aggregateId);
+
+    // 指定した位置（ID）より後のイベントを追記順に取得（主キー順の範囲読み出し）
+    List<EventFeedRow> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    // 最後に追記されたイベントの位置を取得
+    @org.springframework.data.jpa.repository.Query("SELECT COALESCE(MAX(e.id), 0) FROM EventStoreEntity e")
+    long findMaxId();
 }
@@ -0,0 +1,266 @@
+package com.example.demo.infrastructure.eventstore;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.domain.events.DomainEvent;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * グループコミット方式のEvent Store
+ *
+ * SQLiteは同時に1つしか書き込めないため、リクエストごとにトランザクションを張ると
+ * 書き込みがDBロックで直列化されてしまいます。このクラスでは追記要求をキューに積み、
+ * 専用の書き込みスレッドが複数の要求をまとめて1トランザクションでコミットします。
+ * バージョンチェックは要求ごとに行い、結果（成功 or OptimisticLockingException）は
+ * それぞれの呼び出し元に返します。
+ *
+ * eventstore.append-mode=group-commit かつ eventstore.storage=sqlite（デフォルト）のときに有効になります。
+ * 他の保存先ではappend-modeは使われません（どちらも@PrimaryのEventStoreになるため）。
+ * 呼び出し元の読み取りトランザクションが書き込みスレッドのコミットを妨げないよう、
+ * データソースは journal_mode=WAL で使用してください。
+ *
+ * 書き込みスレッドは書き込み用の接続でコミットするため、追記を待つコマンドが書き込み用の接続を
+ * 持っているとデッドロックします。コマンドは読み取り専用トランザクション（読み取り用の接続）で実行するので
+ * （appendsOutsideCallerTransaction）、読み取り用のプールを無効（datasource.reader.pool-size=0）にしていると起動しません。
+ */
+@Component
+@Primary
+@ConditionalOnExpression("'${eventstore.append-mode:per-request}' == 'group-commit' and '${eventstore.storage:sqlite}' == 'sqlite'")
+public class GroupCommitEventStore implements EventStore {
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitEventStore.class);
+
+    private final JpaEventStore delegate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public GroupCommitEventStore(
+            JpaEventStore delegate,
+            PlatformTransactionManager transactionManager,
+            @Value("${eventstore.group-commit.max-batch-size:256}") int maxBatchSize,
+            @Value("${eventstore.group-commit.max-linger-ms:2}") long maxLingerMillis,
+            @Value("${datasource.reader.pool-size:4}") int readerPoolSize) {
+        if (readerPoolSize <= 0) {
+            throw new IllegalStateException(
+                "eventstore.append-mode=group-commit requires datasource.reader.pool-size > 0: " + readerPoolSize);
+        }
+        this.delegate = delegate;
+        // 呼び出し元のトランザクションとは独立してコミットする
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.writer = new Thread(this::runWriter, "event-store-group-commit");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void save(List<DomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            throw new IllegalStateException("Group commit writer is stopped");
+        }
+        PendingAppend pending = new PendingAppend(events, new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean appendsOutsideCallerTransaction() {
+        return true;
+    }
+
+    // 一括コマンドは既に1回の書き込みにまとまっているので、書き込みスレッドを通さず直接追記する
+    @Override
+    public Set<UUID> saveAll(List<List<DomainEvent>> eventsPerAggregate) {
+        if (!running) {
+            throw new IllegalStateException("Group commit writer is stopped");
+        }
+        return delegate.saveAll(eventsPerAggregate);
+    }
+
+    @Override
+    public List<DomainEvent> getEvents(UUID aggregateId) {
+        return delegate.getEvents(aggregateId);
+    }
+
+    @Override
+    public <S> S foldEvents(UUID aggregateId, long afterVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        return delegate.foldEvents(aggregateId, afterVersion, initial, folder);
+    }
+
+    @Override
+    public <S> S foldEvents(UUID aggregateId, long afterVersion, long untilVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        return delegate.foldEvents(aggregateId, afterVersion, untilVersion, initial, folder);
+    }
+
+    @Override
+    public long findVersionAt(UUID aggregateId, Instant at) {
+        return delegate.findVersionAt(aggregateId, at);
+    }
+
+    @Override
+    public Map<UUID, List<DomainEvent>> getEvents(Map<UUID, Long> afterVersions) {
+        return delegate.getEvents(afterVersions);
+    }
+
+    @Override
+    public List<DomainEvent> getEvents(UUID aggregateId, long afterVersion) {
+        return delegate.getEvents(aggregateId, afterVersion);
+    }
+
+    @Override
+    public List<StoredEvent> readAll(long fromPosition, int maxCount) {
+        return delegate.readAll(fromPosition, maxCount);
+    }
+
+    @Override
+    public long getLastPosition() {
+        return delegate.getLastPosition();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        // 書き込まれずに残った要求は呼び出し元に失敗を返す
+        List<PendingAppend> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(p -> p.result().completeExceptionally(
+            new IllegalStateException("Group commit writer is stopped")));
+    }
+
+    private void runWriter() {
+        List<PendingAppend> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                // 最大待ち時間の間、バッチサイズに達するまで後続の要求を集める
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingAppend next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.result().completeExceptionally(
+                    new IllegalStateException("Group commit writer is stopped")));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 要求ごとにバージョンを確認し、受け付けた要求のイベントを1トランザクションで追記する
+     *
+     * 確認から追記までの間に、書き込みスレッドを通らない追記（一括コマンドや別プロセス）が割り込むと
+     * 一意インデックス違反でトランザクション全体がロールバックされます。その場合は受け付けた要求だけで
+     * やり直します。やり直しではバージョンを確認し直すので、追い越された集約の要求だけが
+     * OptimisticLockingExceptionになり、他の要求は追記されます（JpaEventStore.saveAllと同じ方針）。
+     */
+    private void commit(List<PendingAppend> batch) {
+        List<PendingAppend> pending = batch;
+        boolean retrying = false;
+        while (!pending.isEmpty()) {
+            List<PendingAppend> accepted = new ArrayList<>(pending.size());
+            List<PendingAppend> attempt = pending;
+            try {
+                transactionTemplate.executeWithoutResult(status -> append(attempt, accepted));
+            } catch (DataIntegrityViolationException e) {
+                // やり直しで弾かれた要求がなければ、同じ追記を繰り返しても成功しない
+                if (delegate.isVersionConflict(e) && !(retrying && accepted.size() == pending.size())) {
+                    pending = accepted;
+                    retrying = true;
+                    continue;
+                }
+                fail(attempt, e);
+                return;
+            } catch (RuntimeException e) {
+                fail(attempt, e);
+                return;
+            }
+            // コミット後に発行する（ロールバックされた追記のイベントを発行しないため）
+            accepted.forEach(p -> delegate.publish(p.events()));
+            accepted.forEach(p -> p.result().complete(null));
+            return;
+        }
+    }
+
+    // バージョンが一致した要求をacceptedに入れて追記する。一致しなかった要求はここで失敗させる
+    private void append(List<PendingAppend> pending, List<PendingAppend> accepted) {
+        // 同じバッチ内で同じ集約に複数の要求が来てもよいように、バッチ内で採番済みのバージョンを追跡する
+        Map<UUID, Long> versions = new HashMap<>();
+        List<EventStoreEntity> entries = new ArrayList<>();
+        for (PendingAppend p : pending) {
+            List<DomainEvent> events = p.events();
+            UUID aggregateId = events.get(0).getAggregateId();
+            long expectedVersion = events.get(0).getVersion() - 1;
+            long currentVersion = versions.computeIfAbsent(aggregateId, delegate::findCurrentVersion);
+            if (currentVersion != expectedVersion) {
+                p.result().completeExceptionally(delegate.versionMismatch(aggregateId, expectedVersion, currentVersion));
+                continue;
+            }
+            try {
+                entries.addAll(delegate.toEntities(events));
+            } catch (RuntimeException e) {
+                p.result().completeExceptionally(e);
+                continue;
+            }
+            versions.put(aggregateId, events.get(events.size() - 1).getVersion());
+            accepted.add(p);
+        }
+        delegate.insert(entries);
+    }
+
+    // まだ結果の決まっていない要求をすべて失敗させる（バージョンの確認で弾いた要求はそのまま）
+    private void fail(List<PendingAppend> pending, RuntimeException e) {
+        log.warn("Group commit of {} appends failed", pending.size(), e);
+        pending.forEach(p -> p.result().completeExceptionally(e));
+    }
+
+    private record PendingAppend(List<DomainEvent> events, CompletableFuture<Void> result) {}
+}
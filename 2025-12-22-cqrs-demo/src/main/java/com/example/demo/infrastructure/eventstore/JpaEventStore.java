@@ -1,45 +1,86 @@
 package com.example.demo.infrastructure.eventstore;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.example.demo.domain.events.DomainEvent;
 import com.example.demo.exceptions.OptimisticLockingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+import com.example.demo.infrastructure.eventstore.codec.SerializedEvent;
+import com.example.demo.infrastructure.jdbc.UuidBytes;
 
+/**
+ * SQLiteのevent_storeテーブルに保存するEvent Store
+ *
+ * 読み込みのメソッドは読み取り専用トランザクションで実行するため、呼び出し元にトランザクションがなければ
+ * 読み取り用のコネクションプールを使い、書き込みと並行して読めます（DataSourceConfiguration参照）。
+ * 呼び出し元のトランザクションがあればそれに参加し、同じ接続で読みます。
+ */
 @Component
 public class JpaEventStore implements EventStore {
+    private static final String INSERT = """
+        INSERT INTO event_store (aggregate_id, event_type, event_data, version, occurred_at) VALUES (?, ?, ?, ?, ?)
+        """;
+    // 集約のイベントをバージョン順に読む（(aggregate_id, version) の一意インデックスの範囲読み出し）
+    private static final String SELECT_EVENTS = """
+        SELECT event_type, event_data FROM event_store WHERE aggregate_id = ? AND version > ? ORDER BY version
+        """;
+    private static final String SELECT_EVENTS_UNTIL = """
+        SELECT event_type, event_data FROM event_store WHERE aggregate_id = ? AND version > ? AND version <= ? ORDER BY version
+        """;
+    // ある時刻の時点のバージョン（(aggregate_id, occurred_at, version) のインデックスを末尾から1件だけ読む）
+    private static final String SELECT_VERSION_AT = """
+        SELECT version FROM event_store WHERE aggregate_id = ? AND occurred_at <= ?
+        ORDER BY occurred_at DESC, version DESC LIMIT 1
+        """;
+    // IN句1回あたりの集約ID数（SQLiteのバインド変数の上限より十分小さくする）
+    private static final int IN_CLAUSE_SIZE = 500;
+    // 再生時にドライバが1回に読み込む行数
+    private static final int REPLAY_FETCH_SIZE = 256;
+
     private final EventStoreRepository repository;
-    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate replayJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EventSerializer serializer;
     private final ApplicationEventPublisher eventPublisher;
 
-    public JpaEventStore(EventStoreRepository repository, ApplicationEventPublisher eventPublisher) {
+    public JpaEventStore(
+            EventStoreRepository repository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            EventSerializer serializer,
+            ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.replayJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.replayJdbcTemplate.setFetchSize(REPLAY_FETCH_SIZE);
+        // 呼び出し元のトランザクションがあればそれに参加し、なければ複数イベントの追記を1トランザクションにまとめる
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.serializer = serializer;
         this.eventPublisher = eventPublisher;
-        // ObjectMapperを直接作成（インフラ層の実装詳細として適切）
-        this.objectMapper = createObjectMapper();
-    }
-
-    /**
-     * Event Store用のObjectMapperを作成
-     *
-     * Java 8の時間API（Instant等）を正しく処理できるように設定します。
-     * インフラ層の実装詳細として、ここで直接作成することで、
-     * Spring Bootの自動設定に依存せず、明確な設定が可能です。
-     */
-    private ObjectMapper createObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        // Java 8の時間API（Instant等）を正しく処理するためのモジュール
-        mapper.registerModule(new JavaTimeModule());
-        // 日付をタイムスタンプではなくISO-8601形式でシリアライズ
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        return mapper;
     }
 
     @Override
@@ -49,62 +90,271 @@ public class JpaEventStore implements EventStore {
         }
 
         // オプティミスティックロッキングのチェック
+        // 事前にSELECTで最新バージョンを確認せず、(aggregateId, version) の一意インデックスに任せる。
+        // バージョンは読み込んだイベントから採番されるので、保存済みより先に進むことはなく、
+        // 競合は必ず「同じバージョンの重複」として一意制約違反になる（別コネクションとの間でも原子的）
         UUID aggregateId = events.get(0).getAggregateId();
         long expectedVersion = events.get(0).getVersion() - 1;
 
-        // 現在の最新バージョンを確認
-        // もし存在しない場合（新規）は-1を返す。expectedVersionも-1になるのでチェックが通る。
-        long currentVersion = repository.findMaxVersionByAggregateId(aggregateId)
-            .orElse(-1L);
+        try {
+            List<EventStoreEntity> entries = toEntities(events);
+            transactionTemplate.executeWithoutResult(status -> insert(entries));
+        } catch (DataIntegrityViolationException e) {
+            if (!isVersionConflict(e)) {
+                throw e;
+            }
+            // 失敗時だけ、エラーメッセージ用に現在のバージョンを読む
+            throw versionMismatch(aggregateId, expectedVersion, findCurrentVersion(aggregateId));
+        }
 
-        if (currentVersion != expectedVersion) {
-            throw new OptimisticLockingException(
-                String.format("Aggregate version mismatch. AggregateId: %s, Expected version: %d, Current version: %d",
-                    aggregateId, expectedVersion, currentVersion));
+        // イベントを発行（コミット後にProjectionRunnerを起こし、Read Modelの更新を促すため）
+        publish(events);
+    }
+
+    /**
+     * 複数の集約のイベントを1トランザクション・1回のバッチINSERTで追記する
+     *
+     * 一意インデックス違反になったら、現在のバージョンを1回のクエリで読んで競合した集約を特定し、
+     * それを除いて追記し直します（トランザクションはロールバック済みなので、部分的に書かれることはありません）。
+     */
+    @Override
+    public Set<UUID> saveAll(List<List<DomainEvent>> eventsPerAggregate) {
+        Map<UUID, List<DomainEvent>> pending = new LinkedHashMap<>();
+        Map<UUID, List<EventStoreEntity>> entries = new HashMap<>();
+        for (List<DomainEvent> events : eventsPerAggregate) {
+            if (!events.isEmpty()) {
+                pending.put(events.get(0).getAggregateId(), events);
+                entries.put(events.get(0).getAggregateId(), toEntities(events));
+            }
         }
 
-        List<EventStoreEntity> entries = events.stream()
-            .map(event -> {
-                try {
-                    String eventData = objectMapper.writeValueAsString(event);
-                    return new EventStoreEntity(
-                        event.getAggregateId(),
-                        event.getClass().getName(),
-                        eventData,
-                        event.getVersion(),
-                        event.getOccurredAt());
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to serialize event", e);
+        Set<UUID> conflicts = new HashSet<>();
+        while (!pending.isEmpty()) {
+            List<EventStoreEntity> batch = pending.keySet().stream()
+                .flatMap(aggregateId -> entries.get(aggregateId).stream())
+                .toList();
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(batch));
+                break;
+            } catch (DataIntegrityViolationException e) {
+                if (!isVersionConflict(e)) {
+                    throw e;
+                }
+                Map<UUID, Long> current = findCurrentVersions(pending.keySet());
+                boolean found = pending.values().removeIf(events -> {
+                    UUID aggregateId = events.get(0).getAggregateId();
+                    long expectedVersion = events.get(0).getVersion() - 1;
+                    if (current.getOrDefault(aggregateId, -1L) == expectedVersion) {
+                        return false;
+                    }
+                    conflicts.add(aggregateId);
+                    return true;
+                });
+                // 競合した集約が見つからなければ、同じ追記を繰り返しても成功しない
+                if (!found) {
+                    throw e;
                 }
+            }
+        }
+
+        pending.values().forEach(this::publish);
+        return conflicts;
+    }
+
+    // 集約ごとのイベントを1つのクエリでまとめて読む（集約ごとに1クエリを発行しない）
+    // 読み済みのバージョンより後だけをSQLで絞り込み、キャッシュやスナップショットのある集約の全イベントを読まない
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, List<DomainEvent>> getEvents(Map<UUID, Long> afterVersions) {
+        Map<UUID, List<DomainEvent>> events = new LinkedHashMap<>();
+        afterVersions.keySet().forEach(aggregateId -> events.put(aggregateId, new ArrayList<>()));
+        // 集約1つにつきバインド変数を2つ使うため、1回あたりの集約数はIN句の半分にする
+        for (List<UUID> chunk : chunks(afterVersions.keySet(), IN_CLAUSE_SIZE / 2)) {
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i * 2] = UuidBytes.toBytes(chunk.get(i));
+                args[i * 2 + 1] = afterVersions.get(chunk.get(i));
+            }
+            jdbcTemplate.query(
+                "SELECT aggregate_id, event_type, event_data FROM event_store WHERE "
+                    + String.join(" OR ", Collections.nCopies(chunk.size(), "(aggregate_id = ? AND version > ?)"))
+                    + " ORDER BY aggregate_id, version",
+                rs -> {
+                    UUID aggregateId = UuidBytes.fromBytes(rs.getBytes("aggregate_id"));
+                    events.get(aggregateId).add(deserialize(rs.getString("event_type"), rs.getBytes("event_data")));
+                },
+                args);
+        }
+        return events;
+    }
+
+    // 集約ごとの現在のバージョン（イベントのない集約は含まない）
+    Map<UUID, Long> findCurrentVersions(Collection<UUID> aggregateIds) {
+        Map<UUID, Long> versions = new HashMap<>();
+        for (List<UUID> chunk : chunks(aggregateIds)) {
+            jdbcTemplate.query(
+                "SELECT aggregate_id, MAX(version) AS version FROM event_store WHERE aggregate_id IN ("
+                    + placeholders(chunk.size()) + ") GROUP BY aggregate_id",
+                rs -> {
+                    versions.put(UuidBytes.fromBytes(rs.getBytes("aggregate_id")), rs.getLong("version"));
+                },
+                chunk.stream().map(UuidBytes::toBytes).toArray());
+        }
+        return versions;
+    }
+
+    private static List<List<UUID>> chunks(Collection<UUID> aggregateIds) {
+        return chunks(aggregateIds, IN_CLAUSE_SIZE);
+    }
+
+    private static List<List<UUID>> chunks(Collection<UUID> aggregateIds, int size) {
+        List<UUID> ids = List.copyOf(aggregateIds);
+        List<List<UUID>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += size) {
+            chunks.add(ids.subList(from, Math.min(from + size, ids.size())));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    long findCurrentVersion(UUID aggregateId) {
+        return repository.findMaxVersionByAggregateId(aggregateId)
+            .orElse(-1L);
+    }
+
+    OptimisticLockingException versionMismatch(UUID aggregateId, long expectedVersion, long currentVersion) {
+        return new OptimisticLockingException(
+            String.format("Aggregate version mismatch. AggregateId: %s, Expected version: %d, Current version: %d",
+                aggregateId, expectedVersion, currentVersion));
+    }
+
+    List<EventStoreEntity> toEntities(List<DomainEvent> events) {
+        return events.stream()
+            .map(event -> {
+                SerializedEvent serialized = serializer.serialize(event);
+                return new EventStoreEntity(
+                    event.getAggregateId(),
+                    serialized.eventType(),
+                    serialized.data(),
+                    event.getVersion(),
+                    event.getOccurredAt());
             })
             .collect(Collectors.toList());
-        repository.saveAll(entries);
+    }
 
-        // イベントを発行（Read Modelを更新するため）
+    // JDBCのバッチで1つのプリペアドステートメントにまとめて追記する
+    void insert(List<EventStoreEntity> entries) {
+        if (entries.size() == 1) {
+            EventStoreEntity entry = entries.get(0);
+            jdbcTemplate.update(INSERT,
+                UuidBytes.toBytes(entry.getAggregateId()),
+                entry.getEventType(),
+                entry.getEventData(),
+                entry.getVersion(),
+                entry.getOccurredAt().toEpochMilli());
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, entries, entries.size(), (ps, entry) -> {
+            ps.setBytes(1, UuidBytes.toBytes(entry.getAggregateId()));
+            ps.setString(2, entry.getEventType());
+            ps.setBytes(3, entry.getEventData());
+            ps.setLong(4, entry.getVersion());
+            ps.setLong(5, entry.getOccurredAt().toEpochMilli());
+        });
+    }
+
+    boolean isVersionConflict(DataIntegrityViolationException e) {
+        if (e instanceof DuplicateKeyException) {
+            return true;
+        }
+        // SQLiteドライバの設定によっては一意制約違反がDuplicateKeyExceptionに変換されないため、メッセージでも判定する
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains("UNIQUE constraint failed");
+    }
+
+    void publish(List<DomainEvent> events) {
         events.forEach(eventPublisher::publishEvent);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<DomainEvent> getEvents(UUID aggregateId) {
-        List<EventStoreEntity> entries = repository.findByAggregateIdOrderByVersionAsc(aggregateId);
-        return entries.stream()
-            .map(entry -> {
-                try {
-                    Class<? extends DomainEvent> eventClass = getEventClass(entry.getEventType());
-                    return objectMapper.readValue(entry.getEventData(), eventClass);
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to deserialize event", e);
-                }
-            })
+        return getEvents(aggregateId, -1);
+    }
+
+    // エンティティのリストを経由せず、行から直接イベントのリストを作る
+    @Override
+    @Transactional(readOnly = true)
+    public List<DomainEvent> getEvents(UUID aggregateId, long afterVersion) {
+        return foldEvents(aggregateId, afterVersion, new ArrayList<>(), (events, event) -> {
+            events.add(event);
+            return events;
+        });
+    }
+
+    /**
+     * カーソルから1行ずつイベントをデシリアライズして畳み込む
+     *
+     * 行はfetch size単位でドライバに読み込まれ、畳み込んだ後のイベントはすぐに不要になるため、
+     * 再生中のメモリはストリームの長さによらず一定です。
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public <S> S foldEvents(UUID aggregateId, long afterVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        AtomicReference<S> state = new AtomicReference<>(initial);
+        replayJdbcTemplate.query(
+            SELECT_EVENTS,
+            rs -> {
+                state.set(folder.apply(state.get(), deserialize(rs.getString("event_type"), rs.getBytes("event_data"))));
+            },
+            UuidBytes.toBytes(aggregateId),
+            afterVersion);
+        return state.get();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public <S> S foldEvents(UUID aggregateId, long afterVersion, long untilVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        AtomicReference<S> state = new AtomicReference<>(initial);
+        replayJdbcTemplate.query(
+            SELECT_EVENTS_UNTIL,
+            rs -> {
+                state.set(folder.apply(state.get(), deserialize(rs.getString("event_type"), rs.getBytes("event_data"))));
+            },
+            UuidBytes.toBytes(aggregateId),
+            afterVersion,
+            untilVersion);
+        return state.get();
+    }
+
+    // occurred_atはエポックミリ秒で保存している（insert参照）。atもミリ秒未満を切り捨てて比べる（EventStore.findVersionAt参照）
+    @Override
+    @Transactional(readOnly = true)
+    public long findVersionAt(UUID aggregateId, Instant at) {
+        List<Long> versions = jdbcTemplate.queryForList(
+            SELECT_VERSION_AT, Long.class, UuidBytes.toBytes(aggregateId), at.toEpochMilli());
+        return versions.isEmpty() ? -1 : versions.get(0);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<StoredEvent> readAll(long fromPosition, int maxCount) {
+        List<EventFeedRow> rows = repository.findByIdGreaterThanOrderByIdAsc(fromPosition, Limit.of(maxCount));
+        return rows.stream()
+            .map(row -> new StoredEvent(row.id(), deserialize(row.eventType(), row.eventData())))
             .collect(Collectors.toList());
     }
 
-    @SuppressWarnings("unchecked")
-    private Class<? extends DomainEvent> getEventClass(String eventType) {
-        try {
-            return (Class<? extends DomainEvent>) Class.forName(eventType);
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("Event class not found: " + eventType, e);
-        }
+    @Override
+    @Transactional(readOnly = true)
+    public long getLastPosition() {
+        return repository.findMaxId();
+    }
+
+    private DomainEvent deserialize(String eventType, byte[] eventData) {
+        return serializer.deserialize(eventType, eventData);
     }
 }
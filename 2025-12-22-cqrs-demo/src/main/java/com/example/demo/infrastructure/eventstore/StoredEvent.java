@@ -0,0 +1,6 @@
+package com.example.demo.infrastructure.eventstore;
+
+import com.example.demo.domain.events.DomainEvent;
+
+// Event Store全体での位置（グローバルな連番）付きのイベント
+public record StoredEvent(long position, DomainEvent event) {}
@@ -0,0 +1,241 @@
+package com.example.demo.infrastructure.eventstore.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCompletedEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoDeletedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+
+/**
+ * コンパクトなバイナリ形式のコーデック
+ *
+ * イベント型は短い数値の型IDで登録し、event_typeには "b" + 型ID（例: "b1"）を書き込みます。
+ * 型ごとの書き込み・読み込み処理は登録時に1回だけ解決し、読み込み時は型IDで配列を引くだけです。
+ *
+ * データの形式（数値はビッグエンディアン、varintは7bitずつの可変長）:
+ * <pre>
+ *   formatVersion(1) eventId(16) aggregateId(16) occurredAt.epochSecond(8) occurredAt.nano(varint)
+ *   version(varint) 型ごとのフィールド...
+ * </pre>
+ * 文字列は「UTF-8のバイト長 + 1」のvarint（0はnull）に続けてUTF-8のバイト列を書きます。
+ *
+ * 一度保存した型IDは読み込みに使われ続けるため、変更・再利用しないでください。
+ */
+public class BinaryEventCodec implements EventCodec {
+    private static final byte FORMAT_VERSION = 1;
+    private static final String TYPE_PREFIX = "b";
+
+    private final Map<Class<? extends DomainEvent>, EventType<?>> typesByClass = new HashMap<>();
+    private EventType<?>[] typesById = new EventType<?>[0];
+
+    public BinaryEventCodec() {
+        register(1, TodoCreatedEvent.class,
+            (event, out) -> {
+                out.writeString(event.getTitle());
+                out.writeString(event.getDescription());
+            },
+            (header, in) -> new TodoCreatedEvent(
+                header.eventId(), header.aggregateId(), header.occurredAt(), header.version(),
+                in.readString(), in.readString()));
+        register(2, TodoCompletedEvent.class,
+            (event, out) -> {},
+            (header, in) -> new TodoCompletedEvent(
+                header.eventId(), header.aggregateId(), header.occurredAt(), header.version()));
+        register(3, TodoDeletedEvent.class,
+            (event, out) -> {},
+            (header, in) -> new TodoDeletedEvent(
+                header.eventId(), header.aggregateId(), header.occurredAt(), header.version()));
+        register(4, TodoUpdateEvent.class,
+            (event, out) -> {
+                out.writeString(event.getTitle());
+                out.writeString(event.getDescription());
+            },
+            (header, in) -> new TodoUpdateEvent(
+                header.eventId(), header.aggregateId(), header.occurredAt(), header.version(),
+                in.readString(), in.readString()));
+    }
+
+    private <T extends DomainEvent> void register(int typeId, Class<T> eventClass, FieldWriter<T> writer, FieldReader<T> reader) {
+        if (typeId >= typesById.length) {
+            typesById = Arrays.copyOf(typesById, typeId + 1);
+        }
+        if (typesById[typeId] != null) {
+            throw new IllegalStateException("Duplicate event type id: " + typeId);
+        }
+        EventType<T> type = new EventType<>(TYPE_PREFIX + typeId, eventClass, writer, reader);
+        typesById[typeId] = type;
+        typesByClass.put(eventClass, type);
+    }
+
+    @Override
+    public boolean canEncode(DomainEvent event) {
+        return typesByClass.containsKey(event.getClass());
+    }
+
+    @Override
+    public boolean canDecode(String eventType) {
+        return eventType.startsWith(TYPE_PREFIX) && eventType.indexOf('.') < 0;
+    }
+
+    @Override
+    public SerializedEvent encode(DomainEvent event) {
+        EventType<?> type = typesByClass.get(event.getClass());
+        if (type == null) {
+            throw new IllegalArgumentException("Event type is not registered: " + event.getClass().getName());
+        }
+        Output out = new Output();
+        out.writeByte(FORMAT_VERSION);
+        out.writeUuid(event.getEventId());
+        out.writeUuid(event.getAggregateId());
+        out.writeLong(event.getOccurredAt().getEpochSecond());
+        out.writeVarLong(event.getOccurredAt().getNano());
+        out.writeVarLong(event.getVersion());
+        type.write(event, out);
+        return new SerializedEvent(type.eventType(), out.toByteArray());
+    }
+
+    @Override
+    public DomainEvent decode(String eventType, byte[] data) {
+        EventType<?> type = resolve(eventType);
+        Input in = new Input(data);
+        byte formatVersion = in.readByte();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported binary event format: " + formatVersion);
+        }
+        Header header = new Header(
+            in.readUuid(),
+            in.readUuid(),
+            Instant.ofEpochSecond(in.readLong(), in.readVarLong()),
+            in.readVarLong());
+        return type.reader().read(header, in);
+    }
+
+    private EventType<?> resolve(String eventType) {
+        int typeId;
+        try {
+            typeId = Integer.parseInt(eventType, TYPE_PREFIX.length(), eventType.length(), 10);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid binary event type: " + eventType, e);
+        }
+        if (typeId < 0 || typeId >= typesById.length || typesById[typeId] == null) {
+            throw new IllegalStateException("Unknown binary event type: " + eventType);
+        }
+        return typesById[typeId];
+    }
+
+    // 全イベント共通の項目
+    record Header(UUID eventId, UUID aggregateId, Instant occurredAt, long version) {}
+
+    @FunctionalInterface
+    interface FieldWriter<T extends DomainEvent> {
+        void write(T event, Output out);
+    }
+
+    @FunctionalInterface
+    interface FieldReader<T extends DomainEvent> {
+        T read(Header header, Input in);
+    }
+
+    private record EventType<T extends DomainEvent>(
+        String eventType,
+        Class<T> eventClass,
+        FieldWriter<T> writer,
+        FieldReader<T> reader
+    ) {
+        void write(DomainEvent event, Output out) {
+            writer.write(eventClass.cast(event), out);
+        }
+    }
+
+    static final class Output {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+
+        void writeByte(int value) {
+            buffer.write(value);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer.write((int) (value >>> shift));
+            }
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.write((int) value);
+        }
+
+        void writeUuid(UUID value) {
+            writeLong(value.getMostSignificantBits());
+            writeLong(value.getLeastSignificantBits());
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            buffer.writeBytes(bytes);
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+    }
+
+    static final class Input {
+        private final ByteBuffer buffer;
+
+        Input(byte[] data) {
+            this.buffer = ByteBuffer.wrap(data);
+        }
+
+        byte readByte() {
+            return buffer.get();
+        }
+
+        long readLong() {
+            return buffer.getLong();
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint");
+        }
+
+        UUID readUuid() {
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        String readString() {
+            long length = readVarLong();
+            if (length == 0) {
+                return null;
+            }
+            String value = new String(buffer.array(), buffer.position(), (int) (length - 1), StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + (int) (length - 1));
+            return value;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.infrastructure.eventstore.codec;
+
+import com.example.demo.domain.events.DomainEvent;
+
+public interface EventCodec {
+    // このコーデックで書き込めるイベントか
+    boolean canEncode(DomainEvent event);
+
+    // このコーデックで書き込まれた行か（event_typeの値で判定する）
+    boolean canDecode(String eventType);
+
+    SerializedEvent encode(DomainEvent event);
+
+    DomainEvent decode(String eventType, byte[] data);
+}
@@ -0,0 +1,111 @@
+package com.example.demo.infrastructure.eventstore.codec;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.infrastructure.jfr.EventCodecEvent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jdk.jfr.EventType;
+
+/**
+ * Event Storeのイベントの書き込み形式を選び、読み込み時は行ごとの形式に合わせて復元する
+ *
+ * 書き込み形式は eventstore.codec で切り替えます（binary / json）。
+ * binary でも型IDが登録されていないイベントはJSONで書き込みます。
+ * 読み込みはevent_typeの値でコーデックを判別するため、形式の異なる行が混在していても読めます。
+ *
+ * メトリクス（タグ codec=binary|json）:
+ * - eventstore.serialize   : イベント1件のシリアライズ時間
+ * - eventstore.deserialize : イベント1件のデシリアライズ時間
+ * 同じ区間をJFRイベント com.example.demo.EventCodec としても記録します（デフォルトは無効）。
+ * どちらもイベント1件ごとに呼ばれるため、タイマーのヒストグラムは公開せず（application.properties）、
+ * JFRイベントは記録が有効なときだけ作ります。
+ */
+@Component
+public class EventSerializer {
+    // 記録の有効・無効は実行中に切り替わるため、呼び出しのたびにisEnabledで確認する
+    private static final EventType JFR_EVENT_TYPE = EventType.getEventType(EventCodecEvent.class);
+
+    private final InstrumentedCodec writeCodec;
+    private final InstrumentedCodec jsonCodec;
+    private final List<InstrumentedCodec> codecs;
+
+    public EventSerializer(@Value("${eventstore.codec:binary}") String format, MeterRegistry meterRegistry) {
+        InstrumentedCodec binaryCodec = new InstrumentedCodec("binary", new BinaryEventCodec(), meterRegistry);
+        this.jsonCodec = new InstrumentedCodec("json", new JsonEventCodec(), meterRegistry);
+        this.codecs = List.of(binaryCodec, jsonCodec);
+        this.writeCodec = switch (format) {
+            case "binary" -> binaryCodec;
+            case "json" -> jsonCodec;
+            default -> throw new IllegalArgumentException("Unknown event codec: " + format);
+        };
+    }
+
+    public SerializedEvent serialize(DomainEvent event) {
+        InstrumentedCodec codec = writeCodec.codec().canEncode(event) ? writeCodec : jsonCodec;
+        EventCodecEvent jfrEvent = beginJfrEvent();
+        long start = System.nanoTime();
+        SerializedEvent serialized = codec.codec().encode(event);
+        codec.serializeTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (jfrEvent != null && jfrEvent.shouldCommit()) {
+            jfrEvent.operation = "serialize";
+            jfrEvent.codec = codec.name();
+            jfrEvent.eventType = serialized.eventType();
+            jfrEvent.bytes = serialized.data().length;
+            jfrEvent.commit();
+        }
+        return serialized;
+    }
+
+    public DomainEvent deserialize(String eventType, byte[] data) {
+        for (InstrumentedCodec codec : codecs) {
+            if (codec.codec().canDecode(eventType)) {
+                EventCodecEvent jfrEvent = beginJfrEvent();
+                long start = System.nanoTime();
+                DomainEvent event = codec.codec().decode(eventType, data);
+                codec.deserializeTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (jfrEvent != null && jfrEvent.shouldCommit()) {
+                    jfrEvent.operation = "deserialize";
+                    jfrEvent.codec = codec.name();
+                    jfrEvent.eventType = eventType;
+                    jfrEvent.bytes = data.length;
+                    jfrEvent.commit();
+                }
+                return event;
+            }
+        }
+        throw new IllegalStateException("No codec for event type: " + eventType);
+    }
+
+    // JFRの記録が無効なら（デフォルト）、イベントオブジェクトを作らずにnullを返す
+    private static EventCodecEvent beginJfrEvent() {
+        if (!JFR_EVENT_TYPE.isEnabled()) {
+            return null;
+        }
+        EventCodecEvent jfrEvent = new EventCodecEvent();
+        jfrEvent.begin();
+        return jfrEvent;
+    }
+
+    // コーデックと、そのコーデック用のタイマー（呼び出しのたびにレジストリを引かないよう先に作っておく）
+    private record InstrumentedCodec(String name, EventCodec codec, Timer serializeTimer, Timer deserializeTimer) {
+        InstrumentedCodec(String name, EventCodec codec, MeterRegistry meterRegistry) {
+            this(name, codec,
+                Timer.builder("eventstore.serialize")
+                    .description("Time to serialize one event")
+                    .tag("codec", name)
+                    .register(meterRegistry),
+                Timer.builder("eventstore.deserialize")
+                    .description("Time to deserialize one event")
+                    .tag("codec", name)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo.infrastructure.eventstore.codec;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * JSON形式のコーデック（従来の形式）
+ *
+ * event_typeにはイベントの完全修飾クラス名を書き込みます。
+ * クラスの解決とObjectReaderの生成は型ごとに1回だけ行い、以降はキャッシュを使います。
+ * 型IDが登録されていないイベントの書き込みと、既存のJSON行の読み込みに使います。
+ */
+public class JsonEventCodec implements EventCodec {
+    private final ObjectMapper objectMapper;
+    private final Map<String, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public JsonEventCodec() {
+        this.objectMapper = createObjectMapper();
+    }
+
+    /**
+     * Event Store用のObjectMapperを作成
+     *
+     * Java 8の時間API（Instant等）を正しく処理できるように設定します。
+     * インフラ層の実装詳細として、ここで直接作成することで、
+     * Spring Bootの自動設定に依存せず、明確な設定が可能です。
+     */
+    private ObjectMapper createObjectMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        // Java 8の時間API（Instant等）を正しく処理するためのモジュール
+        mapper.registerModule(new JavaTimeModule());
+        // 日付をタイムスタンプではなくISO-8601形式でシリアライズ
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper;
+    }
+
+    @Override
+    public boolean canEncode(DomainEvent event) {
+        return true;
+    }
+
+    @Override
+    public boolean canDecode(String eventType) {
+        // 完全修飾クラス名は必ずパッケージ区切りを含む
+        return eventType.indexOf('.') >= 0;
+    }
+
+    @Override
+    public SerializedEvent encode(DomainEvent event) {
+        try {
+            return new SerializedEvent(event.getClass().getName(), objectMapper.writeValueAsBytes(event));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize event", e);
+        }
+    }
+
+    @Override
+    public DomainEvent decode(String eventType, byte[] data) {
+        try {
+            return readers.computeIfAbsent(eventType, this::createReader).readValue(data);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to deserialize event", e);
+        }
+    }
+
+    private ObjectReader createReader(String eventType) {
+        try {
+            return objectMapper.readerFor(Class.forName(eventType).asSubclass(DomainEvent.class));
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Event class not found: " + eventType, e);
+        }
+    }
+}
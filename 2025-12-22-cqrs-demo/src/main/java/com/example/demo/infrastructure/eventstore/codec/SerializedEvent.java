@@ -0,0 +1,4 @@
+package com.example.demo.infrastructure.eventstore.codec;
+
+// event_storeのevent_type/event_data列に書き込む形にしたイベント
+public record SerializedEvent(String eventType, byte[] data) {}
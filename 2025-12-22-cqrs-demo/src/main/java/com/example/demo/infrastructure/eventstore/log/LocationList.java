@@ -0,0 +1,37 @@
+package com.example.demo.infrastructure.eventstore.log;
+
+import java.util.Arrays;
+
+/**
+ * レコードの場所（セグメント番号 << 32 | オフセット）を追記順に並べたlongの可変長配列
+ *
+ * 書き込みは追記ロックを持つ1スレッドだけが行い、読み込みはロックなしで行います。
+ * 要素を書いてからsizeを増やす（volatile書き込み）ので、sizeを先に読めばそこまでの要素は必ず見えます。
+ */
+final class LocationList {
+    private volatile long[] locations;
+    private volatile int size;
+
+    LocationList(int initialCapacity) {
+        this.locations = new long[Math.max(initialCapacity, 1)];
+    }
+
+    void add(long location) {
+        long[] current = locations;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            locations = current;
+        }
+        current[size] = location;
+        size = size + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // sizeを読んだ後に、それより小さいindexで呼ぶこと
+    long get(int index) {
+        return locations[index];
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.demo.infrastructure.eventstore.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.exceptions.OptimisticLockingException;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+import com.example.demo.infrastructure.eventstore.codec.SerializedEvent;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 追記専用のセグメントファイルにイベントを保存するEvent Store
+ *
+ * JPA/SQLiteを通さず、固定サイズのセグメントファイル（00000000000000000000.log, ...）に
+ * レコードを追記します。セグメントは古いものから順に使い、位置（position）は1からの連番です。
+ * 集約ごとのレコードの場所と、位置ごとのレコードの場所はメモリ上のインデックスに持ち、
+ * 起動時にセグメントを先頭から読み直して作ります。
+ *
+ * レコードの形式（数値はビッグエンディアン）:
+ * <pre>
+ *   size(4) crc32c(4) position(8) aggregateId(16) version(8) flags(1) typeLength(2) eventType data
+ * </pre>
+ * 1回のsaveで追記したレコードのうち最後のものにCOMMITフラグを立て、起動時にはCOMMITで終わっていない
+ * 末尾のレコード（書き込み途中で落ちたもの）を捨てます。1回のsaveのレコードは同じセグメントに書きます。
+ *
+ * eventstore.storage=log のときに有効になります（eventstore.append-mode は使われません）。
+ * 追記はSpringのトランザクションに参加しないため、呼び出し元がロールバックしても取り消されません。
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "eventstore.storage", havingValue = "log")
+public class LogFileEventStore implements EventStore {
+    private static final Logger log = LoggerFactory.getLogger(LogFileEventStore.class);
+
+    private static final int SIZE_OFFSET = 0;
+    private static final int CRC_OFFSET = 4;
+    private static final int POSITION_OFFSET = 8;
+    private static final int AGGREGATE_ID_OFFSET = 16;
+    private static final int VERSION_OFFSET = 32;
+    private static final int FLAGS_OFFSET = 40;
+    private static final int TYPE_LENGTH_OFFSET = 41;
+    private static final int HEADER_SIZE = 43;
+    private static final byte FLAG_COMMIT = 1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final EventSerializer serializer;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // 追記はこのロックで直列化する。読み込みはロックを取らない
+    private final Object appendLock = new Object();
+    private final Map<UUID, LocationList> aggregates = new ConcurrentHashMap<>();
+    private final LocationList positions = new LocationList(1024);
+    private volatile LogSegment[] segments = new LogSegment[0];
+    private volatile long lastPosition;
+    private LogSegment active;
+    private int writeOffset;
+
+    public LogFileEventStore(
+            @Value("${eventstore.log.directory:data/event-log}") String directory,
+            @Value("${eventstore.log.segment-size-mb:64}") int segmentSizeMb,
+            @Value("${eventstore.log.fsync:true}") boolean fsync,
+            EventSerializer serializer,
+            ApplicationEventPublisher eventPublisher) {
+        if (segmentSizeMb <= 0 || segmentSizeMb > 1024) {
+            throw new IllegalArgumentException("eventstore.log.segment-size-mb must be between 1 and 1024");
+        }
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSizeMb * 1024 * 1024;
+        this.fsync = fsync;
+        this.serializer = serializer;
+        this.eventPublisher = eventPublisher;
+        try {
+            Files.createDirectories(this.directory);
+            recover();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open event log: " + this.directory, e);
+        }
+    }
+
+    @Override
+    public void save(List<DomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        UUID aggregateId = events.get(0).getAggregateId();
+        long expectedVersion = events.get(0).getVersion() - 1;
+
+        synchronized (appendLock) {
+            if (active == null) {
+                throw new IllegalStateException("Event log is closed");
+            }
+            // バージョンは0からの連番なので、集約のレコード数 - 1 が現在のバージョン
+            LocationList versions = aggregates.get(aggregateId);
+            long currentVersion = versions == null ? -1 : versions.size() - 1;
+            if (currentVersion != expectedVersion) {
+                throw new OptimisticLockingException(
+                    String.format("Aggregate version mismatch. AggregateId: %s, Expected version: %d, Current version: %d",
+                        aggregateId, expectedVersion, currentVersion));
+            }
+
+            int[] recordOffsets = new int[events.size()];
+            ByteBuffer batch = encode(events, lastPosition + 1, recordOffsets);
+            if (batch.remaining() > active.capacity() - writeOffset) {
+                roll(batch.remaining());
+            }
+            int offset = writeOffset;
+            try {
+                active.write(batch, offset);
+                if (fsync) {
+                    active.force();
+                }
+            } catch (IOException e) {
+                // writeOffsetを進めないので、書きかけのレコードは次の追記で上書きされる
+                throw new RuntimeException("Failed to append events", e);
+            }
+
+            if (versions == null) {
+                versions = new LocationList(8);
+                aggregates.put(aggregateId, versions);
+            }
+            for (int recordOffset : recordOffsets) {
+                long location = location(active.index(), offset + recordOffset);
+                versions.add(location);
+                positions.add(location);
+            }
+            writeOffset = offset + batch.limit();
+            lastPosition += events.size();
+        }
+
+        // イベントを発行（コミット後にProjectionRunnerを起こし、Read Modelの更新を促すため）
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    @Override
+    public List<DomainEvent> getEvents(UUID aggregateId) {
+        return getEvents(aggregateId, -1);
+    }
+
+    @Override
+    public List<DomainEvent> getEvents(UUID aggregateId, long afterVersion) {
+        LocationList versions = aggregates.get(aggregateId);
+        if (versions == null) {
+            return List.of();
+        }
+        int size = versions.size();
+        int from = (int) Math.min(Math.max(afterVersion + 1, 0), size);
+        List<DomainEvent> events = new ArrayList<>(size - from);
+        for (int i = from; i < size; i++) {
+            events.add(read(versions.get(i)));
+        }
+        return events;
+    }
+
+    // ファイル上のレコードを1件ずつ読みながら畳み込む
+    @Override
+    public <S> S foldEvents(UUID aggregateId, long afterVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        LocationList versions = aggregates.get(aggregateId);
+        if (versions == null) {
+            return initial;
+        }
+        int size = versions.size();
+        S state = initial;
+        for (int i = (int) Math.min(Math.max(afterVersion + 1, 0), size); i < size; i++) {
+            state = folder.apply(state, read(versions.get(i)));
+        }
+        return state;
+    }
+
+    @Override
+    public List<StoredEvent> readAll(long fromPosition, int maxCount) {
+        long last = lastPosition;
+        long from = Math.max(fromPosition, 0);
+        long to = Math.min(last, from + maxCount);
+        if (from >= to) {
+            return List.of();
+        }
+        List<StoredEvent> events = new ArrayList<>((int) (to - from));
+        for (long position = from + 1; position <= to; position++) {
+            events.add(new StoredEvent(position, read(positions.get((int) (position - 1)))));
+        }
+        return events;
+    }
+
+    @Override
+    public long getLastPosition() {
+        return lastPosition;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            active = null;
+            for (LogSegment segment : segments) {
+                segment.close();
+            }
+        }
+    }
+
+    private DomainEvent read(long location) {
+        LogSegment segment = segments[(int) (location >>> 32)];
+        int offset = (int) location;
+        ByteBuffer buffer = segment.buffer();
+        int size = buffer.getInt(offset + SIZE_OFFSET);
+        int typeLength = buffer.getShort(offset + TYPE_LENGTH_OFFSET);
+        byte[] type = new byte[typeLength];
+        buffer.get(offset + HEADER_SIZE, type);
+        byte[] data = new byte[size - HEADER_SIZE - typeLength];
+        buffer.get(offset + HEADER_SIZE + typeLength, data);
+        return serializer.deserialize(new String(type, StandardCharsets.UTF_8), data);
+    }
+
+    private ByteBuffer encode(List<DomainEvent> events, long firstPosition, int[] recordOffsets) {
+        byte[][] types = new byte[events.size()][];
+        byte[][] data = new byte[events.size()][];
+        int total = 0;
+        for (int i = 0; i < events.size(); i++) {
+            SerializedEvent serialized = serializer.serialize(events.get(i));
+            types[i] = serialized.eventType().getBytes(StandardCharsets.UTF_8);
+            data[i] = serialized.data();
+            total += HEADER_SIZE + types[i].length + data[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < events.size(); i++) {
+            DomainEvent event = events.get(i);
+            int start = buffer.position();
+            int size = HEADER_SIZE + types[i].length + data[i].length;
+            recordOffsets[i] = start;
+
+            buffer.putInt(size);
+            buffer.putInt(0);
+            buffer.putLong(firstPosition + i);
+            buffer.putLong(event.getAggregateId().getMostSignificantBits());
+            buffer.putLong(event.getAggregateId().getLeastSignificantBits());
+            buffer.putLong(event.getVersion());
+            buffer.put(i == events.size() - 1 ? FLAG_COMMIT : 0);
+            buffer.putShort((short) types[i].length);
+            buffer.put(types[i]);
+            buffer.put(data[i]);
+
+            crc.reset();
+            crc.update(buffer.slice(start + POSITION_OFFSET, size - POSITION_OFFSET));
+            buffer.putInt(start + CRC_OFFSET, (int) crc.getValue());
+        }
+        return buffer.flip();
+    }
+
+    private void roll(int required) {
+        if (required > segmentSize) {
+            throw new IllegalArgumentException(
+                "Events are too large for a log segment: " + required + " bytes (segment size " + segmentSize + ")");
+        }
+        try {
+            openSegment(segments.length);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create log segment", e);
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        LogSegment segment = LogSegment.open(index, directory.resolve(segmentFileName(index)), segmentSize);
+        LogSegment[] next = Arrays.copyOf(segments, index + 1);
+        next[index] = segment;
+        segments = next;
+        active = segment;
+        writeOffset = 0;
+    }
+
+    /**
+     * セグメントを先頭から読み直してインデックスを作る
+     *
+     * CRCが合わない、位置が連番でない、またはCOMMITで終わっていないレコードに当たったら、
+     * そのセグメントの読み込みをやめ、直前のCOMMITまでを有効とします。
+     * 末尾以外のセグメントで途中から読めなくなっていても、次のセグメントの位置が続いていれば問題ありません。
+     */
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list
+                .filter(path -> path.getFileName().toString().matches("\\d{20}\\.log"))
+                .sorted()
+                .toList();
+        }
+        if (files.isEmpty()) {
+            openSegment(0);
+            return;
+        }
+
+        for (int index = 0; index < files.size(); index++) {
+            if (!files.get(index).getFileName().toString().equals(segmentFileName(index))) {
+                throw new IllegalStateException("Missing log segment: " + segmentFileName(index));
+            }
+            openSegment(index);
+            long positionBefore = lastPosition;
+            writeOffset = scan(active);
+            if (index > 0 && lastPosition == positionBefore && index < files.size() - 1) {
+                throw new IllegalStateException("Event log is corrupted: no valid records in " + files.get(index));
+            }
+        }
+        // 捨てたレコードの先頭に終端（長さ0）を書き、次の起動で読まないようにする
+        if (writeOffset + 4 <= active.capacity()) {
+            active.write(ByteBuffer.allocate(4), writeOffset);
+        }
+        log.info("Opened event log {}: {} segments, {} events, {} aggregates",
+            directory, segments.length, lastPosition, aggregates.size());
+    }
+
+    private int scan(LogSegment segment) {
+        ByteBuffer buffer = segment.buffer();
+        CRC32C crc = new CRC32C();
+        List<long[]> pending = new ArrayList<>();
+        List<UUID> pendingIds = new ArrayList<>();
+        int offset = 0;
+        int committed = 0;
+        long expectedPosition = lastPosition + 1;
+
+        while (offset + HEADER_SIZE <= segment.capacity()) {
+            int size = buffer.getInt(offset + SIZE_OFFSET);
+            if (size < HEADER_SIZE || size > segment.capacity() - offset) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(offset + POSITION_OFFSET, size - POSITION_OFFSET));
+            if ((int) crc.getValue() != buffer.getInt(offset + CRC_OFFSET)
+                    || buffer.getLong(offset + POSITION_OFFSET) != expectedPosition) {
+                break;
+            }
+
+            UUID aggregateId = new UUID(
+                buffer.getLong(offset + AGGREGATE_ID_OFFSET),
+                buffer.getLong(offset + AGGREGATE_ID_OFFSET + 8));
+            pendingIds.add(aggregateId);
+            pending.add(new long[] {location(segment.index(), offset), buffer.getLong(offset + VERSION_OFFSET)});
+            offset += size;
+            expectedPosition++;
+
+            if ((buffer.get(offset - size + FLAGS_OFFSET) & FLAG_COMMIT) != 0) {
+                for (int i = 0; i < pending.size(); i++) {
+                    LocationList versions = aggregates.computeIfAbsent(pendingIds.get(i), id -> new LocationList(8));
+                    if (versions.size() != pending.get(i)[1]) {
+                        throw new IllegalStateException("Event log is corrupted: unexpected version "
+                            + pending.get(i)[1] + " of aggregate " + pendingIds.get(i));
+                    }
+                    versions.add(pending.get(i)[0]);
+                    positions.add(pending.get(i)[0]);
+                }
+                lastPosition += pending.size();
+                pending.clear();
+                pendingIds.clear();
+                committed = offset;
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Discarded {} uncommitted records at the end of {}", pending.size(), segment.path());
+        }
+        return committed;
+    }
+
+    private static long location(int segmentIndex, int offset) {
+        return ((long) segmentIndex << 32) | offset;
+    }
+
+    private static String segmentFileName(int index) {
+        return String.format("%020d.log", index);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.infrastructure.eventstore.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * イベントログの1セグメント（固定サイズのファイル）
+ *
+ * 作成時にファイルをセグメントサイズまで広げてメモリマップし、読み込みはマップ経由で行います。
+ * 書き込みはFileChannelで行います（同じページキャッシュを共有するため、書いた内容はマップからも見えます）。
+ * 未使用の領域は0埋めなので、レコード長が0の位置がセグメントの末尾です。
+ */
+final class LogSegment implements Closeable {
+    private final int index;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private LogSegment(int index, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.index = index;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static LogSegment open(int index, Path path, int segmentSize) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // 既存のセグメントは作成時のサイズのまま開く（設定のセグメントサイズを後から変えても読めるように）
+            long size = Math.max(channel.size(), segmentSize);
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segment is too large: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new LogSegment(index, path, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int index() {
+        return index;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    // 読み込み用。絶対位置指定のgetだけを使うので、複数スレッドから共有してよい
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    void write(ByteBuffer data, int offset) throws IOException {
+        long position = offset;
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.infrastructure.eventstore.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.example.demo.domain.events.DomainEvent;
+
+/**
+ * 1つの集約のイベント列（バージョン順）
+ *
+ * 書き込みは集約のストライプロックを持つスレッドだけが行い、読み込みはロックなしで行います。
+ * 要素を書いてからsizeを増やす（volatile書き込み）ので、sizeを先に読めばそこまでの要素は必ず見えます。
+ */
+final class AggregateStream {
+    private volatile DomainEvent[] events = new DomainEvent[4];
+    private volatile int size;
+
+    void add(DomainEvent event) {
+        DomainEvent[] current = events;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            events = current;
+        }
+        current[size] = event;
+        size = size + 1;
+    }
+
+    // バージョンは0からの連番なので、イベント数 - 1 が現在のバージョン
+    long currentVersion() {
+        return size - 1;
+    }
+
+    List<DomainEvent> after(long afterVersion) {
+        int end = size;
+        DomainEvent[] current = events;
+        int from = (int) Math.min(Math.max(afterVersion + 1, 0), end);
+        return new ArrayList<>(Arrays.asList(current).subList(from, end));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.infrastructure.eventstore.memory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+import com.example.demo.infrastructure.eventstore.codec.SerializedEvent;
+
+/**
+ * インメモリEvent Storeのイベントを追記順に書き出すファイル
+ *
+ * レコードの形式: size(4) crc32c(4) typeLength(2) eventType data
+ * （sizeはsize自身を除くバイト数、CRCはtypeLength以降が対象）
+ * 読み込み時は壊れたレコード（書き出し途中で落ちたもの）以降を切り捨てます。
+ */
+final class EventFlushFile implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final EventSerializer serializer;
+
+    private EventFlushFile(Path path, FileChannel channel, EventSerializer serializer) {
+        this.path = path;
+        this.channel = channel;
+        this.serializer = serializer;
+    }
+
+    /**
+     * ファイルを開き、書き出し済みのイベントを順にloaderへ渡す
+     *
+     * @return 開いたファイル（以降のappendはファイルの末尾に追記される）
+     */
+    static EventFlushFile open(Path path, EventSerializer serializer, Consumer<DomainEvent> loader) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long valid = load(channel, serializer, loader);
+            channel.truncate(valid);
+            channel.position(valid);
+            return new EventFlushFile(path, channel, serializer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long load(FileChannel channel, EventSerializer serializer, Consumer<DomainEvent> loader) throws IOException {
+        // 読み込み用のストリームは閉じない（閉じるとチャネルも閉じてしまうため）
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16));
+        CRC32C crc = new CRC32C();
+        long valid = 0;
+        long fileSize = channel.size();
+        while (true) {
+            try {
+                int size = in.readInt();
+                if (size < 6 || valid + 4 + size > fileSize) {
+                    return valid;
+                }
+                int expectedCrc = in.readInt();
+                byte[] body = new byte[size - 4];
+                in.readFully(body);
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != expectedCrc) {
+                    return valid;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                byte[] type = new byte[buffer.getShort()];
+                buffer.get(type);
+                byte[] data = new byte[buffer.remaining()];
+                buffer.get(data);
+                loader.accept(serializer.deserialize(new String(type, StandardCharsets.UTF_8), data));
+                valid += 4 + size;
+            } catch (EOFException e) {
+                return valid;
+            }
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    void append(List<DomainEvent> events) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (DomainEvent event : events) {
+            SerializedEvent serialized = serializer.serialize(event);
+            byte[] type = serialized.eventType().getBytes(StandardCharsets.UTF_8);
+            int size = 4 + 2 + type.length + serialized.data().length;
+            if (buffer.remaining() < 4 + size) {
+                write(buffer.flip());
+                buffer = ByteBuffer.allocate(Math.max(1 << 16, 4 + size));
+            }
+            int start = buffer.position();
+            buffer.putInt(size);
+            buffer.putInt(0);
+            buffer.putShort((short) type.length);
+            buffer.put(type);
+            buffer.put(serialized.data());
+            crc.reset();
+            crc.update(buffer.slice(start + 8, size - 4));
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+        write(buffer.flip());
+        channel.force(false);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.demo.infrastructure.eventstore.memory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.exceptions.OptimisticLockingException;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * メモリ上にイベントを保持するEvent Store
+ *
+ * 負荷試験でディスクではなくドメイン層・Web層を測るときや、消えてもよいデータを扱うときに使います。
+ * バージョンチェックと追記は集約IDのハッシュで選んだストライプロックの中で行うため、
+ * 別の集約への追記は並行して進みます。位置（position）はロックの中で採番し、
+ * 全体の追記順（グローバルログ）は、先頭から隙間なく埋まった位置までだけを読み手に見せます。
+ *
+ * eventstore.storage=memory のときに有効になります（eventstore.append-mode は使われません）。
+ * eventstore.memory.flush-file を指定すると、追記されたイベントを定期的に（と終了時に）ファイルへ書き出し、
+ * 起動時に読み戻します。指定しない場合は再起動でイベントが消えるので、
+ * SQLiteに残るRead Modelとプロジェクションのチェックポイントも作り直してください。
+ * 追記はSpringのトランザクションに参加しないため、呼び出し元がロールバックしても取り消されません。
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "eventstore.storage", havingValue = "memory")
+public class InMemoryEventStore implements EventStore {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryEventStore.class);
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 15;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Object[] stripes;
+    private final Map<UUID, AggregateStream> aggregates = new ConcurrentHashMap<>();
+    // グローバルログ。位置pのイベントは (p - 1) 番目の要素
+    private final AtomicReferenceArray<AtomicReferenceArray<DomainEvent>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    // 採番済みの最後の位置
+    private final AtomicLong sequence = new AtomicLong();
+    // 先頭から隙間なく書き込み済みの最後の位置（読み手に見せる範囲）
+    private final AtomicLong lastPosition = new AtomicLong();
+
+    private final EventFlushFile flushFile;
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+    private long flushedPosition;
+
+    public InMemoryEventStore(
+            @Value("${eventstore.memory.flush-file:}") String flushFile,
+            @Value("${eventstore.memory.flush-interval-ms:1000}") long flushIntervalMillis,
+            EventSerializer serializer,
+            ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        // コア数の4倍以上の2のべき乗。ハッシュの衝突で無関係な集約同士が待たされにくくする
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+        this.stripes = new Object[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Object();
+        }
+
+        if (flushFile.isBlank()) {
+            this.flushFile = null;
+            this.flusher = null;
+            return;
+        }
+        try {
+            this.flushFile = EventFlushFile.open(Paths.get(flushFile), serializer, event -> append(List.of(event)));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load events from " + flushFile, e);
+        }
+        this.flushedPosition = lastPosition.get();
+        log.info("Loaded {} events ({} aggregates) from {}", flushedPosition, aggregates.size(), flushFile);
+
+        if (flushIntervalMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "event-store-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    @Override
+    public void save(List<DomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        append(events);
+
+        // イベントを発行（コミット後にProjectionRunnerを起こし、Read Modelの更新を促すため）
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    private void append(List<DomainEvent> events) {
+        UUID aggregateId = events.get(0).getAggregateId();
+        long expectedVersion = events.get(0).getVersion() - 1;
+
+        synchronized (stripeFor(aggregateId)) {
+            AggregateStream stream = aggregates.get(aggregateId);
+            long currentVersion = stream == null ? -1 : stream.currentVersion();
+            if (currentVersion != expectedVersion) {
+                throw new OptimisticLockingException(
+                    String.format("Aggregate version mismatch. AggregateId: %s, Expected version: %d, Current version: %d",
+                        aggregateId, expectedVersion, currentVersion));
+            }
+            // 同じ集約の追記はこのロックで直列化されるので、集約内のバージョン順と位置の順は一致する
+            long firstPosition = sequence.getAndAdd(events.size()) + 1;
+            if (stream == null) {
+                stream = new AggregateStream();
+                aggregates.put(aggregateId, stream);
+            }
+            for (int i = 0; i < events.size(); i++) {
+                stream.add(events.get(i));
+                slot(firstPosition + i).set(index(firstPosition + i), events.get(i));
+            }
+        }
+        advanceLastPosition();
+    }
+
+    /**
+     * 先頭から隙間なく埋まっている位置までlastPositionを進める
+     *
+     * 先に採番した別の集約の書き込みがまだ終わっていなければ、そこで止まります。
+     * その書き込みを終えたスレッドが、後続の位置の分もまとめて進めます。
+     */
+    private void advanceLastPosition() {
+        long current = lastPosition.get();
+        while (current < sequence.get()) {
+            long next = current + 1;
+            AtomicReferenceArray<DomainEvent> chunk = chunks.get(chunkIndex(next));
+            if (chunk == null || chunk.get(index(next)) == null) {
+                return;
+            }
+            if (!lastPosition.compareAndSet(current, next)) {
+                current = lastPosition.get();
+                continue;
+            }
+            current = next;
+        }
+    }
+
+    @Override
+    public List<DomainEvent> getEvents(UUID aggregateId) {
+        return getEvents(aggregateId, -1);
+    }
+
+    @Override
+    public List<DomainEvent> getEvents(UUID aggregateId, long afterVersion) {
+        AggregateStream stream = aggregates.get(aggregateId);
+        return stream == null ? new ArrayList<>() : stream.after(afterVersion);
+    }
+
+    @Override
+    public List<StoredEvent> readAll(long fromPosition, int maxCount) {
+        long from = Math.max(fromPosition, 0);
+        long to = Math.min(lastPosition.get(), from + maxCount);
+        if (from >= to) {
+            return List.of();
+        }
+        List<StoredEvent> events = new ArrayList<>((int) (to - from));
+        for (long position = from + 1; position <= to; position++) {
+            events.add(new StoredEvent(position, chunks.get(chunkIndex(position)).get(index(position))));
+        }
+        return events;
+    }
+
+    @Override
+    public long getLastPosition() {
+        return lastPosition.get();
+    }
+
+    /**
+     * まだ書き出していないイベントをファイルに書き出す
+     *
+     * flush-file を指定していない場合は何もしません。
+     */
+    public void flush() throws IOException {
+        if (flushFile == null) {
+            return;
+        }
+        synchronized (flushLock) {
+            long to = lastPosition.get();
+            while (flushedPosition < to) {
+                List<StoredEvent> batch = readAll(flushedPosition, 10_000);
+                flushFile.append(batch.stream().map(StoredEvent::event).toList());
+                flushedPosition = batch.get(batch.size() - 1).position();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            // 書き出せなかった分は次回に再試行する
+            log.error("Failed to flush events to {}", flushFile.path(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        if (flushFile == null) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flush();
+        flushFile.close();
+    }
+
+    private Object stripeFor(UUID aggregateId) {
+        int hash = aggregateId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    // 位置を含むチャンクを返す。まだなければ作る
+    private AtomicReferenceArray<DomainEvent> slot(long position) {
+        int chunkIndex = chunkIndex(position);
+        if (chunkIndex >= MAX_CHUNKS) {
+            throw new IllegalStateException("In-memory event store is full");
+        }
+        AtomicReferenceArray<DomainEvent> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunks.compareAndSet(chunkIndex, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = chunks.get(chunkIndex);
+        }
+        return chunk;
+    }
+
+    private static int chunkIndex(long position) {
+        return (int) ((position - 1) >>> CHUNK_BITS);
+    }
+
+    private static int index(long position) {
+        return (int) ((position - 1) & (CHUNK_SIZE - 1));
+    }
+}
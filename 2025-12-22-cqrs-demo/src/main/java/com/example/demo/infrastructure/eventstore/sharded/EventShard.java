@@ -0,0 +1,262 @@
+package com.example.demo.infrastructure.eventstore.sharded;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+import com.example.demo.infrastructure.eventstore.codec.SerializedEvent;
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * 1つのSQLiteファイルに保存するシャード
+ *
+ * 追記はシャードごとに1つの書き込み用の接続で直列に行い、読み込みは読み取り専用の接続のプールで行います
+ * （journal_mode=WALなので、追記中も読めます）。
+ * 位置（position）はPositionSequencerが割り当てたグローバルな値を主キーとして保存します。
+ */
+final class EventShard implements AutoCloseable {
+    private static final String CREATE_TABLE = """
+        CREATE TABLE IF NOT EXISTS event_store (
+            position INTEGER PRIMARY KEY,
+            aggregate_id BLOB NOT NULL,
+            event_type TEXT NOT NULL,
+            event_data BLOB NOT NULL,
+            version INTEGER NOT NULL,
+            occurred_at INTEGER NOT NULL)
+        """;
+    private static final String CREATE_INDEX = """
+        CREATE UNIQUE INDEX IF NOT EXISTS idx_event_store_aggregate_version ON event_store (aggregate_id, version)
+        """;
+    private static final String CREATE_OCCURRED_AT_INDEX = """
+        CREATE INDEX IF NOT EXISTS idx_event_store_aggregate_occurred_at ON event_store (aggregate_id, occurred_at, version)
+        """;
+    private static final String INSERT = """
+        INSERT INTO event_store (position, aggregate_id, event_type, event_data, version, occurred_at) VALUES (?, ?, ?, ?, ?, ?)
+        """;
+    private static final String SELECT_EVENTS = """
+        SELECT event_type, event_data FROM event_store WHERE aggregate_id = ? AND version > ? AND version <= ? ORDER BY version
+        """;
+    private static final String SELECT_VERSION_AT = """
+        SELECT version FROM event_store WHERE aggregate_id = ? AND occurred_at <= ?
+        ORDER BY occurred_at DESC, version DESC LIMIT 1
+        """;
+    private static final String SELECT_RANGE = """
+        SELECT position, event_type, event_data FROM event_store WHERE position > ? AND position <= ? ORDER BY position LIMIT ?
+        """;
+    // IN句1回あたりの集約ID数（SQLiteのバインド変数の上限より十分小さくする）
+    private static final int IN_CLAUSE_SIZE = 500;
+    // 再生時にドライバが1回に読み込む行数
+    private static final int FETCH_SIZE = 256;
+
+    private final int index;
+    private final EventSerializer serializer;
+    private final Connection writer;
+    // 書き込み用の接続を使う間に持つ。追記は仮想スレッドからも呼ばれるため、I/Oの間キャリアスレッドを
+    // 占有してしまうsynchronizedではなくロックを使う
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final HikariDataSource readers;
+    private final JdbcTemplate jdbcTemplate;
+
+    EventShard(int index, Path file, int readerPoolSize, EventSerializer serializer) {
+        this.index = index;
+        this.serializer = serializer;
+        String url = "jdbc:sqlite:file:" + file + "?mode=rwc&journal_mode=WAL&busy_timeout=5000";
+        try {
+            this.writer = DriverManager.getConnection(url);
+            try (Statement statement = writer.createStatement()) {
+                statement.execute(CREATE_TABLE);
+                statement.execute(CREATE_INDEX);
+                statement.execute(CREATE_OCCURRED_AT_INDEX);
+            }
+            writer.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to open event shard: " + file, e);
+        }
+        this.readers = new HikariDataSource();
+        readers.setPoolName("event-shard-" + index);
+        readers.setJdbcUrl(url);
+        readers.setMaximumPoolSize(readerPoolSize);
+        readers.setConnectionInitSql("PRAGMA query_only = 1");
+        this.jdbcTemplate = new JdbcTemplate(readers);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    int index() {
+        return index;
+    }
+
+    long lastPosition() {
+        Long position = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(position), 0) FROM event_store", Long.class);
+        return position == null ? 0 : position;
+    }
+
+    /**
+     * 楽観ロックを確認し、競合しなかった集約のイベントを1トランザクションで追記する
+     *
+     * 書き込み用の接続はこのシャードで1つだけなので、バージョンの確認から追記までの間に
+     * 別の追記が割り込むことはありません。
+     * 競合した集約のIDと、その現在のバージョンを返します（イベントのない集約は-1）。
+     */
+    Map<UUID, Long> append(List<Append> appends, PositionSequencer sequencer) {
+        writerLock.lock();
+        try {
+            return appendLocked(appends, sequencer);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private Map<UUID, Long> appendLocked(List<Append> appends, PositionSequencer sequencer) {
+        Map<UUID, Long> conflicts = new LinkedHashMap<>();
+        List<Append> accepted = new ArrayList<>(appends.size());
+        int count = 0;
+        try {
+            Map<UUID, Long> current = currentVersions(appends);
+            for (Append append : appends) {
+                long currentVersion = current.getOrDefault(append.aggregateId(), -1L);
+                if (currentVersion == append.expectedVersion()) {
+                    accepted.add(append);
+                    count += append.events().size();
+                } else {
+                    conflicts.put(append.aggregateId(), currentVersion);
+                }
+            }
+            if (count == 0) {
+                writer.rollback();
+                return conflicts;
+            }
+        } catch (SQLException e) {
+            rollback();
+            throw new RuntimeException("Failed to read versions from event shard " + index, e);
+        }
+
+        long start = sequencer.allocate(count);
+        try (PreparedStatement statement = writer.prepareStatement(INSERT)) {
+            long position = start;
+            for (Append append : accepted) {
+                for (int i = 0; i < append.events().size(); i++) {
+                    DomainEvent event = append.events().get(i);
+                    SerializedEvent serialized = append.serialized().get(i);
+                    statement.setLong(1, position++);
+                    statement.setBytes(2, UuidBytes.toBytes(event.getAggregateId()));
+                    statement.setString(3, serialized.eventType());
+                    statement.setBytes(4, serialized.data());
+                    statement.setLong(5, event.getVersion());
+                    statement.setLong(6, event.getOccurredAt().toEpochMilli());
+                    statement.addBatch();
+                }
+            }
+            statement.executeBatch();
+            writer.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new RuntimeException("Failed to append events to event shard " + index, e);
+        } finally {
+            // 失敗した場合、割り当てた範囲は欠番になる
+            sequencer.complete(start);
+        }
+        return conflicts;
+    }
+
+    // afterVersionより後、untilVersion以下のイベントをバージョン順に畳み込む
+    <S> S foldEvents(UUID aggregateId, long afterVersion, long untilVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        AtomicReference<S> state = new AtomicReference<>(initial);
+        jdbcTemplate.query(
+            SELECT_EVENTS,
+            rs -> {
+                state.set(folder.apply(state.get(), serializer.deserialize(rs.getString("event_type"), rs.getBytes("event_data"))));
+            },
+            UuidBytes.toBytes(aggregateId),
+            afterVersion,
+            untilVersion);
+        return state.get();
+    }
+
+    // ある時刻の時点のバージョン（なければ-1）。occurred_atと同じくミリ秒未満を切り捨てて比べる
+    long findVersionAt(UUID aggregateId, Instant at) {
+        List<Long> versions = jdbcTemplate.queryForList(
+            SELECT_VERSION_AT, Long.class, UuidBytes.toBytes(aggregateId), at.toEpochMilli());
+        return versions.isEmpty() ? -1 : versions.get(0);
+    }
+
+    // fromPositionより後、toPosition以下のイベントを位置順に最大maxCount件
+    List<StoredEvent> readRange(long fromPosition, long toPosition, int maxCount) {
+        return jdbcTemplate.query(
+            SELECT_RANGE,
+            (rs, rowNum) -> new StoredEvent(
+                rs.getLong("position"),
+                serializer.deserialize(rs.getString("event_type"), rs.getBytes("event_data"))),
+            fromPosition,
+            toPosition,
+            maxCount);
+    }
+
+    @Override
+    public void close() {
+        writerLock.lock();
+        try {
+            readers.close();
+            writer.close();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to close event shard " + index, e);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private Map<UUID, Long> currentVersions(List<Append> appends) throws SQLException {
+        Map<UUID, Long> versions = new HashMap<>();
+        for (int from = 0; from < appends.size(); from += IN_CLAUSE_SIZE) {
+            List<Append> chunk = appends.subList(from, Math.min(from + IN_CLAUSE_SIZE, appends.size()));
+            String sql = "SELECT aggregate_id, MAX(version) AS version FROM event_store WHERE aggregate_id IN ("
+                + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") GROUP BY aggregate_id";
+            try (PreparedStatement statement = writer.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setBytes(i + 1, UuidBytes.toBytes(chunk.get(i).aggregateId()));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        versions.put(UuidBytes.fromBytes(rs.getBytes("aggregate_id")), rs.getLong("version"));
+                    }
+                }
+            }
+        }
+        return versions;
+    }
+
+    private void rollback() {
+        try {
+            writer.rollback();
+        } catch (SQLException e) {
+            // 元の例外を優先する
+        }
+    }
+
+    /**
+     * 1つの集約への追記（シリアライズ済み）
+     *
+     * シリアライズはシャードのロックの外で済ませておきます。
+     */
+    record Append(UUID aggregateId, long expectedVersion, List<DomainEvent> events, List<SerializedEvent> serialized) {}
+}
@@ -0,0 +1,38 @@
+package com.example.demo.infrastructure.eventstore.sharded;
+
+import java.util.TreeSet;
+
+/**
+ * シャードをまたいだグローバルな位置の採番
+ *
+ * 各シャードは追記のたびに位置の範囲を割り当ててもらい、コミット（または失敗）したら返します。
+ * シャードは並行してコミットするため、大きい位置が先に見えることがあります。
+ * 読み手には「まだコミットが終わっていない最小の位置の手前」（watermark）までしか見せないことで、
+ * 後から小さい位置のイベントが現れないようにします。失敗した範囲は欠番になります。
+ */
+final class PositionSequencer {
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long next;
+
+    PositionSequencer(long lastPosition) {
+        this.next = lastPosition + 1;
+    }
+
+    // count件分の連続した位置を割り当て、先頭の位置を返す
+    synchronized long allocate(int count) {
+        long start = next;
+        next += count;
+        inFlight.add(start);
+        return start;
+    }
+
+    // allocateで割り当てた範囲のコミットが終わった（または失敗した）
+    synchronized void complete(long start) {
+        inFlight.remove(start);
+    }
+
+    // 読み手に見せてよい最後の位置。これ以下の位置のイベントが後からコミットされることはない
+    synchronized long watermark() {
+        return inFlight.isEmpty() ? next - 1 : inFlight.first() - 1;
+    }
+}
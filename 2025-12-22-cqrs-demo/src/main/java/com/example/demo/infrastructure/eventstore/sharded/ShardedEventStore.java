@@ -0,0 +1,303 @@
+package com.example.demo.infrastructure.eventstore.sharded;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.exceptions.OptimisticLockingException;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 集約IDのハッシュで複数のSQLiteファイルに振り分けるEvent Store
+ *
+ * SQLiteは1ファイルにつき同時に1つしか書き込めないため、集約をN個のシャード
+ * （shard-0-of-N.db, ...）に分け、シャードごとの書き込みを並行して行います。
+ * 集約のイベントはすべて同じシャードに入るので、楽観ロックと集約ごとの読み込みは1シャードで完結します。
+ *
+ * 位置（position）はシャードをまたいだグローバルな連番で、PositionSequencerが追記のたびに割り当てます。
+ * readAllは全シャードを位置順にマージしますが、コミット中の追記より後の位置は返さないため、
+ * 後から小さい位置のイベントが現れることはありません（インターフェースの約束どおり）。
+ * 位置の割り当てはプロセス内で行うため、同じディレクトリを複数のプロセスで使うことはできません。
+ *
+ * eventstore.storage=sharded のときに有効になります（eventstore.append-mode は使われません）。
+ * シャード数は作成後に変更できません（集約の振り分け先が変わるため、起動時に確認して拒否します）。
+ * 追記はSpringのトランザクションに参加しないため、呼び出し元がロールバックしても取り消されません。
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "eventstore.storage", havingValue = "sharded")
+public class ShardedEventStore implements EventStore {
+    private static final Logger log = LoggerFactory.getLogger(ShardedEventStore.class);
+    private static final Pattern SHARD_FILE = Pattern.compile("shard-(\\d+)-of-(\\d+)\\.db");
+
+    private final EventShard[] shards;
+    private final PositionSequencer sequencer;
+    private final EventSerializer serializer;
+    private final ApplicationEventPublisher eventPublisher;
+    // saveAllで複数のシャードに並行して追記するためのスレッド
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShardedEventStore(
+            @Value("${eventstore.sharded.directory:data/event-shards}") String directory,
+            @Value("${eventstore.sharded.shards:4}") int shardCount,
+            @Value("${eventstore.sharded.reader-pool-size:2}") int readerPoolSize,
+            EventSerializer serializer,
+            ApplicationEventPublisher eventPublisher) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("eventstore.sharded.shards must be positive: " + shardCount);
+        }
+        Path path = Paths.get(directory);
+        try {
+            Files.createDirectories(path);
+            checkShardCount(path, shardCount);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open event shards: " + path, e);
+        }
+        this.serializer = serializer;
+        this.eventPublisher = eventPublisher;
+        this.shards = new EventShard[shardCount];
+        long lastPosition = 0;
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new EventShard(i, path.resolve("shard-" + i + "-of-" + shardCount + ".db"), readerPoolSize, serializer);
+            lastPosition = Math.max(lastPosition, shards[i].lastPosition());
+        }
+        this.sequencer = new PositionSequencer(lastPosition);
+        log.info("Opened {} event shards in {}: last position {}", shardCount, path, lastPosition);
+    }
+
+    @Override
+    public void save(List<DomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        EventShard.Append append = prepare(events);
+        Map<UUID, Long> conflicts = shardOf(append.aggregateId()).append(List.of(append), sequencer);
+        if (!conflicts.isEmpty()) {
+            throw new OptimisticLockingException(
+                String.format("Aggregate version mismatch. AggregateId: %s, Expected version: %d, Current version: %d",
+                    append.aggregateId(), append.expectedVersion(), conflicts.get(append.aggregateId())));
+        }
+        // イベントを発行（コミット後にProjectionRunnerを起こし、Read Modelの更新を促すため）
+        events.forEach(eventPublisher::publishEvent);
+    }
+
+    // シャードごとにまとめ、シャードごとの追記（1トランザクション）を並行して行う
+    @Override
+    public Set<UUID> saveAll(List<List<DomainEvent>> eventsPerAggregate) {
+        Map<EventShard, List<EventShard.Append>> appendsByShard = new LinkedHashMap<>();
+        for (List<DomainEvent> events : eventsPerAggregate) {
+            if (!events.isEmpty()) {
+                EventShard.Append append = prepare(events);
+                appendsByShard.computeIfAbsent(shardOf(append.aggregateId()), shard -> new ArrayList<>()).add(append);
+            }
+        }
+
+        Map<EventShard, Future<Map<UUID, Long>>> results = new LinkedHashMap<>();
+        appendsByShard.forEach((shard, appends) -> results.put(shard, executor.submit(() -> shard.append(appends, sequencer))));
+
+        Set<UUID> conflicts = new HashSet<>();
+        RuntimeException failure = null;
+        for (Map.Entry<EventShard, Future<Map<UUID, Long>>> result : results.entrySet()) {
+            try {
+                Set<UUID> shardConflicts = result.getValue().get().keySet();
+                conflicts.addAll(shardConflicts);
+                for (EventShard.Append append : appendsByShard.get(result.getKey())) {
+                    if (!shardConflicts.contains(append.aggregateId())) {
+                        append.events().forEach(eventPublisher::publishEvent);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while appending events", e);
+            } catch (ExecutionException e) {
+                // 他のシャードの追記はコミット済みのことがあるので、結果を最後まで集めてから投げる
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtime ? runtime : new RuntimeException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return conflicts;
+    }
+
+    @Override
+    public List<DomainEvent> getEvents(UUID aggregateId) {
+        return getEvents(aggregateId, -1);
+    }
+
+    @Override
+    public List<DomainEvent> getEvents(UUID aggregateId, long afterVersion) {
+        return foldEvents(aggregateId, afterVersion, new ArrayList<>(), (events, event) -> {
+            events.add(event);
+            return events;
+        });
+    }
+
+    @Override
+    public <S> S foldEvents(UUID aggregateId, long afterVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        return shardOf(aggregateId).foldEvents(aggregateId, afterVersion, Long.MAX_VALUE, initial, folder);
+    }
+
+    @Override
+    public <S> S foldEvents(UUID aggregateId, long afterVersion, long untilVersion, S initial, BiFunction<S, DomainEvent, S> folder) {
+        return shardOf(aggregateId).foldEvents(aggregateId, afterVersion, untilVersion, initial, folder);
+    }
+
+    @Override
+    public long findVersionAt(UUID aggregateId, Instant at) {
+        return shardOf(aggregateId).findVersionAt(aggregateId, at);
+    }
+
+    /**
+     * 全シャードから位置順に読み、マージする
+     *
+     * シャードごとのカーソルで位置順に読み、先頭の位置が最も小さいシャードから1件ずつ取り出します（k-wayマージ）。
+     * カーソルは1回に maxCount / シャード数 件ずつ読み、使い切ったら続きを読みます。
+     * イベントが偏っていても、読む行数は maxCount + シャード数 × 1回の件数 程度に収まります。
+     * コミット中の追記があれば、その位置の手前までしか読みません。
+     */
+    @Override
+    public List<StoredEvent> readAll(long fromPosition, int maxCount) {
+        long toPosition = sequencer.watermark();
+        if (fromPosition >= toPosition || maxCount <= 0) {
+            return List.of();
+        }
+        int pageSize = Math.ceilDiv(maxCount, shards.length);
+        PriorityQueue<ShardCursor> heads = new PriorityQueue<>(Comparator.comparingLong(ShardCursor::headPosition));
+        for (EventShard shard : shards) {
+            ShardCursor cursor = new ShardCursor(shard, fromPosition, toPosition, pageSize);
+            if (cursor.hasNext()) {
+                heads.add(cursor);
+            }
+        }
+        List<StoredEvent> events = new ArrayList<>(maxCount);
+        while (events.size() < maxCount && !heads.isEmpty()) {
+            ShardCursor cursor = heads.poll();
+            events.add(cursor.next());
+            if (cursor.hasNext()) {
+                heads.add(cursor);
+            }
+        }
+        return events;
+    }
+
+    // 読み手に見せてよい最後の位置（コミット中の追記があれば、その手前）
+    @Override
+    public long getLastPosition() {
+        return sequencer.watermark();
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.close();
+        for (EventShard shard : shards) {
+            shard.close();
+        }
+    }
+
+    // 1つのシャードを位置順に、pageSize件ずつ読み進めるカーソル
+    private static final class ShardCursor {
+        private final EventShard shard;
+        private final long toPosition;
+        private final int pageSize;
+        private List<StoredEvent> page = List.of();
+        private int index;
+        private long lastPosition;
+        // 前回の読み込みがpageSize件に満たなければ、そのシャードにはもう続きがない
+        private boolean exhausted;
+
+        ShardCursor(EventShard shard, long fromPosition, long toPosition, int pageSize) {
+            this.shard = shard;
+            this.lastPosition = fromPosition;
+            this.toPosition = toPosition;
+            this.pageSize = pageSize;
+        }
+
+        boolean hasNext() {
+            if (index < page.size()) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            page = shard.readRange(lastPosition, toPosition, pageSize);
+            index = 0;
+            exhausted = page.size() < pageSize;
+            return !page.isEmpty();
+        }
+
+        // hasNextがtrueを返した後にだけ呼ぶ
+        long headPosition() {
+            return page.get(index).position();
+        }
+
+        StoredEvent next() {
+            StoredEvent event = page.get(index++);
+            lastPosition = event.position();
+            return event;
+        }
+    }
+
+    // 作成後にシャード数を変えると集約の振り分け先が変わり、既存のイベントが見えなくなる
+    private static void checkShardCount(Path directory, int shardCount) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> SHARD_FILE.matcher(file.getFileName().toString()))
+                .filter(Matcher::matches)
+                .mapToInt(matcher -> Integer.parseInt(matcher.group(2)))
+                .filter(count -> count != shardCount)
+                .findFirst()
+                .ifPresent(count -> {
+                    throw new IllegalStateException(String.format(
+                        "Event shards in %s were created with %d shards, but eventstore.sharded.shards is %d",
+                        directory, count, shardCount));
+                });
+        }
+    }
+
+    private EventShard shardOf(UUID aggregateId) {
+        return shards[Math.floorMod(aggregateId.hashCode(), shards.length)];
+    }
+
+    // シリアライズはシャードのロックの外で行う
+    private EventShard.Append prepare(List<DomainEvent> events) {
+        return new EventShard.Append(
+            events.get(0).getAggregateId(),
+            events.get(0).getVersion() - 1,
+            events,
+            events.stream().map(serializer::serialize).toList());
+    }
+}
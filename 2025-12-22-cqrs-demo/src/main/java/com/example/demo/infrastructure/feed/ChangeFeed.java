@@ -0,0 +1,240 @@
+package com.example.demo.infrastructure.feed;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.exceptions.ServiceUnavailableException;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * コミット済みのイベントを購読者に配信する変更フィード
+ *
+ * 1つの配信スレッドがEvent Storeを位置順に読み進め、各イベントを1回だけJSONにして
+ * 全購読者のバッファに入れます。購読者が何千いてもEvent Storeを読むのは配信スレッドだけです。
+ * 購読者のバッファは容量が決まっており、溢れた購読者は追い出されます（FeedSubscription参照）。
+ *
+ * 途中から再開する購読者は、登録時点の配信済み位置（liveAfter）までをcatchUpでEvent Storeから読み、
+ * それより後をバッファから受け取ります。登録と配信は同じロックで行うため、境目でイベントが欠けたり重複したりしません。
+ * 追いつく間にバッファが溢れた場合は、溢れた分もcatchUpで読むため、追いついた直後に追い出されることはありません。
+ *
+ * メトリクス:
+ * - feed.subscribers : 現在の購読者数
+ * - feed.evictions   : バッファが溢れて追い出された購読者数
+ */
+@Component
+public class ChangeFeed {
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private final EventStore eventStore;
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final Set<FeedSubscription> subscribers = ConcurrentHashMap.newKeySet();
+    // 起こすためのシグナル。溜まっても1つで十分なので容量1
+    private final BlockingQueue<Boolean> signal = new ArrayBlockingQueue<>(1);
+    private final Counter evictions;
+    // 配信済みの最後の位置（subscribe/dispatchはthisのロックで読み書きする）
+    private long position;
+    private volatile boolean running;
+    private Thread thread;
+
+    public ChangeFeed(
+            EventStore eventStore,
+            @Value("${feed.buffer-size:256}") int bufferSize,
+            @Value("${feed.batch-size:500}") int batchSize,
+            @Value("${feed.poll-interval-ms:1000}") long pollIntervalMillis,
+            MeterRegistry meterRegistry) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("feed.buffer-size must be positive: " + bufferSize);
+        }
+        this.eventStore = eventStore;
+        this.objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.bufferSize = bufferSize;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.evictions = Counter.builder("feed.evictions")
+            .description("Subscribers disconnected because their buffer overflowed")
+            .register(meterRegistry);
+        Gauge.builder("feed.subscribers", subscribers, Set::size)
+            .description("Connected change feed subscribers")
+            .register(meterRegistry);
+    }
+
+    // スキーマの作成が終わってから読み始める。起動前のイベントは購読者がcatchUpで読む
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        position = eventStore.getLastPosition();
+        running = true;
+        thread = Thread.ofVirtual().name("change-feed").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread current = thread;
+        if (current != null) {
+            current.interrupt();
+            current.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    // イベントがコミットされたら配信スレッドを起こす（ポーリング間隔を待たずに配信するため）
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventCommitted(DomainEvent event) {
+        signal.offer(Boolean.TRUE);
+    }
+
+    /**
+     * 購読を始める
+     *
+     * 戻り値のliveAfterより後のイベントはバッファに届きます。
+     * それより前から読みたい場合は、先にcatchUpで読んでください。
+     * 起動が終わる前（配信スレッドが動く前）は、クライアントに再試行してもらうため503にします。
+     */
+    public synchronized FeedSubscription subscribe() {
+        if (!running) {
+            throw new ServiceUnavailableException("Change feed is not running yet");
+        }
+        FeedSubscription subscription = new FeedSubscription(this, position, bufferSize);
+        subscribers.add(subscription);
+        return subscription;
+    }
+
+    void unsubscribe(FeedSubscription subscription) {
+        subscribers.remove(subscription);
+    }
+
+    /**
+     * fromPositionより後、subscription.liveAfter()までのイベントをEvent Storeから読む
+     *
+     * 読んでいる間にバッファが溢れてliveAfterが進んだら、進んだ先まで続けて読みます。
+     * 最後まで読むと購読は追いついた状態になり、以降にバッファが溢れたら追い出されます。
+     */
+    public Stream<FeedEvent> catchUp(long fromPosition, FeedSubscription subscription) {
+        Iterator<FeedEvent> iterator = new Iterator<>() {
+            private long readUpTo = fromPosition;
+            private long until = subscription.liveAfter();
+            private Iterator<StoredEvent> pass = read(readUpTo, until);
+            private boolean finished;
+
+            @Override
+            public boolean hasNext() {
+                while (!pass.hasNext()) {
+                    if (finished || finishCatchUp(subscription, until)) {
+                        finished = true;
+                        return false;
+                    }
+                    readUpTo = Math.max(readUpTo, until);
+                    until = subscription.liveAfter();
+                    pass = read(readUpTo, until);
+                }
+                return true;
+            }
+
+            @Override
+            public FeedEvent next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                StoredEvent stored = pass.next();
+                readUpTo = stored.position();
+                return toFeedEvent(stored);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    private Iterator<StoredEvent> read(long fromPosition, long untilPosition) {
+        if (fromPosition >= untilPosition) {
+            return Collections.emptyIterator();
+        }
+        return eventStore.streamAll(fromPosition, batchSize)
+            .takeWhile(stored -> stored.position() <= untilPosition)
+            .iterator();
+    }
+
+    // 配信と同じロックで確認し、確認から追いついた状態にするまでの間に溢れないようにする
+    private synchronized boolean finishCatchUp(FeedSubscription subscription, long caughtUpTo) {
+        return subscription.finishCatchUp(caughtUpTo);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                List<StoredEvent> batch = eventStore.readAll(position, batchSize);
+                if (batch.isEmpty()) {
+                    signal.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                dispatch(batch.stream().map(this::toFeedEvent).toList());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // 配信済みの位置は進んでいないので、少し待って同じ位置から読み直す
+                log.warn("Change feed failed to read events after position {}", position, e);
+                try {
+                    Thread.sleep(pollIntervalMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // バッファへの追加はブロックしないため、ロック中に全購読者へ配っても遅い購読者に引きずられない
+    private synchronized void dispatch(List<FeedEvent> events) {
+        for (FeedSubscription subscription : subscribers) {
+            for (FeedEvent event : events) {
+                if (!subscription.offer(event)) {
+                    subscribers.remove(subscription);
+                    evictions.increment();
+                    break;
+                }
+            }
+        }
+        position = events.get(events.size() - 1).position();
+    }
+
+    private FeedEvent toFeedEvent(StoredEvent stored) {
+        DomainEvent event = stored.event();
+        try {
+            return new FeedEvent(stored.position(), event.getClass().getSimpleName(), objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize event", e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.demo.infrastructure.feed;
+
+/**
+ * 変更フィードで送るイベント（シリアライズ済み）
+ *
+ * @param position Event Store上の位置（SSEのidとして送り、再接続時のLast-Event-IDになる）
+ * @param type     イベントの種類（クラスの単純名）
+ * @param json     イベントのJSON
+ */
+public record FeedEvent(long position, String type, String json) {}
@@ -0,0 +1,77 @@
+package com.example.demo.infrastructure.feed;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 変更フィードの購読
+ *
+ * ChangeFeedが配信するイベントを、容量の決まったバッファで受け取ります。
+ * 読み手が遅れてバッファが溢れたら、それ以上は受け取らずに追い出された状態になります。
+ * ただしcatchUpを読み終えるまでは読み手がバッファを読まないため、溢れても追い出さず、
+ * バッファを空にしてliveAfterを進めます（捨てた分はcatchUpがEvent Storeから読みます）。
+ * 追い出された購読者は接続を閉じ、クライアントは最後に受け取った位置から再接続して
+ * Event Storeから追いつきます（イベントが失われることはありません）。
+ */
+public final class FeedSubscription implements AutoCloseable {
+    private final ChangeFeed feed;
+    private final BlockingQueue<FeedEvent> buffer;
+    // liveAfterとcatchingUpはChangeFeedのロックで書き換える
+    private volatile long liveAfter;
+    private boolean catchingUp = true;
+    private volatile boolean evicted;
+
+    FeedSubscription(ChangeFeed feed, long liveAfter, int bufferSize) {
+        this.feed = feed;
+        this.liveAfter = liveAfter;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    // この位置より後のイベントはバッファに届く。この位置までは追いつきで読む（追いつく間に溢れると進む）
+    public long liveAfter() {
+        return liveAfter;
+    }
+
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    // 次のイベントを待つ。タイムアウトしたらnullを返す
+    public FeedEvent poll(long timeoutMillis) throws InterruptedException {
+        return buffer.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        feed.unsubscribe(this);
+    }
+
+    // 配信スレッドから呼ばれる。追いついた後に溢れたらfalseを返し、以降は追い出された状態になる
+    boolean offer(FeedEvent event) {
+        if (evicted) {
+            return false;
+        }
+        if (buffer.offer(event)) {
+            return true;
+        }
+        if (catchingUp) {
+            // バッファのイベントはすべてこの位置以前なので、ここまでをEvent Storeから読んでもらう
+            buffer.clear();
+            liveAfter = event.position();
+            return true;
+        }
+        // バッファが満杯なので読み手はpollで待っておらず、次にisEvictedを確認した時点で終了する
+        evicted = true;
+        return false;
+    }
+
+    // ChangeFeedから呼ばれる。読み終えた位置からliveAfterが進んでいなければ、追いついた状態にする
+    boolean finishCatchUp(long caughtUpTo) {
+        if (liveAfter != caughtUpTo) {
+            return false;
+        }
+        catchingUp = false;
+        return true;
+    }
+}
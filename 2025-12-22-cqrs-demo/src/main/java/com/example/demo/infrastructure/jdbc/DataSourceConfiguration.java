@@ -0,0 +1,94 @@
+package com.example.demo.infrastructure.jdbc;
+
+import java.sql.Connection;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * 書き込み用と読み取り用に分けたSQLiteのコネクションプール
+ *
+ * SQLiteは同時に1つしか書き込めないため、書き込み用のプールは1接続にして、
+ * 書き込みの順番待ちをSQLITE_BUSYのリトライではなくプールの待ち行列で行います。
+ * 読み取り用のプールは複数の接続を持ち、journal_mode=WALで書き込み中も並行して読めます
+ * （PRAGMA query_only で書き込みを禁止しています）。
+ *
+ * JPA・JdbcTemplateが使うデータソースは、トランザクションが読み取り専用
+ * （@Transactional(readOnly = true)）なら読み取り用、それ以外は書き込み用に振り分けます。
+ * 振り分けは最初のSQLの実行時に行うため（LazyConnectionDataSourceProxy）、
+ * トランザクションの開始時点ではまだ接続を取得しません。
+ *
+ * datasource.reader.pool-size=0 なら分けずに、すべて書き込み用のプールを使います。
+ */
+@Configuration
+public class DataSourceConfiguration {
+    private enum Target { WRITER, READER }
+
+    @Bean
+    public HikariDataSource writerDataSource(
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.driver-class-name:org.sqlite.JDBC}") String driverClassName,
+            @Value("${datasource.writer.pool-size:1}") int poolSize) {
+        return pool("writer", url, driverClassName, poolSize, null);
+    }
+
+    @Bean
+    public HikariDataSource readerDataSource(
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.driver-class-name:org.sqlite.JDBC}") String driverClassName,
+            @Value("${datasource.reader.pool-size:4}") int poolSize) {
+        // 0のときもBeanは作るが、使われないので接続は張られない（プールは最初の接続の取得時に初期化される）
+        return pool("reader", url, driverClassName, Math.max(poolSize, 1), "PRAGMA query_only = 1");
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("writerDataSource") DataSource writer,
+            @Qualifier("readerDataSource") DataSource reader,
+            @Value("${datasource.reader.pool-size:4}") int readerPoolSize) {
+        if (readerPoolSize <= 0) {
+            return writer;
+        }
+        AbstractRoutingDataSource routing = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Target.READER : Target.WRITER;
+            }
+        };
+        routing.setTargetDataSources(Map.of(Target.WRITER, writer, Target.READER, reader));
+        routing.setDefaultTargetDataSource(writer);
+        routing.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routing);
+        // 既定値を確認するためだけに接続を取得しないよう、SQLiteの既定値を指定しておく
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        return proxy;
+    }
+
+    private static HikariDataSource pool(String name, String url, String driverClassName, int poolSize, String initSql) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("datasource." + name + ".pool-size must be positive: " + poolSize);
+        }
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setDriverClassName(driverClassName);
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(poolSize);
+        dataSource.setConnectionInitSql(initSql);
+        return dataSource;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.infrastructure.jdbc;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * ddl-auto=update では扱えない既存データ・スキーマの移行
+ *
+ * 起動のたびに実行しますが、移行済みなら何もしません。
+ * プロジェクションなどが読み始める前に終わるよう、ApplicationReadyEventの最初に実行します。
+ * ddl-auto=update で作れないテーブル（FTS5の仮想テーブルなど）もここで作ります。
+ */
+@Component
+public class SchemaMigration {
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigration.class);
+    // 集約IDを持つ列（テーブル, 列）
+    private static final List<String[]> AGGREGATE_ID_COLUMNS = List.of(
+        new String[] {"event_store", "aggregate_id"},
+        new String[] {"snapshot_store", "aggregate_id"},
+        new String[] {"todo_read_model", "id"});
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public SchemaMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrate() {
+        // (aggregate_id, version) の一意インデックスに置き換えた旧インデックス（ddl-auto=updateはインデックスを削除しない）
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_aggregate_id");
+        AGGREGATE_ID_COLUMNS.forEach(column -> convertTextIds(column[0], column[1]));
+        createSearchIndex();
+    }
+
+    /**
+     * 全文検索のテーブルを作る（FTS5の仮想テーブルはddl-auto=updateでは作れない）
+     *
+     * todo_searchのrowidがtodo_search_docのdoc_idに対応します。
+     * trigramトークナイザで、空白で区切らない日本語も部分一致で検索できるようにします。
+     */
+    private void createSearchIndex() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS todo_search_doc (doc_id INTEGER PRIMARY KEY, id BLOB NOT NULL UNIQUE)");
+        jdbcTemplate.execute("CREATE VIRTUAL TABLE IF NOT EXISTS todo_search USING fts5(title, description, tokenize = 'trigram')");
+    }
+
+    /**
+     * 36文字の文字列で保存された集約IDを16バイトのバイナリに変換する
+     *
+     * 以前の設定で作られたDBでは、IDがハイフン区切りの文字列で入っていることがあります。
+     * 文字列とバイナリが混在すると同じIDでも一致しないため、すべてバイナリにそろえます。
+     */
+    private void convertTextIds(String table, String column) {
+        Integer exists = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = ?", Integer.class, table);
+        if (exists == null || exists == 0) {
+            return;
+        }
+        List<String> ids = jdbcTemplate.queryForList(
+            "SELECT DISTINCT " + column + " FROM " + table + " WHERE typeof(" + column + ") = 'text'", String.class);
+        if (ids.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+            "UPDATE " + table + " SET " + column + " = ? WHERE " + column + " = ?",
+            ids,
+            1_000,
+            (ps, id) -> {
+                ps.setBytes(1, UuidBytes.toBytes(UUID.fromString(id)));
+                ps.setString(2, id);
+            }));
+        log.info("Converted {} text ids in {}.{} to 16-byte binary", ids.size(), table, column);
+    }
+}
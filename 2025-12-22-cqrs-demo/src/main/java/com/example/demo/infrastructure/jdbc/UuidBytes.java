@@ -0,0 +1,26 @@
+package com.example.demo.infrastructure.jdbc;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * UUIDと16バイトのバイナリの相互変換
+ *
+ * 集約IDの列は @JdbcTypeCode(SqlTypes.BINARY) で16バイトのBLOB（上位64bit → 下位64bitのビッグエンディアン）として保存します。
+ * JdbcTemplateで直接読み書きするときは、同じ形式にそろえるためにこのクラスを使います。
+ */
+public final class UuidBytes {
+    private UuidBytes() {}
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
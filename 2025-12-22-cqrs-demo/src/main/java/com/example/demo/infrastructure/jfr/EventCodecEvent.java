@@ -0,0 +1,34 @@
+package com.example.demo.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * イベント1件のシリアライズ/デシリアライズ。メトリクスのeventstore.serialize/deserializeに対応する
+ *
+ * イベントごとに発生して件数が多いため、デフォルトでは無効です。
+ * 記録するときは jcmd <pid> JFR.start settings=... で com.example.demo.EventCodec#enabled=true を指定してください。
+ */
+@Name("com.example.demo.EventCodec")
+@Label("Event Codec")
+@Category({"Demo", "CQRS"})
+@Description("Serialization or deserialization of one domain event")
+@Enabled(false)
+public class EventCodecEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Codec")
+    public String codec;
+
+    @Label("Event Type")
+    public String eventType;
+
+    @Label("Size")
+    @DataAmount
+    public int bytes;
+}
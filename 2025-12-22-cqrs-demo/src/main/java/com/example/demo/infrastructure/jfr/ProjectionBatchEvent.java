@@ -0,0 +1,22 @@
+package com.example.demo.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// プロジェクションの1バッチの適用（チェックポイントの保存まで）。メトリクスのprojection.batchに対応する
+@Name("com.example.demo.ProjectionBatch")
+@Label("Projection Batch")
+@Category({"Demo", "CQRS"})
+@Description("One batch of events applied by a projection, including its checkpoint")
+public class ProjectionBatchEvent extends jdk.jfr.Event {
+    @Label("Projection")
+    public String projection;
+
+    @Label("Events")
+    public int events;
+
+    @Label("Last Position")
+    public long lastPosition;
+}
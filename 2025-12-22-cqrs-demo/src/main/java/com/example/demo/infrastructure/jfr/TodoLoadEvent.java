@@ -0,0 +1,22 @@
+package com.example.demo.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Todo集約の復元（TodoRepository.load）。メトリクスのtodo.loadに対応する
+@Name("com.example.demo.TodoLoad")
+@Label("Todo Load")
+@Category({"Demo", "CQRS"})
+@Description("Rehydration of a Todo aggregate from cache, snapshot or full replay")
+public class TodoLoadEvent extends jdk.jfr.Event {
+    @Label("Aggregate Id")
+    public String aggregateId;
+
+    @Label("Source")
+    public String source;
+
+    @Label("Replayed Events")
+    public long replayedEvents;
+}
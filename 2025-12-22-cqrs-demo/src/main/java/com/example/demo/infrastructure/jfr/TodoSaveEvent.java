@@ -0,0 +1,25 @@
+package com.example.demo.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Todo集約のイベントの追記（TodoRepository.save/saveAll）。メトリクスのtodo.saveに対応する
+@Name("com.example.demo.TodoSave")
+@Label("Todo Save")
+@Category({"Demo", "CQRS"})
+@Description("Append of the uncommitted events of one or more Todo aggregates")
+public class TodoSaveEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Aggregates")
+    public int aggregates;
+
+    @Label("Events")
+    public int events;
+
+    @Label("Conflicts")
+    public int conflicts;
+}
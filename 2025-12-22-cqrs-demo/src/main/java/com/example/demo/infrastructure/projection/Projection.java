@@ -0,0 +1,24 @@
+package com.example.demo.infrastructure.projection;
+
+import java.util.List;
+
+import com.example.demo.domain.events.DomainEvent;
+
+// Event Storeのイベントを順に受け取り、Read Modelを更新するプロジェクション
+public interface Projection {
+    // チェックポイントの保存に使う、プロジェクションごとに一意な名前
+    String getName();
+
+    // 関係のないイベント型は無視すること
+    void handle(DomainEvent event);
+
+    /**
+     * 位置順に並んだイベントをまとめて適用する
+     *
+     * ProjectionRunnerは1トランザクション分のイベントをこのメソッドに渡します。
+     * 同じ集約への複数の変更を1回の書き込みにまとめたい場合はオーバーライドしてください。
+     */
+    default void handleBatch(List<DomainEvent> events) {
+        events.forEach(this::handle);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.infrastructure.projection;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "projection_checkpoint")
+public class ProjectionCheckpoint {
+    @Id
+    private String projectionName;
+
+    // 最後に適用したイベントのEvent Store上の位置
+    @Column(nullable = false)
+    private long position;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    protected ProjectionCheckpoint() {}
+
+    public ProjectionCheckpoint(String projectionName, long position, Instant updatedAt) {
+        this.projectionName = projectionName;
+        this.position = position;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getProjectionName() {
+        return projectionName;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
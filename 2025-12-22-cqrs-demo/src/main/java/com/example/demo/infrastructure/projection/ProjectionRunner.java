@@ -0,0 +1,266 @@
+package com.example.demo.infrastructure.projection;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.jfr.ProjectionBatchEvent;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * プロジェクションを非同期に実行するランナー
+ *
+ * コマンドのトランザクション内でRead Modelを更新する代わりに、プロジェクションごとの
+ * ワーカースレッドがEvent Storeを位置順に読み進めてRead Modelを更新します。
+ * 適用済みの位置はプロジェクションごとのチェックポイントとしてRead Modelと同じ
+ * トランザクションで保存するため、再起動後は続きから追いつきます。
+ *
+ * 遅延は次のメトリクスで確認できます（tag: projection）。
+ * - projection.lag.events : 未適用のイベント数（参照されたときにEvent Storeの最後の位置と比べる）
+ * - projection.lag.ms     : 最後に適用したイベントの発生から適用までの経過時間
+ * - projection.event.delay: イベントの発生から適用までの時間の分布
+ * - projection.batch      : 1バッチの適用（チェックポイントの保存とコミットまで）にかかった時間
+ * - projection.batch.events: 1バッチのイベント数
+ * バッチの適用はJFRイベント com.example.demo.ProjectionBatch としても記録します。
+ *
+ * projection.enabled=false で止められます（ベンチマークなどで書き込み側だけを測るとき用）。
+ */
+@Component
+@ConditionalOnProperty(name = "projection.enabled", havingValue = "true", matchIfMissing = true)
+public class ProjectionRunner {
+    private static final Logger log = LoggerFactory.getLogger(ProjectionRunner.class);
+
+    private final EventStore eventStore;
+    private final ProjectionCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final List<Worker> workers;
+
+    public ProjectionRunner(
+            List<Projection> projections,
+            EventStore eventStore,
+            ProjectionCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${projection.batch-size:500}") int batchSize,
+            @Value("${projection.poll-interval-ms:1000}") long pollIntervalMillis,
+            MeterRegistry meterRegistry) {
+        this.eventStore = eventStore;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.workers = projections.stream()
+            .map(projection -> new Worker(projection, meterRegistry))
+            .toList();
+    }
+
+    // スキーマの作成が終わってから読み始める
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        workers.forEach(Worker::start);
+    }
+
+    // 終了時は待ちすぎないよう、ワーカーごとに最大5秒だけ待つ（ワーカーはデーモンスレッド）
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Worker worker : workers) {
+            if (!worker.stop(TimeUnit.SECONDS.toMillis(5))) {
+                log.warn("Projection {} did not stop within 5 seconds", worker.projection.getName());
+            }
+        }
+    }
+
+    /**
+     * 指定したプロジェクションのワーカーを止める
+     *
+     * 再構築などでRead Modelとチェックポイントを外から書き換える間に使います。
+     * 処理中のバッチがあれば、それがコミットかロールバックされてスレッドが終了するまで
+     * （書き込み用の接続の順番待ちなどで時間がかかっても）待ってから戻ります。
+     * そのため戻った後に、止めたワーカーがRead Modelやチェックポイントを書き込むことはありません。
+     */
+    public void pause(String projectionName) throws InterruptedException {
+        findWorker(projectionName).stop(0);
+    }
+
+    // 止めていたワーカーを再開する。チェックポイントは保存済みの値から読み直す
+    public void resume(String projectionName) {
+        findWorker(projectionName).start();
+    }
+
+    private Worker findWorker(String projectionName) {
+        return workers.stream()
+            .filter(worker -> worker.projection.getName().equals(projectionName))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown projection: " + projectionName));
+    }
+
+    // イベントがコミットされたらワーカーを起こす（ポーリング間隔を待たずに追従するため）
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventCommitted(DomainEvent event) {
+        workers.forEach(Worker::wakeUp);
+    }
+
+    private long loadCheckpoint(String projectionName) {
+        return checkpointRepository.findById(projectionName)
+            .map(ProjectionCheckpoint::getPosition)
+            .orElse(0L);
+    }
+
+    private void saveCheckpoint(String projectionName, long position) {
+        ProjectionCheckpoint checkpoint = checkpointRepository.findById(projectionName)
+            .orElseGet(() -> new ProjectionCheckpoint(projectionName, position, Instant.now()));
+        checkpoint.setPosition(position);
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    private final class Worker implements Runnable {
+        private final Projection projection;
+        // 起こすためのシグナル。溜まっても1つで十分なので容量1
+        private final BlockingQueue<Boolean> signal = new ArrayBlockingQueue<>(1);
+        // 適用済みの位置。未適用のイベント数は、ゲージが参照されたときにこの位置から計算する
+        private final AtomicLong appliedPosition = new AtomicLong();
+        private final AtomicLong lagMillis = new AtomicLong();
+        private final Timer eventDelay;
+        private final Timer batchTimer;
+        private final DistributionSummary batchEvents;
+        private volatile boolean running;
+        private volatile Thread thread;
+
+        Worker(Projection projection, MeterRegistry meterRegistry) {
+            this.projection = projection;
+            Gauge.builder("projection.lag.events", appliedPosition,
+                    applied -> Math.max(0, eventStore.getLastPosition() - applied.get()))
+                .description("Events appended but not yet applied by the projection")
+                .tag("projection", projection.getName())
+                .register(meterRegistry);
+            Gauge.builder("projection.lag.ms", lagMillis, AtomicLong::get)
+                .description("Age of the last applied event when it was applied")
+                .tag("projection", projection.getName())
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+            this.eventDelay = Timer.builder("projection.event.delay")
+                .description("Time from event occurrence until the projection applied it")
+                .tag("projection", projection.getName())
+                .register(meterRegistry);
+            this.batchTimer = Timer.builder("projection.batch")
+                .description("Time to apply one batch of events and commit its checkpoint")
+                .tag("projection", projection.getName())
+                .register(meterRegistry);
+            this.batchEvents = DistributionSummary.builder("projection.batch.events")
+                .description("Number of events in one projection batch")
+                .tag("projection", projection.getName())
+                .register(meterRegistry);
+        }
+
+        synchronized void start() {
+            if (running) {
+                return;
+            }
+            running = true;
+            thread = new Thread(this, "projection-" + projection.getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        // スレッドの終了を待つ（timeoutMillisが0なら終了するまで）。時間内に終了しなければfalseを返す
+        synchronized boolean stop(long timeoutMillis) throws InterruptedException {
+            running = false;
+            if (thread == null) {
+                return true;
+            }
+            thread.interrupt();
+            thread.join(timeoutMillis);
+            if (thread.isAlive()) {
+                return false;
+            }
+            thread = null;
+            return true;
+        }
+
+        void wakeUp() {
+            signal.offer(Boolean.TRUE);
+        }
+
+        @Override
+        public void run() {
+            String name = projection.getName();
+            long position = loadCheckpoint(name);
+            appliedPosition.set(position);
+            log.info("Projection {} started from position {}", name, position);
+            // 停止後に再開された場合、古いスレッドは新しいスレッドに処理を譲って終了する
+            while (running && thread == Thread.currentThread()) {
+                try {
+                    List<StoredEvent> batch = eventStore.readAll(position, batchSize);
+                    if (batch.isEmpty()) {
+                        lagMillis.set(0);
+                        signal.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                        continue;
+                    }
+
+                    long lastPosition = batch.get(batch.size() - 1).position();
+                    ProjectionBatchEvent jfrEvent = new ProjectionBatchEvent();
+                    jfrEvent.begin();
+                    long start = System.nanoTime();
+                    transactionTemplate.executeWithoutResult(status -> {
+                        projection.handleBatch(batch.stream().map(StoredEvent::event).toList());
+                        saveCheckpoint(name, lastPosition);
+                    });
+                    batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    batchEvents.record(batch.size());
+                    if (jfrEvent.shouldCommit()) {
+                        jfrEvent.projection = name;
+                        jfrEvent.events = batch.size();
+                        jfrEvent.lastPosition = lastPosition;
+                        jfrEvent.commit();
+                    }
+                    position = lastPosition;
+                    appliedPosition.set(position);
+
+                    Instant appliedAt = Instant.now();
+                    for (StoredEvent stored : batch) {
+                        eventDelay.record(Duration.between(stored.event().getOccurredAt(), appliedAt));
+                    }
+                    DomainEvent last = batch.get(batch.size() - 1).event();
+                    lagMillis.set(Duration.between(last.getOccurredAt(), appliedAt).toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    // チェックポイントはコミットされた分しか進んでいないので、少し待って同じ位置から再試行する
+                    log.error("Projection {} failed after position {}", name, position, e);
+                    try {
+                        Thread.sleep(pollIntervalMillis);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
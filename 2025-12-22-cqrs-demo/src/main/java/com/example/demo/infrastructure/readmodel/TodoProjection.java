@@ -1,67 +1,120 @@
 package com.example.demo.infrastructure.readmodel;
 
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
-import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import com.example.demo.domain.events.TodoCompletedEvent;
-import com.example.demo.domain.events.TodoCreatedEvent;
-import com.example.demo.domain.events.TodoDeletedEvent;
-import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.infrastructure.cache.TodoResponseCache;
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+import com.example.demo.infrastructure.projection.Projection;
 
+/**
+ * ProjectionRunnerからEvent Storeの順にイベントを受け取り、todo_read_modelを更新する
+ *
+ * イベントごとにfindById → saveするのではなく、バッチ内のイベントを集約ごとの最終的な変更に
+ * まとめてから、UPSERT/UPDATEのバッチ実行で書き込みます。
+ * 同じ集約に何度も変更が入るバーストやリプレイでも、書き込みは集約ごとに1行で済みます。
+ * 書き込みがコミットされたら、変更した集約のレスポンスキャッシュを破棄します。
+ */
 @Component
-public class TodoProjection {
-    private final TodoReadModelRepository repository;
+public class TodoProjection implements Projection {
+    // 作成イベントを含む集約は全項目が確定しているので、行ごと書き込む
+    private static final String UPSERT = """
+        INSERT INTO todo_read_model (id, title, description, completed, deleted, version) VALUES (?, ?, ?, ?, ?, ?)
+        ON CONFLICT (id) DO UPDATE SET
+            title = excluded.title,
+            description = excluded.description,
+            completed = excluded.completed,
+            deleted = excluded.deleted,
+            version = excluded.version
+        """;
+    // 既存の行への差分。nullの項目は変更せず、completed/deletedは一度trueになったら戻らない
+    private static final String UPDATE = """
+        UPDATE todo_read_model SET
+            title = COALESCE(?, title),
+            description = COALESCE(?, description),
+            completed = (completed OR ?),
+            deleted = (deleted OR ?),
+            version = MAX(version, ?)
+        WHERE id = ?
+        """;
+    private static final int JDBC_BATCH_SIZE = 500;
 
-    public TodoProjection(TodoReadModelRepository repository) {
-        this.repository = repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TodoResponseCache responseCache;
+
+    public TodoProjection(JdbcTemplate jdbcTemplate, TodoResponseCache responseCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.responseCache = responseCache;
     }
 
-    @EventListener
-    public void handle(TodoCreatedEvent event) {
-        TodoReadModel readModel = new TodoReadModel(
-            event.getAggregateId(),
-            event.getTitle(),
-            event.getDescription(),
-            false, // completed
-            false  // deleted
-        );
-        repository.save(readModel);
+    @Override
+    public String getName() {
+        return "todo_read_model";
     }
 
-    @EventListener
-    public void handle(TodoCompletedEvent event) {
-        UUID aggregateId = event.getAggregateId();
-        Optional<TodoReadModel> optional = repository.findById(aggregateId);
-        if (optional.isPresent()) {
-            TodoReadModel readModel = optional.get();
-            readModel.setCompleted(true);
-            repository.save(readModel);
-        }
+    @Override
+    public void handle(DomainEvent event) {
+        handleBatch(List.of(event));
     }
 
-    @EventListener
-    public void handle(TodoDeletedEvent event) {
-        UUID aggregateId = event.getAggregateId();
-        Optional<TodoReadModel> optional = repository.findById(aggregateId);
-        if (optional.isPresent()) {
-            TodoReadModel readModel = optional.get();
-            readModel.setDeleted(true);
-            repository.save(readModel);
+    @Override
+    public void handleBatch(List<DomainEvent> events) {
+        Map<UUID, TodoReadModelChange> changes = new LinkedHashMap<>();
+        events.forEach(event -> TodoReadModelChange.fold(changes, event));
+
+        List<TodoReadModelChange> created = changes.values().stream()
+            .filter(change -> change.created)
+            .toList();
+        List<TodoReadModelChange> updated = changes.values().stream()
+            .filter(change -> !change.created)
+            .toList();
+
+        if (!created.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, created, JDBC_BATCH_SIZE, (ps, change) -> {
+                ps.setBytes(1, UuidBytes.toBytes(change.id));
+                ps.setString(2, change.title);
+                ps.setString(3, change.description);
+                ps.setBoolean(4, change.completed);
+                ps.setBoolean(5, change.deleted);
+                ps.setLong(6, change.version);
+            });
+        }
+        if (!updated.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE, updated, JDBC_BATCH_SIZE, (ps, change) -> {
+                ps.setString(1, change.title);
+                ps.setString(2, change.description);
+                ps.setBoolean(3, change.completed);
+                ps.setBoolean(4, change.deleted);
+                ps.setLong(5, change.version);
+                ps.setBytes(6, UuidBytes.toBytes(change.id));
+            });
         }
+        invalidateAfterCommit(changes.keySet());
     }
 
-    @EventListener
-    public void handle(TodoUpdateEvent event) {
-        UUID aggregateId = event.getAggregateId();
-        Optional<TodoReadModel> optional = repository.findById(aggregateId);
-        if (optional.isPresent()) {
-            TodoReadModel readModel = optional.get();
-            readModel.setTitle(event.getTitle());
-            readModel.setDescription(event.getDescription());
-            repository.save(readModel);
+    // コミット前に破棄すると、その間に古い行を読んだ参照がキャッシュに入ってしまう
+    private void invalidateAfterCommit(Set<UUID> todoIds) {
+        if (todoIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            responseCache.invalidate(todoIds);
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                responseCache.invalidate(todoIds);
+            }
+        });
     }
 }
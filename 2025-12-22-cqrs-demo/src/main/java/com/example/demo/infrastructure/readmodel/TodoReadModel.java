@@ -2,12 +2,18 @@ package com.example.demo.infrastructure.readmodel;
 
 import java.util.UUID;
 
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
 import jakarta.persistence.*;
 
 @Entity
 @Table(name = "todo_read_model")
 public class TodoReadModel {
+    // 集約IDは16バイトのバイナリで保存する
     @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
     private UUID id;
 
     @Column(nullable = false)
@@ -22,14 +28,19 @@ public class TodoReadModel {
     @Column(nullable = false)
     private boolean deleted;
 
+    // 最後に反映したイベントの集約バージョン（ETagに使う）。既存の行に列を追加できるようデフォルト値を付ける
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private long version;
+
     protected TodoReadModel() {}
 
-    public TodoReadModel(UUID id, String title, String description, boolean completed, boolean deleted) {
+    public TodoReadModel(UUID id, String title, String description, boolean completed, boolean deleted, long version) {
         this.id = id;
         this.title = title;
         this.description = description;
         this.completed = completed;
         this.deleted = deleted;
+        this.version = version;
     }
 
     public UUID getId() {
@@ -71,4 +82,12 @@ public class TodoReadModel {
     public void setDeleted(boolean deleted) {
         this.deleted = deleted;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
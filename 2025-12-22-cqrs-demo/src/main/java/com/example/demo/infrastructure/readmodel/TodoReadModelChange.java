@@ -0,0 +1,60 @@
+package com.example.demo.infrastructure.readmodel;
+
+import java.util.Map;
+import java.util.UUID;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCompletedEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoDeletedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+
+/**
+ * 1つの集約に対するtodo_read_modelの変更を、複数のイベント分まとめたもの
+ *
+ * createdがtrueなら行の全項目が確定しているのでUPSERTで書き込めます。
+ * falseの場合は既存の行への差分で、title/descriptionはnullなら変更なし、
+ * completed/deletedはtrueになったときだけ反映します。
+ * versionは畳み込んだイベントのうち最大の集約バージョンです。
+ */
+final class TodoReadModelChange {
+    final UUID id;
+    boolean created;
+    String title;
+    String description;
+    boolean completed;
+    boolean deleted;
+    long version;
+
+    private TodoReadModelChange(UUID id) {
+        this.id = id;
+    }
+
+    // TodoProjectionと同じ規則で、イベントを集約ごとの変更に畳み込む
+    static void fold(Map<UUID, TodoReadModelChange> changes, DomainEvent event) {
+        switch (event) {
+            case TodoCreatedEvent e -> {
+                TodoReadModelChange change = new TodoReadModelChange(e.getAggregateId());
+                change.created = true;
+                change.title = e.getTitle();
+                change.description = e.getDescription();
+                changes.put(e.getAggregateId(), change);
+            }
+            case TodoCompletedEvent e -> changes.computeIfAbsent(e.getAggregateId(), TodoReadModelChange::new)
+                .completed = true;
+            case TodoDeletedEvent e -> changes.computeIfAbsent(e.getAggregateId(), TodoReadModelChange::new)
+                .deleted = true;
+            case TodoUpdateEvent e -> {
+                TodoReadModelChange change = changes.computeIfAbsent(e.getAggregateId(), TodoReadModelChange::new);
+                change.title = e.getTitle();
+                change.description = e.getDescription();
+            }
+            default -> {
+                // 関係のないイベントは無視する
+                return;
+            }
+        }
+        TodoReadModelChange change = changes.get(event.getAggregateId());
+        change.version = Math.max(change.version, event.getVersion());
+    }
+}
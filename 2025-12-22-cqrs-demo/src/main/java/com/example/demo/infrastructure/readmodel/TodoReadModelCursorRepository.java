@@ -0,0 +1,9 @@
+package com.example.demo.infrastructure.readmodel;
+
+import java.util.function.Consumer;
+
+// 件数に関係なく一定のメモリで読み出すための、DBカーソルを使った読み出し
+public interface TodoReadModelCursorRepository {
+    // 削除されていないTodoをID順に1行ずつconsumerに渡す（全件をリストに載せない）
+    void forEachNotDeleted(Consumer<TodoReadModel> consumer);
+}
@@ -0,0 +1,36 @@
+package com.example.demo.infrastructure.readmodel;
+
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+
+// Spring Dataのカスタムフラグメント実装（TodoReadModelRepositoryに合成される）
+class TodoReadModelCursorRepositoryImpl implements TodoReadModelCursorRepository {
+    private static final int FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    TodoReadModelCursorRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    @Override
+    public void forEachNotDeleted(Consumer<TodoReadModel> consumer) {
+        jdbcTemplate.query(
+            "SELECT id, title, description, completed, deleted, version FROM todo_read_model WHERE deleted = 0 ORDER BY id",
+            rs -> {
+                consumer.accept(new TodoReadModel(
+                    UuidBytes.fromBytes(rs.getBytes("id")),
+                    rs.getString("title"),
+                    rs.getString("description"),
+                    rs.getBoolean("completed"),
+                    rs.getBoolean("deleted"),
+                    rs.getLong("version")));
+            });
+    }
+}
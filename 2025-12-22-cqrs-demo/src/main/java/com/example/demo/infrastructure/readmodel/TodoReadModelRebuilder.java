@@ -0,0 +1,247 @@
+package com.example.demo.infrastructure.readmodel;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.exceptions.ConflictException;
+import com.example.demo.infrastructure.cache.TodoResponseCache;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+import com.example.demo.infrastructure.projection.ProjectionCheckpoint;
+import com.example.demo.infrastructure.projection.ProjectionCheckpointRepository;
+import com.example.demo.infrastructure.projection.ProjectionRunner;
+
+/**
+ * todo_read_modelをEvent Storeから並列に再構築する
+ *
+ * 1. ProjectionRunnerの該当ワーカーを止め、現在の末尾位置までのイベントを1回だけ読み出す
+ * 2. 集約IDのハッシュでイベントをパーティションに振り分け、パーティションごとに仮想スレッドで畳み込む
+ * 3. 結果をシャドウテーブル（todo_read_model_rebuild）にバッチINSERTする
+ * 4. 1トランザクションで元のテーブルと入れ替え、チェックポイントを末尾位置に進める
+ *
+ * SQLiteのDDLはトランザクションに含められるため、読み手からは入れ替え前後のどちらかしか見えません。
+ * 進捗はログに、所要時間とスループットは戻り値のレポートに出力します。
+ */
+@Component
+public class TodoReadModelRebuilder {
+    private static final Logger log = LoggerFactory.getLogger(TodoReadModelRebuilder.class);
+    private static final String TABLE = "todo_read_model";
+    private static final String SHADOW_TABLE = "todo_read_model_rebuild";
+    private static final int CHUNK_SIZE = 256;
+    private static final long PROGRESS_INTERVAL = 100_000;
+
+    private final EventStore eventStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProjectionCheckpointRepository checkpointRepository;
+    private final Optional<ProjectionRunner> projectionRunner;
+    private final TodoResponseCache responseCache;
+    private final int parallelism;
+    private final int readBatchSize;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public TodoReadModelRebuilder(
+            EventStore eventStore,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ProjectionCheckpointRepository checkpointRepository,
+            Optional<ProjectionRunner> projectionRunner,
+            TodoResponseCache responseCache,
+            @Value("${projection.rebuild.parallelism:0}") int parallelism,
+            @Value("${projection.rebuild.read-batch-size:5000}") int readBatchSize) {
+        this.eventStore = eventStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.projectionRunner = projectionRunner;
+        this.responseCache = responseCache;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.readBatchSize = readBatchSize;
+    }
+
+    public RebuildReport rebuild() throws InterruptedException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new ConflictException("Rebuild of " + TABLE + " is already running");
+        }
+        boolean paused = false;
+        try {
+            if (projectionRunner.isPresent()) {
+                projectionRunner.get().pause(TABLE);
+                paused = true;
+            }
+            Instant start = Instant.now();
+            long lastPosition = eventStore.getLastPosition();
+            log.info("Rebuilding {} from {} events with {} partitions", TABLE, lastPosition, parallelism);
+
+            FoldResult folded = fold(lastPosition);
+            Duration foldTime = Duration.between(start, Instant.now());
+            int rows = writeShadowTable(folded.partitions());
+            swap(lastPosition);
+            responseCache.invalidateAll();
+
+            Duration elapsed = Duration.between(start, Instant.now());
+            RebuildReport report = new RebuildReport(
+                folded.events(), rows, lastPosition, foldTime.toMillis(), elapsed.toMillis(),
+                folded.events() / Math.max(elapsed.toNanos() / 1_000_000_000.0, 1e-9));
+            log.info("Rebuilt {}: {}", TABLE, report);
+            return report;
+        } finally {
+            if (paused) {
+                projectionRunner.get().resume(TABLE);
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 末尾位置までのイベントを読み出し、集約IDでパーティションに振り分けて並列に畳み込む
+     *
+     * 読み出しは1スレッドで位置順に行うため、各パーティション内でも集約ごとのイベント順は保たれます。
+     */
+    private FoldResult fold(long lastPosition) throws InterruptedException {
+        List<BlockingQueue<List<DomainEvent>>> queues = new ArrayList<>(parallelism);
+        List<Map<UUID, TodoReadModelChange>> partitions = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            queues.add(new ArrayBlockingQueue<>(64));
+            partitions.add(new HashMap<>());
+        }
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Future<?>> folders = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                BlockingQueue<List<DomainEvent>> queue = queues.get(i);
+                Map<UUID, TodoReadModelChange> rows = partitions.get(i);
+                folders.add(executor.submit(() -> {
+                    // 空のチャンクが終端の合図
+                    for (List<DomainEvent> chunk = queue.take(); !chunk.isEmpty(); chunk = queue.take()) {
+                        chunk.forEach(event -> TodoReadModelChange.fold(rows, event));
+                    }
+                    return null;
+                }));
+            }
+
+            long events = 0;
+            Instant start = Instant.now();
+            List<List<DomainEvent>> chunks = new ArrayList<>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                chunks.add(new ArrayList<>(CHUNK_SIZE));
+            }
+            Iterator<DomainEvent> iterator = eventStore.streamAll(0, readBatchSize)
+                .takeWhile(stored -> stored.position() <= lastPosition)
+                .map(StoredEvent::event)
+                .iterator();
+            while (iterator.hasNext()) {
+                DomainEvent event = iterator.next();
+                int partition = Math.floorMod(event.getAggregateId().hashCode(), parallelism);
+                List<DomainEvent> chunk = chunks.get(partition);
+                chunk.add(event);
+                if (chunk.size() == CHUNK_SIZE) {
+                    queues.get(partition).put(chunk);
+                    chunks.set(partition, new ArrayList<>(CHUNK_SIZE));
+                }
+                if (++events % PROGRESS_INTERVAL == 0) {
+                    double seconds = Duration.between(start, Instant.now()).toMillis() / 1000.0;
+                    log.info("Rebuilding {}: {}/{} events ({} events/sec)",
+                        TABLE, events, lastPosition, Math.round(events / Math.max(seconds, 0.001)));
+                }
+            }
+            for (int i = 0; i < parallelism; i++) {
+                if (!chunks.get(i).isEmpty()) {
+                    queues.get(i).put(chunks.get(i));
+                }
+                queues.get(i).put(List.of());
+            }
+
+            for (Future<?> folder : folders) {
+                folder.get();
+            }
+            return new FoldResult(events, partitions);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to fold events for " + TABLE, e.getCause());
+        } finally {
+            // 読み出しが途中で失敗した場合に、キューを待ち続けるスレッドを残さない
+            executor.shutdownNow();
+        }
+    }
+
+    private int writeShadowTable(List<Map<UUID, TodoReadModelChange>> partitions) {
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE);
+            // 元のテーブルと同じ定義でシャドウテーブルを作る
+            String ddl = jdbcTemplate.queryForObject(
+                "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?", String.class, TABLE);
+            jdbcTemplate.execute(ddl.replaceFirst("(?i)CREATE TABLE\\s+\"?" + TABLE + "\"?", "CREATE TABLE " + SHADOW_TABLE));
+
+            int rows = 0;
+            for (Map<UUID, TodoReadModelChange> partition : partitions) {
+                // 作成イベントのない集約（通常は存在しない）は、TodoProjectionと同様に行を作らない
+                List<TodoReadModelChange> created = partition.values().stream()
+                    .filter(change -> change.created)
+                    .toList();
+                jdbcTemplate.batchUpdate(
+                    "INSERT INTO " + SHADOW_TABLE + " (id, title, description, completed, deleted, version) VALUES (?, ?, ?, ?, ?, ?)",
+                    created,
+                    1_000,
+                    (ps, change) -> {
+                        ps.setBytes(1, UuidBytes.toBytes(change.id));
+                        ps.setString(2, change.title);
+                        ps.setString(3, change.description);
+                        ps.setBoolean(4, change.completed);
+                        ps.setBoolean(5, change.deleted);
+                        ps.setLong(6, change.version);
+                    });
+                rows += created.size();
+            }
+            return rows;
+        });
+    }
+
+    private void swap(long lastPosition) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT sql FROM sqlite_master WHERE type = 'index' AND tbl_name = ? AND sql IS NOT NULL",
+                String.class, TABLE);
+            jdbcTemplate.execute("DROP TABLE " + TABLE);
+            jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE + " RENAME TO " + TABLE);
+            // DROP TABLEで消えたインデックスを入れ替え後のテーブルに作り直す
+            indexes.forEach(jdbcTemplate::execute);
+            checkpointRepository.save(new ProjectionCheckpoint(TABLE, lastPosition, Instant.now()));
+        });
+    }
+
+    public record RebuildReport(
+        long events,
+        int rows,
+        long lastPosition,
+        long foldMillis,
+        long elapsedMillis,
+        double eventsPerSecond
+    ) {}
+
+    private record FoldResult(long events, List<Map<UUID, TodoReadModelChange>> partitions) {}
+}
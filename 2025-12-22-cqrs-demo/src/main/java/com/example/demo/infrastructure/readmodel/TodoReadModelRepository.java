@@ -1,12 +1,24 @@
 package com.example.demo.infrastructure.readmodel;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface TodoReadModelRepository extends JpaRepository<TodoReadModel, UUID> {
-    List<TodoReadModel> findByDeletedFalse();
+public interface TodoReadModelRepository extends JpaRepository<TodoReadModel, UUID>, TodoReadModelCursorRepository {
+    // キーセットページング: 先頭ページ
+    List<TodoReadModel> findByDeletedFalseOrderByIdAsc(Limit limit);
+
+    // キーセットページング: cursor（前ページの最後のID）より後のページ
+    List<TodoReadModel> findByDeletedFalseAndIdGreaterThanOrderByIdAsc(UUID cursor, Limit limit);
+
+    // 削除されていないTodoのバージョンだけを読む（ETagの確認用。行全体は読まない）
+    @Query("SELECT t.version FROM TodoReadModel t WHERE t.id = :id AND t.deleted = false")
+    Optional<Long> findVersionById(@Param("id") UUID id);
 }
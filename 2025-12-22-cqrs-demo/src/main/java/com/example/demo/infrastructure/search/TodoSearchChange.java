@@ -0,0 +1,53 @@
+package com.example.demo.infrastructure.search;
+
+import java.util.Map;
+import java.util.UUID;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoDeletedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+
+/**
+ * 1つの集約に対する検索インデックスの変更を、複数のイベント分まとめたもの
+ *
+ * createdがtrueならtitle/descriptionが確定しています。falseの場合は既存の文書への差分で、
+ * nullの項目は変更しません（todo_read_modelと同じ規則）。deletedなら文書を取り除きます。
+ */
+final class TodoSearchChange {
+    final UUID id;
+    boolean created;
+    boolean deleted;
+    String title;
+    String description;
+
+    private TodoSearchChange(UUID id) {
+        this.id = id;
+    }
+
+    static void fold(Map<UUID, TodoSearchChange> changes, DomainEvent event) {
+        switch (event) {
+            case TodoCreatedEvent e -> {
+                TodoSearchChange change = new TodoSearchChange(e.getAggregateId());
+                change.created = true;
+                change.title = e.getTitle();
+                change.description = e.getDescription();
+                changes.put(e.getAggregateId(), change);
+            }
+            case TodoUpdateEvent e -> {
+                TodoSearchChange change = changes.computeIfAbsent(e.getAggregateId(), TodoSearchChange::new);
+                if (e.getTitle() != null) {
+                    change.title = e.getTitle();
+                }
+                if (e.getDescription() != null) {
+                    change.description = e.getDescription();
+                }
+            }
+            case TodoDeletedEvent e -> changes.computeIfAbsent(e.getAggregateId(), TodoSearchChange::new)
+                .deleted = true;
+            default -> {
+                // 完了など、検索対象の文字列が変わらないイベントは無視する
+            }
+        }
+    }
+}
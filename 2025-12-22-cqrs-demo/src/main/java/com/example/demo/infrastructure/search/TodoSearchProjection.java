@@ -0,0 +1,143 @@
+package com.example.demo.infrastructure.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+import com.example.demo.infrastructure.projection.Projection;
+
+/**
+ * ProjectionRunnerからイベントを受け取り、Todoの全文検索インデックス（FTS5）を更新する
+ *
+ * FTS5の仮想テーブル（todo_search）はrowidでしか効率よく引けないため、集約IDとrowidの対応を
+ * todo_search_docに持ちます（テーブルはSchemaMigrationで作成）。
+ * バッチ内のイベントを集約ごとの最終的な変更にまとめ、文書ごとに1回だけ書き換えます。
+ */
+@Component
+public class TodoSearchProjection implements Projection {
+    // IN句1回あたりの集約ID数（SQLiteのバインド変数の上限より十分小さくする）
+    private static final int IN_CLAUSE_SIZE = 500;
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TodoSearchProjection(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String getName() {
+        return "todo_search";
+    }
+
+    @Override
+    public void handle(DomainEvent event) {
+        handleBatch(List.of(event));
+    }
+
+    @Override
+    public void handleBatch(List<DomainEvent> events) {
+        Map<UUID, TodoSearchChange> changes = new LinkedHashMap<>();
+        events.forEach(event -> TodoSearchChange.fold(changes, event));
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // 作成された集約の文書IDを採番してから、全集約の文書IDをまとめて読む
+        List<TodoSearchChange> created = changes.values().stream()
+            .filter(change -> change.created && !change.deleted)
+            .toList();
+        jdbcTemplate.batchUpdate("INSERT OR IGNORE INTO todo_search_doc (id) VALUES (?)", created, JDBC_BATCH_SIZE,
+            (ps, change) -> ps.setBytes(1, UuidBytes.toBytes(change.id)));
+        Map<UUID, Long> docIds = findDocIds(changes.keySet());
+
+        List<Document> documents = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        Map<Long, TodoSearchChange> partial = new HashMap<>();
+        for (TodoSearchChange change : changes.values()) {
+            Long docId = docIds.get(change.id);
+            if (docId == null) {
+                // 作成イベントより前の変更（通常は起きない）。文書がないので何もしない
+                continue;
+            }
+            if (change.deleted) {
+                removed.add(docId);
+            } else if (change.created) {
+                documents.add(new Document(docId, change.title, change.description));
+            } else {
+                partial.put(docId, change);
+            }
+        }
+        documents.addAll(merge(partial));
+
+        List<Long> replaced = new ArrayList<>(removed);
+        documents.forEach(document -> replaced.add(document.docId()));
+        jdbcTemplate.batchUpdate("DELETE FROM todo_search WHERE rowid = ?", replaced, JDBC_BATCH_SIZE,
+            (ps, docId) -> ps.setLong(1, docId));
+        jdbcTemplate.batchUpdate("DELETE FROM todo_search_doc WHERE doc_id = ?", removed, JDBC_BATCH_SIZE,
+            (ps, docId) -> ps.setLong(1, docId));
+        jdbcTemplate.batchUpdate("INSERT INTO todo_search (rowid, title, description) VALUES (?, ?, ?)", documents, JDBC_BATCH_SIZE,
+            (ps, document) -> {
+                ps.setLong(1, document.docId());
+                ps.setString(2, document.title());
+                ps.setString(3, document.description());
+            });
+    }
+
+    private Map<UUID, Long> findDocIds(Collection<UUID> ids) {
+        Map<UUID, Long> docIds = new HashMap<>();
+        for (List<UUID> chunk : chunks(ids)) {
+            jdbcTemplate.query(
+                "SELECT doc_id, id FROM todo_search_doc WHERE id IN (" + placeholders(chunk.size()) + ")",
+                rs -> {
+                    docIds.put(UuidBytes.fromBytes(rs.getBytes("id")), rs.getLong("doc_id"));
+                },
+                chunk.stream().map(UuidBytes::toBytes).toArray());
+        }
+        return docIds;
+    }
+
+    // 差分だけの変更に、インデックスにある現在のtitle/descriptionを補う
+    private List<Document> merge(Map<Long, TodoSearchChange> partial) {
+        List<Document> documents = new ArrayList<>(partial.size());
+        for (List<Long> chunk : chunks(partial.keySet())) {
+            jdbcTemplate.query(
+                "SELECT rowid, title, description FROM todo_search WHERE rowid IN (" + placeholders(chunk.size()) + ")",
+                rs -> {
+                    long docId = rs.getLong("rowid");
+                    TodoSearchChange change = partial.get(docId);
+                    documents.add(new Document(
+                        docId,
+                        change.title != null ? change.title : rs.getString("title"),
+                        change.description != null ? change.description : rs.getString("description")));
+                },
+                chunk.toArray());
+        }
+        return documents;
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> values) {
+        List<T> all = new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CLAUSE_SIZE) {
+            chunks.add(all.subList(from, Math.min(from + IN_CLAUSE_SIZE, all.size())));
+        }
+        return chunks;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private record Document(long docId, String title, String description) {}
+}
@@ -0,0 +1,70 @@
+package com.example.demo.infrastructure.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+
+/**
+ * Todoの全文検索（TodoSearchProjectionが更新するFTS5のインデックスを引く）
+ *
+ * トークナイザはtrigramなので、空白で区切らない日本語でも部分一致で検索できます。
+ * その代わり、3文字未満の語は検索できません。
+ * 検索文字列は空白で区切った語ごとにフレーズとして扱い、すべての語を含む文書を返します
+ * （FTS5の演算子や構文として解釈されることはありません）。
+ */
+@Repository
+public class TodoSearchRepository {
+    public static final int MIN_TERM_LENGTH = 3;
+    // titleの一致をdescriptionの一致より重く評価する（bm25の列ごとの重み）
+    private static final String SEARCH = """
+        SELECT d.id, s.title, s.description, -bm25(todo_search, 2.0, 1.0) AS score
+        FROM todo_search s JOIN todo_search_doc d ON d.doc_id = s.rowid
+        WHERE todo_search MATCH ?
+        ORDER BY bm25(todo_search, 2.0, 1.0)
+        LIMIT ? OFFSET ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TodoSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // 関連度の高い順にoffset件目からlimit件
+    public List<TodoSearchRow> search(String text, int limit, int offset) {
+        return jdbcTemplate.query(
+            SEARCH,
+            (rs, rowNum) -> new TodoSearchRow(
+                UuidBytes.fromBytes(rs.getBytes("id")),
+                rs.getString("title"),
+                rs.getString("description"),
+                rs.getDouble("score")),
+            toMatchExpression(text),
+            limit,
+            offset);
+    }
+
+    // 語ごとに二重引用符で囲んでフレーズにする（引用符はFTS5の規則どおり2つ重ねてエスケープ）
+    private static String toMatchExpression(String text) {
+        List<String> terms = Arrays.stream(text.strip().split("\\s+"))
+            .filter(term -> !term.isEmpty())
+            .toList();
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Search query must not be blank");
+        }
+        for (String term : terms) {
+            if (term.codePointCount(0, term.length()) < MIN_TERM_LENGTH) {
+                throw new IllegalArgumentException(
+                    "Search terms must be at least " + MIN_TERM_LENGTH + " characters: " + term);
+            }
+        }
+        return terms.stream()
+            .map(term -> "\"" + term.replace("\"", "\"\"") + "\"")
+            .collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.demo.infrastructure.search;
+
+import java.util.UUID;
+
+// 検索結果の1件。scoreは大きいほど関連度が高い（FTS5のbm25の符号を反転したもの）
+public record TodoSearchRow(UUID id, String title, String description, double score) {}
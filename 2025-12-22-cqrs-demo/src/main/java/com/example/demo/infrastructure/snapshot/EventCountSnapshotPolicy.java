@@ -0,0 +1,29 @@
+package com.example.demo.infrastructure.snapshot;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * N件のイベントごとにスナップショットを取るポリシー
+ *
+ * バージョンがNの倍数をまたいだときにスナップショットを取ります。
+ * 直前のスナップショット位置を覚えておく必要がないため、状態を持ちません。
+ * intervalに0以下を指定するとスナップショットを無効化できます。
+ */
+@Component
+public class EventCountSnapshotPolicy implements SnapshotPolicy {
+    private final long interval;
+
+    public EventCountSnapshotPolicy(@Value("${eventstore.snapshot.interval:50}") long interval) {
+        this.interval = interval;
+    }
+
+    @Override
+    public boolean shouldTakeSnapshot(long previousVersion, long currentVersion) {
+        if (interval <= 0) {
+            return false;
+        }
+        // 新規作成（previousVersion = -1）直後のバージョン0ではスナップショットを取らない
+        return currentVersion / interval > Math.max(previousVersion, 0) / interval;
+    }
+}
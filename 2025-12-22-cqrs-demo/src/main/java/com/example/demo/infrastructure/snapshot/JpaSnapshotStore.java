@@ -0,0 +1,52 @@
+package com.example.demo.infrastructure.snapshot;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.TodoSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Component
+public class JpaSnapshotStore implements SnapshotStore {
+    private final SnapshotRepository repository;
+    private final ObjectMapper objectMapper;
+
+    public JpaSnapshotStore(SnapshotRepository repository) {
+        this.repository = repository;
+        // スナップショットは時間型を含まないため、素のObjectMapperで十分
+        this.objectMapper = new ObjectMapper();
+    }
+
+    @Override
+    public void save(TodoSnapshot snapshot) {
+        try {
+            String snapshotData = objectMapper.writeValueAsString(snapshot);
+            repository.save(new SnapshotEntity(snapshot.id(), snapshot.version(), snapshotData, Instant.now()));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize snapshot", e);
+        }
+    }
+
+    @Override
+    public Optional<TodoSnapshot> findLatest(UUID aggregateId) {
+        return repository.findFirstByAggregateIdOrderByVersionDesc(aggregateId)
+            .map(this::deserialize);
+    }
+
+    @Override
+    public Optional<TodoSnapshot> findLatestAtOrBefore(UUID aggregateId, long version) {
+        return repository.findFirstByAggregateIdAndVersionLessThanEqualOrderByVersionDesc(aggregateId, version)
+            .map(this::deserialize);
+    }
+
+    private TodoSnapshot deserialize(SnapshotEntity entry) {
+        try {
+            return objectMapper.readValue(entry.getSnapshotData(), TodoSnapshot.class);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to deserialize snapshot", e);
+        }
+    }
+}
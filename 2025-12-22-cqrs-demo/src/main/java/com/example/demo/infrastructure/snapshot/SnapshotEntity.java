@@ -0,0 +1,62 @@
+package com.example.demo.infrastructure.snapshot;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(
+    name = "snapshot_store",
+    uniqueConstraints = @UniqueConstraint(name = "uk_snapshot_aggregate_version", columnNames = {"aggregateId", "version"}))
+public class SnapshotEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 集約IDは16バイトのバイナリで保存する（36文字の文字列より索引が小さく、比較も速い）
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(nullable = false, length = 16)
+    private UUID aggregateId;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String snapshotData;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    protected SnapshotEntity() {}
+
+    public SnapshotEntity(UUID aggregateId, long version, String snapshotData, Instant createdAt) {
+        this.aggregateId = aggregateId;
+        this.version = version;
+        this.snapshotData = snapshotData;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public UUID getAggregateId() {
+        return aggregateId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getSnapshotData() {
+        return snapshotData;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
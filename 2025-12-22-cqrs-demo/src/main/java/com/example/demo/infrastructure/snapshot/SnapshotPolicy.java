@@ -0,0 +1,10 @@
+package com.example.demo.infrastructure.snapshot;
+
+// スナップショットを取るタイミングを決めるポリシー
+public interface SnapshotPolicy {
+    /**
+     * @param previousVersion コマンド適用前の集約バージョン（新規作成時は-1）
+     * @param currentVersion  コマンド適用後の集約バージョン
+     */
+    boolean shouldTakeSnapshot(long previousVersion, long currentVersion);
+}
@@ -0,0 +1,16 @@
+package com.example.demo.infrastructure.snapshot;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SnapshotRepository extends JpaRepository<SnapshotEntity, Long> {
+    // 集約IDで最新のスナップショットを取得
+    Optional<SnapshotEntity> findFirstByAggregateIdOrderByVersionDesc(UUID aggregateId);
+
+    // 指定したバージョン以下で最新のスナップショットを取得（(aggregateId, version) の一意制約のインデックスを使う）
+    Optional<SnapshotEntity> findFirstByAggregateIdAndVersionLessThanEqualOrderByVersionDesc(UUID aggregateId, long version);
+}
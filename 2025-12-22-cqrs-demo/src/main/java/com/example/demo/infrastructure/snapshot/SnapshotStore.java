@@ -0,0 +1,13 @@
+package com.example.demo.infrastructure.snapshot;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import com.example.demo.domain.TodoSnapshot;
+
+public interface SnapshotStore {
+    void save(TodoSnapshot snapshot);
+    Optional<TodoSnapshot> findLatest(UUID aggregateId);
+    // 指定したバージョン以下で最新のスナップショット（過去の時点の状態の復元用。古いスナップショットも残している）
+    Optional<TodoSnapshot> findLatestAtOrBefore(UUID aggregateId, long version);
+}
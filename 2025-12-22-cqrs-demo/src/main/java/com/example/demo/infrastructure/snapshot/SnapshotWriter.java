@@ -0,0 +1,87 @@
+package com.example.demo.infrastructure.snapshot;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.domain.TodoSnapshot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * スナップショットを専用のスレッドで保存する
+ *
+ * コマンドのトランザクションの完了通知（afterCompletion）の時点では、まだその接続が返却されていません。
+ * そこから別トランザクションで保存すると、書き込み用のプールが1接続のときは自分の接続の返却を待って止まります。
+ * ここでは保存要求をキューに積むだけにして、専用のスレッドがコマンドの接続の返却後に書き込み用の接続で保存します。
+ * スナップショットは派生データなので、キューが溢れたら捨てます（次回以降の復元が少し遅くなるだけ）。
+ */
+@Component
+public class SnapshotWriter {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotWriter.class);
+
+    private final SnapshotStore snapshotStore;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<TodoSnapshot> queue;
+    private final Counter dropped;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public SnapshotWriter(
+            SnapshotStore snapshotStore,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${eventstore.snapshot.queue-capacity:10000}") int capacity) {
+        this.snapshotStore = snapshotStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dropped = Counter.builder("todo.snapshot.dropped")
+            .description("Snapshots discarded because the snapshot writer queue was full")
+            .register(meterRegistry);
+        this.writer = new Thread(this::run, "snapshot-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // 保存を依頼してすぐに戻る。キューが満杯なら捨てる
+    public void submit(TodoSnapshot snapshot) {
+        if (!running || !queue.offer(snapshot)) {
+            dropped.increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        while (running) {
+            TodoSnapshot snapshot;
+            try {
+                snapshot = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // 保存に失敗してもコマンド自体は成功している。次回以降の復元が遅くなるだけ
+            try {
+                transactionTemplate.executeWithoutResult(status -> snapshotStore.save(snapshot));
+            } catch (RuntimeException e) {
+                log.warn("Failed to save snapshot. AggregateId: {}, Version: {}", snapshot.id(), snapshot.version(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.infrastructure.stats;
+
+import jakarta.persistence.*;
+
+// Todoの件数（TodoStatsProjectionが更新する1行）
+@Entity
+@Table(name = "todo_stats")
+public class TodoStats {
+    public static final String ALL = "all";
+
+    @Id
+    private String name;
+
+    // 未完了（削除されていない）の件数
+    @Column(nullable = false)
+    private long openCount;
+
+    // 完了済み（削除されていない）の件数
+    @Column(nullable = false)
+    private long completedCount;
+
+    @Column(nullable = false)
+    private long deletedCount;
+
+    protected TodoStats() {}
+
+    public TodoStats(String name, long openCount, long completedCount, long deletedCount) {
+        this.name = name;
+        this.openCount = openCount;
+        this.completedCount = completedCount;
+        this.deletedCount = deletedCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getOpenCount() {
+        return openCount;
+    }
+
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+}
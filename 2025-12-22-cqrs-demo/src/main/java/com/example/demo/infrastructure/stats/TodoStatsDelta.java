@@ -0,0 +1,77 @@
+package com.example.demo.infrastructure.stats;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCompletedEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoDeletedEvent;
+
+/**
+ * イベントを件数の増減に畳み込む（TodoStatsProjectionとTodoStatsRebuilderで共通）
+ *
+ * statesには畳み込むイベントの集約の、畳み込む前の状態を入れておきます（未作成のTodoは含めない）。
+ * 状態が合わないイベント（作成済みのTodoの作成、未完了でないTodoの完了など）は数えないため、
+ * 同じイベントを2回適用しても件数はずれません。
+ */
+final class TodoStatsDelta {
+    // 序数をtodo_stats_entry.stateに保存するため、順序は変えないこと
+    enum State { OPEN, COMPLETED, DELETED }
+
+    final Map<UUID, State> states;
+    // 状態が変わった集約
+    final Set<UUID> changed = new LinkedHashSet<>();
+    long open;
+    long completed;
+    long deleted;
+
+    TodoStatsDelta(Map<UUID, State> states) {
+        this.states = states;
+    }
+
+    void apply(DomainEvent event) {
+        UUID id = event.getAggregateId();
+        State current = states.get(id);
+        switch (event) {
+            case TodoCreatedEvent e -> {
+                if (current == null) {
+                    transition(id, null, State.OPEN);
+                }
+            }
+            case TodoCompletedEvent e -> {
+                if (current == State.OPEN) {
+                    transition(id, current, State.COMPLETED);
+                }
+            }
+            case TodoDeletedEvent e -> {
+                if (current == State.OPEN || current == State.COMPLETED) {
+                    transition(id, current, State.DELETED);
+                }
+            }
+            default -> {
+                // 件数に関係のないイベントは無視する
+            }
+        }
+    }
+
+    private void transition(UUID id, State from, State to) {
+        add(from, -1);
+        add(to, 1);
+        states.put(id, to);
+        changed.add(id);
+    }
+
+    private void add(State state, long amount) {
+        if (state == null) {
+            return;
+        }
+        switch (state) {
+            case OPEN -> open += amount;
+            case COMPLETED -> completed += amount;
+            case DELETED -> deleted += amount;
+        }
+    }
+}
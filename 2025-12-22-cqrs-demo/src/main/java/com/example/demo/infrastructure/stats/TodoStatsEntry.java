@@ -0,0 +1,38 @@
+package com.example.demo.infrastructure.stats;
+
+import java.util.UUID;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.*;
+
+/**
+ * Todoごとの状態（TodoStatsProjectionが件数の増減を決めるために使う）
+ *
+ * 削除イベントで未完了と完了済みのどちらの件数を減らすかは、そのTodoの状態で決まるため、
+ * Read Modelとは別に状態だけを持ちます。
+ */
+@Entity
+@Table(name = "todo_stats_entry")
+public class TodoStatsEntry {
+    // 集約IDは16バイトのバイナリで保存する
+    @Id
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(length = 16)
+    private UUID id;
+
+    // TodoStatsDelta.Stateの序数（保存済みの値が変わるため、定数の順序は変えないこと）
+    @Column(nullable = false)
+    private int state;
+
+    protected TodoStatsEntry() {}
+
+    public UUID getId() {
+        return id;
+    }
+
+    public int getState() {
+        return state;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.infrastructure.stats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+import com.example.demo.infrastructure.projection.Projection;
+
+/**
+ * Todoの件数（未完了・完了済み・削除済み）をイベントから差分で更新する
+ *
+ * バッチ内のイベントを件数の増減にまとめ、todo_statsの1行に加算します。
+ * 削除されたTodoがどちらの件数から減るかを決めるため、Todoごとの状態をtodo_stats_entryに持ち、
+ * バッチに含まれる集約の分だけ1回のIN句で読みます。件数の参照は主キーでの1行の読み込みです。
+ */
+@Component
+public class TodoStatsProjection implements Projection {
+    public static final String NAME = "todo_stats";
+
+    static final String UPSERT_STATS = """
+        INSERT INTO todo_stats (name, open_count, completed_count, deleted_count) VALUES (?, ?, ?, ?)
+        ON CONFLICT (name) DO UPDATE SET
+            open_count = open_count + excluded.open_count,
+            completed_count = completed_count + excluded.completed_count,
+            deleted_count = deleted_count + excluded.deleted_count
+        """;
+    static final String UPSERT_ENTRY = """
+        INSERT INTO todo_stats_entry (id, state) VALUES (?, ?)
+        ON CONFLICT (id) DO UPDATE SET state = excluded.state
+        """;
+    // IN句1回あたりの集約ID数（SQLiteのバインド変数の上限より十分小さくする）
+    private static final int IN_CLAUSE_SIZE = 500;
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TodoStatsProjection(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void handle(DomainEvent event) {
+        handleBatch(List.of(event));
+    }
+
+    @Override
+    public void handleBatch(List<DomainEvent> events) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        events.forEach(event -> ids.add(event.getAggregateId()));
+        TodoStatsDelta delta = new TodoStatsDelta(loadStates(ids));
+        events.forEach(delta::apply);
+        if (delta.changed.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(UPSERT_ENTRY, delta.changed, JDBC_BATCH_SIZE, (ps, id) -> {
+            ps.setBytes(1, UuidBytes.toBytes(id));
+            ps.setInt(2, delta.states.get(id).ordinal());
+        });
+        jdbcTemplate.update(UPSERT_STATS, TodoStats.ALL, delta.open, delta.completed, delta.deleted);
+    }
+
+    private Map<UUID, TodoStatsDelta.State> loadStates(Set<UUID> ids) {
+        Map<UUID, TodoStatsDelta.State> states = new HashMap<>();
+        List<UUID> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += IN_CLAUSE_SIZE) {
+            List<UUID> chunk = all.subList(from, Math.min(from + IN_CLAUSE_SIZE, all.size()));
+            jdbcTemplate.query(
+                "SELECT id, state FROM todo_stats_entry WHERE id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                rs -> {
+                    states.put(UuidBytes.fromBytes(rs.getBytes("id")), TodoStatsDelta.State.values()[rs.getInt("state")]);
+                },
+                chunk.stream().map(UuidBytes::toBytes).toArray());
+        }
+        return states;
+    }
+}
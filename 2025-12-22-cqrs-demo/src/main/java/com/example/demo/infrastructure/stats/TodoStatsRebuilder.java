@@ -0,0 +1,121 @@
+package com.example.demo.infrastructure.stats;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.exceptions.ConflictException;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+import com.example.demo.infrastructure.projection.ProjectionCheckpoint;
+import com.example.demo.infrastructure.projection.ProjectionCheckpointRepository;
+import com.example.demo.infrastructure.projection.ProjectionRunner;
+
+/**
+ * Todoの件数をEvent Storeから作り直す
+ *
+ * ProjectionRunnerの該当ワーカーを止め、現在の末尾位置までのイベントを1回読んで件数とTodoごとの状態に畳み込み、
+ * 1トランザクションでtodo_stats/todo_stats_entryを置き換えてチェックポイントを末尾位置に進めます。
+ * 読み手からは置き換え前後のどちらかの件数しか見えません。
+ */
+@Component
+public class TodoStatsRebuilder {
+    private static final Logger log = LoggerFactory.getLogger(TodoStatsRebuilder.class);
+
+    private final EventStore eventStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProjectionCheckpointRepository checkpointRepository;
+    private final Optional<ProjectionRunner> projectionRunner;
+    private final int readBatchSize;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public TodoStatsRebuilder(
+            EventStore eventStore,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ProjectionCheckpointRepository checkpointRepository,
+            Optional<ProjectionRunner> projectionRunner,
+            @Value("${projection.rebuild.read-batch-size:5000}") int readBatchSize) {
+        this.eventStore = eventStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.projectionRunner = projectionRunner;
+        this.readBatchSize = readBatchSize;
+    }
+
+    public RebuildReport rebuild() throws InterruptedException {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new ConflictException("Rebuild of " + TodoStatsProjection.NAME + " is already running");
+        }
+        boolean paused = false;
+        try {
+            if (projectionRunner.isPresent()) {
+                projectionRunner.get().pause(TodoStatsProjection.NAME);
+                paused = true;
+            }
+            Instant start = Instant.now();
+            long lastPosition = eventStore.getLastPosition();
+
+            TodoStatsDelta delta = new TodoStatsDelta(new HashMap<>());
+            long events = 0;
+            try (Stream<StoredEvent> stream = eventStore.streamAll(0, readBatchSize)
+                    .takeWhile(stored -> stored.position() <= lastPosition)) {
+                Iterator<StoredEvent> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    delta.apply(iterator.next().event());
+                    events++;
+                }
+            }
+            replace(delta, lastPosition);
+
+            RebuildReport report = new RebuildReport(
+                events, delta.states.size(), delta.open, delta.completed, delta.deleted, lastPosition,
+                Duration.between(start, Instant.now()).toMillis());
+            log.info("Rebuilt {}: {}", TodoStatsProjection.NAME, report);
+            return report;
+        } finally {
+            if (paused) {
+                projectionRunner.get().resume(TodoStatsProjection.NAME);
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    private void replace(TodoStatsDelta delta, long lastPosition) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM todo_stats_entry");
+            jdbcTemplate.update("DELETE FROM todo_stats WHERE name = ?", TodoStats.ALL);
+            jdbcTemplate.batchUpdate(TodoStatsProjection.UPSERT_ENTRY, delta.states.entrySet(), 1_000, (ps, entry) -> {
+                ps.setBytes(1, UuidBytes.toBytes(entry.getKey()));
+                ps.setInt(2, entry.getValue().ordinal());
+            });
+            jdbcTemplate.update(TodoStatsProjection.UPSERT_STATS, TodoStats.ALL, delta.open, delta.completed, delta.deleted);
+            checkpointRepository.save(new ProjectionCheckpoint(TodoStatsProjection.NAME, lastPosition, Instant.now()));
+        });
+    }
+
+    public record RebuildReport(
+        long events,
+        int todos,
+        long open,
+        long completed,
+        long deleted,
+        long lastPosition,
+        long elapsedMillis
+    ) {}
+}
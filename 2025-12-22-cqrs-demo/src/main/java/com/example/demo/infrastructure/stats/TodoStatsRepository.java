@@ -0,0 +1,8 @@
+package com.example.demo.infrastructure.stats;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TodoStatsRepository extends JpaRepository<TodoStats, String> {
+}
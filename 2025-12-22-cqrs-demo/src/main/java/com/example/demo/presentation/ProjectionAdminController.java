@@ -0,0 +1,34 @@
+package com.example.demo.presentation;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.infrastructure.readmodel.TodoReadModelRebuilder;
+import com.example.demo.infrastructure.readmodel.TodoReadModelRebuilder.RebuildReport;
+import com.example.demo.infrastructure.stats.TodoStatsRebuilder;
+
+@RestController
+@RequestMapping("/api/admin/projections")
+public class ProjectionAdminController {
+    private final TodoReadModelRebuilder todoReadModelRebuilder;
+    private final TodoStatsRebuilder todoStatsRebuilder;
+
+    public ProjectionAdminController(TodoReadModelRebuilder todoReadModelRebuilder, TodoStatsRebuilder todoStatsRebuilder) {
+        this.todoReadModelRebuilder = todoReadModelRebuilder;
+        this.todoStatsRebuilder = todoStatsRebuilder;
+    }
+
+    // todo_read_modelをEvent Storeから作り直す（完了するまで応答を返さない）
+    @PostMapping("/todo_read_model/rebuild")
+    public ResponseEntity<RebuildReport> rebuildTodoReadModel() throws InterruptedException {
+        return ResponseEntity.ok(todoReadModelRebuilder.rebuild());
+    }
+
+    // Todoの件数をEvent Storeから作り直す（完了するまで応答を返さない）
+    @PostMapping("/todo_stats/rebuild")
+    public ResponseEntity<TodoStatsRebuilder.RebuildReport> rebuildTodoStats() throws InterruptedException {
+        return ResponseEntity.ok(todoStatsRebuilder.rebuild());
+    }
+}
@@ -1,26 +1,57 @@
 package com.example.demo.presentation;
 
+import com.example.demo.application.command.TodoBatchCommandService;
+import com.example.demo.application.command.TodoCommand;
+import com.example.demo.application.command.TodoCommandResult;
 import com.example.demo.application.command.TodoCommandService;
+import com.example.demo.application.query.TodoHistoryService;
+import com.example.demo.application.query.TodoHistoryView;
 import com.example.demo.application.query.TodoQueryService;
-import com.example.demo.application.query.TodoView;
+import com.example.demo.application.query.TodoSearchPage;
+import com.example.demo.application.query.TodoStatsView;
+import com.example.demo.infrastructure.cache.TodoResponseCache.CachedResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @RestController
 @RequestMapping("/api/todos")
 public class TodoController {
+    // ストリーミング中、この件数ごとにクライアントへ送り出す
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
     private final TodoCommandService commandService;
+    private final TodoBatchCommandService batchCommandService;
     private final TodoQueryService queryService;
+    private final TodoHistoryService historyService;
 
-    public TodoController(TodoCommandService commandService, TodoQueryService queryService) {
+    public TodoController(
+            TodoCommandService commandService,
+            TodoBatchCommandService batchCommandService,
+            TodoQueryService queryService,
+            TodoHistoryService historyService) {
         this.commandService = commandService;
+        this.batchCommandService = batchCommandService;
         this.queryService = queryService;
+        this.historyService = historyService;
     }
 
     @PostMapping
@@ -29,16 +60,164 @@ public class TodoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(new CreateTodoResponse(id));
     }
 
+    /**
+     * 複数のコマンド（create/complete/update/delete）をまとめて実行する
+     *
+     * 結果はコマンドごとに返すため、一部のコマンドが失敗してもレスポンスは200です。
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchCommandResponse> executeBatch(@RequestBody BatchCommandRequest request) {
+        if (request.commands() == null) {
+            throw new IllegalArgumentException("commands is required");
+        }
+        List<TodoCommand> commands = request.commands().stream()
+            .map(CommandRequest::toCommand)
+            .toList();
+        return ResponseEntity.ok(new BatchCommandResponse(batchCommandService.execute(commands)));
+    }
+
+    /**
+     * 全Todoを返す（JSON配列）
+     *
+     * DBカーソルから読んだ行をそのままチャンク転送で書き出すため、件数が増えてもメモリ使用量は一定です。
+     * ETagは一覧のバージョンで、If-None-Matchが一致すれば一覧を読まずに304を返します。
+     */
     @GetMapping
-    public ResponseEntity<List<TodoView>> getAllTodos() {
-        List<TodoView> todos = queryService.getAllTodos();
-        return ResponseEntity.ok(todos);
+    public ResponseEntity<StreamingResponseBody> getAllTodos(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etag(queryService.getListVersion());
+        if (matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            generator.writeStartArray();
+            writeTodos(generator, false);
+            generator.writeEndArray();
+            generator.flush();
+        };
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // 全TodoをNDJSON（1行1件）で返す。getAllTodosと同じく一定のメモリで書き出し、ETagも同じ
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTodos(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = etag(queryService.getListVersion());
+        if (matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            // ルートの値どうしの区切り（デフォルトは空白）は使わず、改行を自前で書く
+            generator.setRootValueSeparator(null);
+            writeTodos(generator, true);
+            generator.flush();
+        };
+        return ResponseEntity.ok().eTag(etag).contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // キーセットページング。次のページはレスポンスのnextCursorをcursorに指定して取得する
+    // レスポンスはTodoPageのJSON（シリアライズ済みのキャッシュをそのまま返す）。ETagは一覧のバージョン
+    @GetMapping("/page")
+    public ResponseEntity<byte[]> getTodoPage(
+            @RequestParam(required = false) UUID cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String current = etag(queryService.getListVersion());
+        if (matches(ifNoneMatch, current)) {
+            return notModified(current);
+        }
+        CachedResponse page = queryService.getTodosJson(cursor, limit);
+        return ResponseEntity.ok()
+            .eTag(etag(page.version()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(page.body());
+    }
+
+    // タイトルと説明の全文検索（関連度の高い順）。次のページはoffsetを進めて取得する
+    @GetMapping("/search")
+    public ResponseEntity<TodoSearchPage> searchTodos(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(queryService.searchTodos(q, offset, limit));
     }
 
+    // 未完了・完了済み・削除済みの件数。ETagは件数のバージョン
+    @GetMapping("/stats")
+    public ResponseEntity<TodoStatsView> getStats(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // バージョンを件数より先に読むため、ETagが内容より新しくなることはない
+        String etag = etag(queryService.getStatsVersion());
+        if (matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok().eTag(etag).body(queryService.getStats());
+    }
+
+    private void writeTodos(JsonGenerator generator, boolean newlineDelimited) throws IOException {
+        AtomicInteger written = new AtomicInteger();
+        try {
+            queryService.streamTodos(todo -> {
+                try {
+                    generator.writeObject(todo);
+                    if (newlineDelimited) {
+                        generator.writeRaw('\n');
+                    }
+                    if (written.incrementAndGet() % FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // レスポンスはTodoViewのJSON（シリアライズ済みのキャッシュをそのまま返す）。ETagは集約バージョン
     @GetMapping("/{id}")
-    public ResponseEntity<TodoView> getTodo(@PathVariable UUID id) {
-        TodoView todo = queryService.getTodo(id);
-        return ResponseEntity.ok(todo);
+    public ResponseEntity<byte[]> getTodo(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // 条件付きリクエストは、バージョンだけを読んで確認する（一致すればJSONを作らない）
+        if (ifNoneMatch != null) {
+            OptionalLong version = queryService.findTodoVersion(id);
+            if (version.isPresent() && matches(ifNoneMatch, etag(version.getAsLong()))) {
+                return notModified(etag(version.getAsLong()));
+            }
+        }
+        // 存在しない・削除済みの場合は、getTodoJsonがNotFoundExceptionを投げる
+        CachedResponse todo = queryService.getTodoJson(id);
+        return ResponseEntity.ok()
+            .eTag(etag(todo.version()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(todo.body());
+    }
+
+    /**
+     * 過去の時点のTodoを返す（versionかatのどちらか一方を指定）
+     *
+     * atはISO-8601の時刻（例: 2026-01-01T09:00:00Z）で、その時刻までに発生したイベントを適用した状態を返します。
+     * 時刻はミリ秒単位で比べます（ミリ秒未満は切り捨て、同じミリ秒に発生したイベントは含む）。
+     * 指定した時点でまだ作成されていなければ404です。削除済みの時点ならdeletedがtrueになります。
+     */
+    @GetMapping("/{id}/as-of")
+    public ResponseEntity<TodoHistoryView> getTodoAsOf(
+            @PathVariable UUID id,
+            @RequestParam(required = false) Long version,
+            @RequestParam(required = false) String at) {
+        Instant instant = null;
+        if (at != null) {
+            try {
+                instant = Instant.parse(at);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid at: " + at, e);
+            }
+        }
+        return ResponseEntity.ok(historyService.getTodoAsOf(id, version, instant));
     }
 
     @PutMapping("/{id}/complete")
@@ -59,7 +238,49 @@ public class TodoController {
         return ResponseEntity.noContent().build();
     }
 
+    private static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // If-None-Matchのいずれかのタグ（弱いETagも含む）または*が一致するか
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
     public record CreateTodoRequest(String title, String description) {}
     public record UpdateTodoRequest(String title, String description) {}
     public record CreateTodoResponse(UUID id) {}
-}
+    public record BatchCommandRequest(List<CommandRequest> commands) {}
+    public record BatchCommandResponse(List<TodoCommandResult> results) {}
+
+    public record CommandRequest(String type, UUID id, String title, String description, Long expectedVersion) {
+        TodoCommand toCommand() {
+            if (type == null) {
+                throw new IllegalArgumentException("Command type is required");
+            }
+            TodoCommand.Type commandType;
+            try {
+                commandType = TodoCommand.Type.valueOf(type.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown command type: " + type, e);
+            }
+            return new TodoCommand(commandType, id, title, description, expectedVersion);
+        }
+    }
+}
\ No newline at end of file
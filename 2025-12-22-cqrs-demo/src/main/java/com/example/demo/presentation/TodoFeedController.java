@@ -0,0 +1,119 @@
+package com.example.demo.presentation;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.infrastructure.feed.ChangeFeed;
+import com.example.demo.infrastructure.feed.FeedEvent;
+import com.example.demo.infrastructure.feed.FeedSubscription;
+
+/**
+ * Todoの変更フィード（Server-Sent Events）
+ *
+ * コミット済みのイベントを位置順に送ります。SSEのidはEvent Store上の位置で、eventはイベントの種類、
+ * dataはイベントのJSONです。EventSourceが再接続時に送るLast-Event-ID（またはfromパラメータ）の
+ * 位置より後から再開し、どちらもなければ接続した時点以降の変更だけを送ります。
+ *
+ * 購読者ごとに仮想スレッドを1つ使い、変更がない間はバッファを待ってブロックしているだけなので、
+ * 待機中の購読者はほとんどリソースを使いません。
+ * 送信が追いつかずバッファが溢れた購読者は接続を閉じます。クライアントは再接続すれば続きから受け取れます。
+ */
+@RestController
+@RequestMapping("/api/todos/events")
+public class TodoFeedController {
+    private final ChangeFeed changeFeed;
+    private final long heartbeatIntervalMillis;
+    private final long timeoutMillis;
+
+    public TodoFeedController(
+            ChangeFeed changeFeed,
+            @Value("${feed.heartbeat-interval-ms:15000}") long heartbeatIntervalMillis,
+            @Value("${feed.timeout-ms:0}") long timeoutMillis) {
+        this.changeFeed = changeFeed;
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @RequestParam(required = false) Long from) {
+        Long resumeFrom = lastEventId != null ? parsePosition(lastEventId) : from;
+        if (resumeFrom != null && resumeFrom < 0) {
+            throw new IllegalArgumentException("Position must not be negative: " + resumeFrom);
+        }
+
+        // 0はタイムアウトなし（切断は送信の失敗で検知する）
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        FeedSubscription subscription = changeFeed.subscribe();
+        Thread sender = Thread.ofVirtual()
+            .name("change-feed-subscriber")
+            .unstarted(() -> send(emitter, subscription, resumeFrom));
+        Runnable close = () -> {
+            subscription.close();
+            sender.interrupt();
+        };
+        emitter.onCompletion(close);
+        emitter.onTimeout(close);
+        emitter.onError(e -> close.run());
+        sender.start();
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, FeedSubscription subscription, Long resumeFrom) {
+        try (subscription) {
+            // 送信済みの最後の位置。これ以前のイベントは送らない
+            long sent = resumeFrom != null ? resumeFrom : subscription.liveAfter();
+            try (Stream<FeedEvent> missed = changeFeed.catchUp(sent, subscription)) {
+                Iterator<FeedEvent> iterator = missed.iterator();
+                while (iterator.hasNext()) {
+                    FeedEvent event = iterator.next();
+                    send(emitter, event);
+                    sent = event.position();
+                }
+            }
+            while (!subscription.isEvicted()) {
+                FeedEvent event = subscription.poll(heartbeatIntervalMillis);
+                if (event == null) {
+                    // プロキシなどにアイドル接続として切られないよう、コメント行を送る
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else if (event.position() > sent) {
+                    send(emitter, event);
+                    sent = event.position();
+                }
+            }
+            emitter.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            // クライアントが切断した、または既に完了している。onCompletion/onErrorで後始末される
+        } catch (RuntimeException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void send(SseEmitter emitter, FeedEvent event) throws IOException {
+        emitter.send(SseEmitter.event()
+            .id(Long.toString(event.position()))
+            .name(event.type())
+            .data(event.json(), MediaType.APPLICATION_JSON));
+    }
+
+    private static long parsePosition(String lastEventId) {
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid Last-Event-ID: " + lastEventId, e);
+        }
+    }
+}
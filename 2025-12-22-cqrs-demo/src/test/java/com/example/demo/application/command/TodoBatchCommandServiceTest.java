@@ -0,0 +1,148 @@
+package com.example.demo.application.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.application.command.TodoCommand.Type;
+import com.example.demo.application.command.TodoCommandResult.Status;
+import com.example.demo.domain.Todo;
+import com.example.demo.domain.events.DomainEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 一括コマンドの結果はコマンドごとに返り、失敗したコマンドだけが反映されない
+class TodoBatchCommandServiceTest {
+    private final FakeTodoRepository todoRepository = new FakeTodoRepository();
+    private final TodoBatchCommandService service = new TodoBatchCommandService(todoRepository, 100);
+
+    @Test
+    void 失敗したコマンドだけがその理由付きで失敗になる() {
+        UUID open = todoRepository.add("open");
+        UUID deleted = todoRepository.add("deleted");
+        todoRepository.todos.get(deleted).delete();
+        todoRepository.todos.get(deleted).clearUncommittedEvents();
+        UUID missing = UUID.randomUUID();
+
+        List<TodoCommandResult> results = service.execute(List.of(
+            new TodoCommand(Type.CREATE, null, "new", null, null),
+            new TodoCommand(Type.UPDATE, open, "updated", null, 0L),
+            new TodoCommand(Type.COMPLETE, open, null, null, null),
+            new TodoCommand(Type.UPDATE, open, "stale", null, 0L),
+            new TodoCommand(Type.COMPLETE, missing, null, null, null),
+            new TodoCommand(Type.UPDATE, deleted, "deleted", null, null),
+            new TodoCommand(null, open, null, null, null),
+            new TodoCommand(Type.DELETE, null, null, null, null)));
+
+        assertEquals(List.of(Status.OK, Status.OK, Status.OK, Status.CONFLICT, Status.NOT_FOUND,
+            Status.CONFLICT, Status.INVALID, Status.INVALID), results.stream().map(TodoCommandResult::status).toList());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).index());
+        }
+        assertNotNull(results.get(0).id());
+        assertEquals(0L, (long) results.get(0).version());
+        // 同じTodoへのコマンドはリクエストの順に適用される
+        assertEquals(1L, (long) results.get(1).version());
+        assertEquals(2L, (long) results.get(2).version());
+        assertNull(results.get(3).version());
+        assertTrue(results.get(3).error().contains("Expected version: 0, Current version: 2"), results.get(3).error());
+
+        // 成功したコマンドのイベントだけが保存される
+        Map<UUID, List<Long>> saved = todoRepository.savedVersions();
+        assertEquals(List.of(1L, 2L), saved.get(open));
+        assertEquals(List.of(0L), saved.get(results.get(0).id()));
+        assertEquals(2, saved.size());
+    }
+
+    // 追記時に競合したTodoは、そのTodoへのコマンドすべてがCONFLICTになり、他のTodoは保存される
+    @Test
+    void 追記時に競合したTodoへのコマンドだけがCONFLICTになる() {
+        UUID conflicted = todoRepository.add("conflicted");
+        UUID other = todoRepository.add("other");
+        todoRepository.conflicts = Set.of(conflicted);
+
+        List<TodoCommandResult> results = service.execute(List.of(
+            new TodoCommand(Type.UPDATE, conflicted, "updated", null, null),
+            new TodoCommand(Type.UPDATE, other, "updated", null, null),
+            new TodoCommand(Type.COMPLETE, conflicted, null, null, null),
+            new TodoCommand(Type.COMPLETE, UUID.randomUUID(), null, null, null)));
+
+        assertEquals(List.of(Status.CONFLICT, Status.OK, Status.CONFLICT, Status.NOT_FOUND),
+            results.stream().map(TodoCommandResult::status).toList());
+        assertEquals("Todo was modified concurrently: " + conflicted, results.get(0).error());
+        assertNull(results.get(2).version());
+        assertEquals(1L, (long) results.get(1).version());
+    }
+
+    @Test
+    void 上限を超えるコマンド数は400() {
+        List<TodoCommand> commands = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            commands.add(new TodoCommand(Type.CREATE, null, "todo " + i, null, null));
+        }
+        assertThrows(IllegalArgumentException.class, () -> service.execute(commands));
+        assertTrue(todoRepository.saved.isEmpty());
+    }
+
+    // loadAll/saveAllだけをメモリ上で行うリポジトリ
+    private static final class FakeTodoRepository extends TodoRepository {
+        private final Map<UUID, Todo> todos = new HashMap<>();
+        private final List<DomainEvent> saved = new ArrayList<>();
+        private Set<UUID> conflicts = Set.of();
+
+        FakeTodoRepository() {
+            super(null, null, null, null, null, new SimpleMeterRegistry());
+        }
+
+        UUID add(String title) {
+            Todo todo = Todo.create(UUID.randomUUID(), title, null);
+            todo.clearUncommittedEvents();
+            todos.put(todo.getId(), todo);
+            return todo.getId();
+        }
+
+        Map<UUID, List<Long>> savedVersions() {
+            Map<UUID, List<Long>> versions = new LinkedHashMap<>();
+            for (DomainEvent event : saved) {
+                versions.computeIfAbsent(event.getAggregateId(), id -> new ArrayList<>()).add(event.getVersion());
+            }
+            return versions;
+        }
+
+        // 保存済みの状態から復元し直す（呼び出し元が変更しても保存済みの状態は変わらない）
+        @Override
+        public Map<UUID, Todo> loadAll(Collection<UUID> todoIds) {
+            Map<UUID, Todo> loaded = new LinkedHashMap<>();
+            for (UUID todoId : todoIds) {
+                Todo todo = todos.get(todoId);
+                if (todo != null) {
+                    loaded.put(todoId, Todo.fromSnapshot(todo.toSnapshot(), List.of()));
+                }
+            }
+            return loaded;
+        }
+
+        @Override
+        public Set<UUID> saveAll(Collection<Todo> changed) {
+            for (Todo todo : changed) {
+                if (!conflicts.contains(todo.getId())) {
+                    saved.addAll(todo.getUncommittedEvents());
+                }
+            }
+            return conflicts;
+        }
+    }
+}
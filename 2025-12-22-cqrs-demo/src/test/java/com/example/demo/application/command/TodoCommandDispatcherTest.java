@@ -0,0 +1,104 @@
+package com.example.demo.application.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.support.Await;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 同じTodoへの同時のコマンドは、1つのメールボックスで直列に実行される
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-mailbox.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false"
+})
+class TodoCommandDispatcherTest {
+    private static final int THREADS = 16;
+    private static final int COMMANDS_PER_THREAD = 10;
+
+    @Autowired
+    private TodoCommandService commandService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private EventStore eventStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TodoCommandDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // すぐに破棄されるよう、アイドル時間を短くする
+        dispatcher = new TodoCommandDispatcher(todoRepository, eventStore, transactionManager, meterRegistry, true, 1000, 20);
+    }
+
+    @Test
+    @Timeout(20)
+    void 同じTodoへの同時のコマンドが競合せずにすべて反映される() throws Exception {
+        UUID id = commandService.createTodo("todo", null);
+
+        // 破棄と作成が何度も入れ違うよう、各スレッドが同時に始めて少しずつ間を空ける
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    ready.await();
+                    for (int i = 0; i < COMMANDS_PER_THREAD; i++) {
+                        dispatcher.dispatch(id, todo -> todo.update(todo.getTitle() + ".", null));
+                        Thread.sleep(i % 3 * 10);
+                    }
+                    return null;
+                }));
+            }
+            ready.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        // 作成のイベントがバージョン0なので、最後のバージョンはコマンド数と同じ
+        assertEquals(THREADS * COMMANDS_PER_THREAD, todoRepository.load(id).getVersion());
+        assertEquals("todo" + ".".repeat(THREADS * COMMANDS_PER_THREAD), todoRepository.load(id).getTitle());
+    }
+
+    @Test
+    @Timeout(10)
+    void アイドルになったメールボックスは破棄され次のコマンドで作り直される() {
+        UUID id = commandService.createTodo("todo", null);
+        dispatcher.dispatch(id, todo -> todo.update("first", null));
+        Await.until("the idle mailbox is retired", () -> activeMailboxes() == 0);
+
+        dispatcher.dispatch(id, todo -> todo.update("second", null));
+
+        assertEquals("second", todoRepository.load(id).getTitle());
+        assertEquals(2, todoRepository.load(id).getVersion());
+        Await.until("the idle mailbox is retired", () -> activeMailboxes() == 0);
+    }
+
+    private double activeMailboxes() {
+        return meterRegistry.get("todo.mailbox.active").gauge().value();
+    }
+}
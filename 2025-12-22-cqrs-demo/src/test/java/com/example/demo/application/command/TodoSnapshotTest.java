@@ -0,0 +1,56 @@
+package com.example.demo.application.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.domain.Todo;
+import com.example.demo.infrastructure.snapshot.SnapshotEntity;
+import com.example.demo.infrastructure.snapshot.SnapshotRepository;
+import com.example.demo.support.Await;
+
+// 書き込み用のプールが1接続でも、スナップショットの間隔を超えたらスナップショットが保存される
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-snapshot.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "datasource.writer.pool-size=1",
+    "eventstore.snapshot.interval=5"
+})
+class TodoSnapshotTest {
+    @Autowired
+    private TodoCommandService commandService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    @Autowired
+    private SnapshotRepository snapshotRepository;
+
+    // コマンドが接続の返却を待って止まると、HikariのconnectionTimeout（30秒）まで戻らない
+    @Test
+    @Timeout(10)
+    void スナップショットの間隔を超えるとスナップショットが保存される() {
+        UUID id = commandService.createTodo("todo", null);
+        for (int i = 1; i <= 12; i++) {
+            commandService.updateTodo(id, "todo " + i, null);
+        }
+
+        Await.until("the snapshot at version 10 is saved", () -> snapshotRepository
+            .findFirstByAggregateIdOrderByVersionDesc(id)
+            .map(SnapshotEntity::getVersion)
+            .filter(version -> version == 10)
+            .isPresent());
+        assertEquals(2, snapshotRepository.findAll().stream()
+            .filter(snapshot -> snapshot.getAggregateId().equals(id))
+            .count());
+
+        Todo todo = todoRepository.load(id);
+        assertEquals("todo 12", todo.getTitle());
+        assertEquals(12, todo.getVersion());
+    }
+}
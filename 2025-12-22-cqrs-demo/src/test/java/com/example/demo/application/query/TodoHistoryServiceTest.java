@@ -0,0 +1,111 @@
+package com.example.demo.application.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.application.command.TodoCommandService;
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.exceptions.NotFoundException;
+import com.example.demo.infrastructure.eventstore.EventStore;
+
+// スナップショットの間隔を短くして、スナップショットを起点にした復元も通るようにする
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-history.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false",
+    "eventstore.snapshot.interval=5"
+})
+class TodoHistoryServiceTest {
+    private static final int UPDATES = 12;
+
+    @Autowired
+    private TodoCommandService commandService;
+
+    @Autowired
+    private TodoHistoryService historyService;
+
+    @Autowired
+    private EventStore eventStore;
+
+    @Test
+    void 指定したバージョンの状態を返す() throws InterruptedException {
+        UUID id = createAndUpdate();
+
+        for (long version = 0; version <= UPDATES; version++) {
+            TodoHistoryView view = historyService.getTodoAsOf(id, version, null);
+            assertEquals(version, view.version());
+            assertEquals(titleAt(version), view.title());
+            assertFalse(view.completed());
+            assertFalse(view.deleted());
+        }
+    }
+
+    @Test
+    void 指定した時刻までのイベントを適用した状態を返す() throws InterruptedException {
+        UUID id = createAndUpdate();
+        List<DomainEvent> events = eventStore.getEvents(id);
+
+        for (DomainEvent event : events) {
+            TodoHistoryView view = historyService.getTodoAsOf(id, null, event.getOccurredAt());
+            assertEquals(event.getVersion(), view.version());
+            assertEquals(titleAt(event.getVersion()), view.title());
+        }
+        Instant beforeCreated = events.get(0).getOccurredAt().minusSeconds(1);
+        assertThrows(NotFoundException.class, () -> historyService.getTodoAsOf(id, null, beforeCreated));
+    }
+
+    @Test
+    void 削除済みの状態も返し削除前のバージョンも参照できる() throws InterruptedException {
+        UUID id = createAndUpdate();
+        commandService.completeTodo(id);
+        commandService.deleteTodo(id);
+
+        TodoHistoryView completed = historyService.getTodoAsOf(id, UPDATES + 1L, null);
+        assertTrue(completed.completed());
+        assertFalse(completed.deleted());
+        TodoHistoryView deleted = historyService.getTodoAsOf(id, UPDATES + 2L, null);
+        assertTrue(deleted.deleted());
+        assertEquals(titleAt(UPDATES), deleted.title());
+    }
+
+    @Test
+    void まだないバージョンは見つからない() throws InterruptedException {
+        UUID id = createAndUpdate();
+
+        assertThrows(NotFoundException.class, () -> historyService.getTodoAsOf(id, UPDATES + 1L, null));
+        assertThrows(NotFoundException.class, () -> historyService.getTodoAsOf(UUID.randomUUID(), 0L, null));
+    }
+
+    @Test
+    void versionとatはどちらか一方だけを指定する() {
+        UUID id = UUID.randomUUID();
+
+        assertThrows(IllegalArgumentException.class, () -> historyService.getTodoAsOf(id, null, null));
+        assertThrows(IllegalArgumentException.class, () -> historyService.getTodoAsOf(id, 0L, Instant.now()));
+        assertThrows(IllegalArgumentException.class, () -> historyService.getTodoAsOf(id, -1L, null));
+    }
+
+    // 発生時刻はミリ秒で保存されるので、イベントごとに時刻が変わるよう少し間を空ける
+    private UUID createAndUpdate() throws InterruptedException {
+        UUID id = commandService.createTodo(titleAt(0), null);
+        for (int version = 1; version <= UPDATES; version++) {
+            Thread.sleep(2);
+            commandService.updateTodo(id, titleAt(version), null);
+        }
+        return id;
+    }
+
+    private static String titleAt(long version) {
+        return "todo v" + version;
+    }
+}
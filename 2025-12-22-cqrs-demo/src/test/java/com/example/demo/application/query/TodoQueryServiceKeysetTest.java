@@ -0,0 +1,84 @@
+package com.example.demo.application.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.application.command.TodoCommandService;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.readmodel.TodoReadModel;
+import com.example.demo.infrastructure.readmodel.TodoReadModelRepository;
+import com.example.demo.support.Await;
+
+// 一覧のキーセットページング: nextCursorを辿るとIDの昇順に欠けも重複もなく読め、削除済みは含まない
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-keyset.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false"
+})
+class TodoQueryServiceKeysetTest {
+    @Autowired
+    private TodoCommandService commandService;
+
+    @Autowired
+    private TodoQueryService queryService;
+
+    @Autowired
+    private TodoReadModelRepository readModelRepository;
+
+    @Autowired
+    private EventStore eventStore;
+
+    @Test
+    void nextCursorを辿ると全件をIDの昇順で読める() {
+        List<UUID> created = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            created.add(commandService.createTodo("todo " + i, null));
+        }
+        UUID deleted = created.get(3);
+        commandService.deleteTodo(deleted);
+        awaitProjection();
+
+        List<UUID> expected = readModelRepository.findAll().stream()
+            .filter(readModel -> !readModel.isDeleted())
+            .map(TodoReadModel::getId)
+            .sorted()
+            .toList();
+        List<UUID> ids = new ArrayList<>();
+        UUID cursor = null;
+        do {
+            TodoPage page = queryService.getTodos(cursor, 3);
+            assertTrue(page.items().size() <= 3);
+            page.items().forEach(item -> ids.add(item.id()));
+            cursor = page.nextCursor();
+            if (cursor != null) {
+                assertEquals(page.items().get(page.items().size() - 1).id(), cursor);
+            }
+        } while (cursor != null);
+
+        assertEquals(expected, ids);
+        assertEquals(ids.stream().sorted(Comparator.naturalOrder()).toList(), ids);
+        assertTrue(ids.containsAll(created.stream().filter(id -> !id.equals(deleted)).toList()));
+        assertFalse(ids.contains(deleted));
+    }
+
+    @Test
+    void 件数が範囲外なら400() {
+        assertThrows(IllegalArgumentException.class, () -> queryService.getTodos(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> queryService.getTodos(null, TodoQueryService.MAX_PAGE_SIZE + 1));
+    }
+
+    private void awaitProjection() {
+        long lastPosition = eventStore.getLastPosition();
+        Await.until("the read model catches up", () -> queryService.getListVersion() >= lastPosition);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.demo.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.UuidV7;
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+
+/**
+ * ランダムなUUIDv4と時刻順のUUIDv7で、event_storeへの挿入スループットとインデックスのサイズを比較する
+ *
+ * 実行: ./mvnw test -Pbenchmark -Dtest=AggregateIdBenchmarkTest [-Dbenchmark.events=10000000]
+ * event_storeと同じ形のテーブル（(aggregate_id, version) の一意インデックス付き）にJDBCで直接挿入します。
+ * 1集約あたり4イベントで、新しい集約ほど後に作られる想定で順に挿入します。
+ */
+@Tag("benchmark")
+class AggregateIdBenchmarkTest {
+    private static final long EVENTS = Long.getLong("benchmark.events", 10_000_000L);
+    private static final int EVENTS_PER_AGGREGATE = 4;
+    private static final int BATCH_SIZE = 10_000;
+
+    @Test
+    void UUIDv4とUUIDv7の挿入スループットとインデックスサイズを比較する() throws Exception {
+        measure("uuid-v4", UUID::randomUUID);
+        measure("uuid-v7", UuidV7::generate);
+    }
+
+    private void measure(String name, Supplier<UUID> ids) throws Exception {
+        Path file = Paths.get("target", "benchmark-aggregate-id-" + name + ".db");
+        Files.deleteIfExists(file);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("""
+                    CREATE TABLE event_store (
+                        id integer PRIMARY KEY, aggregate_id blob NOT NULL, event_type varchar(255) NOT NULL,
+                        event_data blob NOT NULL, version bigint NOT NULL, occurred_at timestamp NOT NULL)
+                    """);
+                statement.execute("CREATE UNIQUE INDEX ux_event_store_aggregate_version ON event_store (aggregate_id, version)");
+            }
+            connection.setAutoCommit(false);
+
+            byte[] data = new byte[60];
+            long start = System.nanoTime();
+            long inserted = 0;
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO event_store (aggregate_id, event_type, event_data, version, occurred_at) VALUES (?, ?, ?, ?, ?)")) {
+                while (inserted < EVENTS) {
+                    byte[] aggregateId = UuidBytes.toBytes(ids.get());
+                    for (int version = 0; version < EVENTS_PER_AGGREGATE; version++) {
+                        insert.setBytes(1, aggregateId);
+                        insert.setString(2, "b" + (version == 0 ? 1 : 4));
+                        insert.setBytes(3, data);
+                        insert.setLong(4, version);
+                        insert.setLong(5, System.currentTimeMillis());
+                        insert.addBatch();
+                        if (++inserted % BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                            connection.commit();
+                        }
+                    }
+                }
+                insert.executeBatch();
+                connection.commit();
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            connection.setAutoCommit(true);
+
+            System.out.printf("%s: %,d events in %.1fs (%,.0f events/sec), index %,d KB, database %,d KB%n",
+                name, inserted, seconds, inserted / seconds,
+                indexSize(connection, "ux_event_store_aggregate_version") / 1024,
+                pageCount(connection) / 1024);
+        }
+    }
+
+    // dbstatが使えないビルドのSQLiteでは-1を返す
+    private long indexSize(Connection connection, String index) {
+        try (PreparedStatement query = connection.prepareStatement("SELECT SUM(pgsize) FROM dbstat WHERE name = ?")) {
+            query.setString(1, index);
+            try (ResultSet rs = query.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    private long pageCount(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                 "SELECT page_count * page_size FROM pragma_page_count(), pragma_page_size()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.Todo;
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCompletedEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.infrastructure.eventstore.codec.BinaryEventCodec;
+import com.example.demo.infrastructure.eventstore.codec.EventCodec;
+import com.example.demo.infrastructure.eventstore.codec.JsonEventCodec;
+import com.example.demo.infrastructure.eventstore.codec.SerializedEvent;
+
+/**
+ * JSON形式とバイナリ形式のコーデックを比較する（1イベントあたりのバイト数、書き込み・読み込みの時間、リプレイのスループット）
+ *
+ * 実行: ./mvnw test -Pbenchmark -Dtest=EventCodecBenchmarkTest [-Dbenchmark.aggregates=200000]
+ * DBを使わず、コーデックと集約の復元だけを測ります。
+ */
+@Tag("benchmark")
+class EventCodecBenchmarkTest {
+    private static final int AGGREGATES = Integer.getInteger("benchmark.aggregates", 200_000);
+    private static final int ROUNDS = 3;
+
+    @Test
+    void JSONとバイナリのコーデックを比較する() {
+        List<List<DomainEvent>> streams = generate();
+        for (int round = 1; round <= ROUNDS; round++) {
+            // 1回目はJITのウォームアップを兼ねる
+            measure("json  ", new JsonEventCodec(), streams, round);
+            measure("binary", new BinaryEventCodec(), streams, round);
+        }
+    }
+
+    private void measure(String name, EventCodec codec, List<List<DomainEvent>> streams, int round) {
+        long events = 0;
+        long bytes = 0;
+        List<List<SerializedEvent>> encoded = new ArrayList<>(streams.size());
+        long start = System.nanoTime();
+        for (List<DomainEvent> stream : streams) {
+            List<SerializedEvent> serialized = new ArrayList<>(stream.size());
+            for (DomainEvent event : stream) {
+                SerializedEvent s = codec.encode(event);
+                serialized.add(s);
+                bytes += s.data().length;
+                events++;
+            }
+            encoded.add(serialized);
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        long completed = 0;
+        for (List<SerializedEvent> serialized : encoded) {
+            List<DomainEvent> stream = new ArrayList<>(serialized.size());
+            for (SerializedEvent s : serialized) {
+                stream.add(codec.decode(s.eventType(), s.data()));
+            }
+            if (Todo.fromEvents(stream).isCompleted()) {
+                completed++;
+            }
+        }
+        long replayNanos = System.nanoTime() - start;
+
+        System.out.printf(
+            "round %d %s: %,d events, %.1f bytes/event, encode %.0f ns/event, decode+replay %.0f ns/event (%,.0f events/sec, completed=%,d)%n",
+            round, name, events, (double) bytes / events, (double) encodeNanos / events,
+            (double) replayNanos / events, events / (replayNanos / 1_000_000_000.0), completed);
+    }
+
+    private List<List<DomainEvent>> generate() {
+        List<List<DomainEvent>> streams = new ArrayList<>(AGGREGATES);
+        for (int i = 0; i < AGGREGATES; i++) {
+            UUID id = UUID.randomUUID();
+            List<DomainEvent> stream = new ArrayList<>(3);
+            stream.add(new TodoCreatedEvent(id, "Buy milk #" + i, "2 bottles from the corner shop", 0L));
+            stream.add(new TodoUpdateEvent(id, "Buy milk and eggs #" + i, null, 1L));
+            stream.add(new TodoCompletedEvent(id, 2L));
+            streams.add(stream);
+        }
+        return streams;
+    }
+}
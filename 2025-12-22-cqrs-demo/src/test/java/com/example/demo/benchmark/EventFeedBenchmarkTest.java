@@ -0,0 +1,89 @@
+package com.example.demo.benchmark;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.EventStoreEntity;
+import com.example.demo.infrastructure.eventstore.EventStoreRepository;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+import com.example.demo.infrastructure.eventstore.codec.SerializedEvent;
+
+/**
+ * グローバルフィード（EventStore.streamAll）をバッチサイズごとに全件読み出したときのスループットを測る
+ *
+ * 実行: ./mvnw test -Pbenchmark -Dtest=EventFeedBenchmarkTest [-Dbenchmark.events=2000000]
+ * 投入したイベントはDBファイルに残るので、2回目以降は読み出しだけを測ります。
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/benchmark-event-feed.db?mode=rwc",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false"
+})
+class EventFeedBenchmarkTest {
+    private static final long EVENTS = Long.getLong("benchmark.events", 2_000_000L);
+    private static final int INSERT_BATCH = 10_000;
+
+    @Autowired
+    private EventStore eventStore;
+
+    @Autowired
+    private EventStoreRepository repository;
+
+    @Autowired
+    private EventSerializer serializer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void グローバルフィードをバッチサイズごとに読み出す() throws Exception {
+        seed();
+
+        for (int batchSize : new int[] {100, 1_000, 10_000}) {
+            Runtime runtime = Runtime.getRuntime();
+            runtime.gc();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+            long start = System.nanoTime();
+            long count = eventStore.streamAll(0, batchSize).count();
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+            System.out.printf("batchSize=%,6d: %,d events in %.2fs (%,.0f events/sec, heap delta %,d KB)%n",
+                batchSize, count, seconds, count / seconds, (heapAfter - heapBefore) / 1024);
+        }
+    }
+
+    private void seed() {
+        long existing = repository.count();
+        if (existing >= EVENTS) {
+            return;
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        for (long inserted = existing; inserted < EVENTS; inserted += INSERT_BATCH) {
+            List<EventStoreEntity> entries = new ArrayList<>(INSERT_BATCH);
+            for (int i = 0; i < INSERT_BATCH; i++) {
+                TodoCreatedEvent event = new TodoCreatedEvent(UUID.randomUUID(), "title", "description", 0L);
+                SerializedEvent serialized = serializer.serialize(event);
+                entries.add(new EventStoreEntity(
+                    event.getAggregateId(),
+                    serialized.eventType(),
+                    serialized.data(),
+                    event.getVersion(),
+                    Instant.now()));
+            }
+            transaction.executeWithoutResult(status -> repository.saveAll(entries));
+        }
+    }
+}
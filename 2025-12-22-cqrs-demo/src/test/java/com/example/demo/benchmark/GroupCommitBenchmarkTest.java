@@ -0,0 +1,88 @@
+package com.example.demo.benchmark;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.JpaEventStore;
+
+/**
+ * グループコミットとリクエスト単位のトランザクションで、追記のスループット（commands/sec）を比較する
+ *
+ * 実行: ./mvnw test -Pbenchmark -Dtest=GroupCommitBenchmarkTest
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/benchmark-group-commit.db?mode=rwc&journal_mode=WAL&busy_timeout=30000",
+    "spring.jpa.show-sql=false",
+    "eventstore.append-mode=group-commit"
+})
+class GroupCommitBenchmarkTest {
+    private static final int THREADS = 32;
+    private static final int COMMANDS_PER_THREAD = 200;
+
+    @Autowired
+    private EventStore groupCommitEventStore;
+
+    @Autowired
+    private JpaEventStore perRequestEventStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void グループコミットとリクエスト単位の追記スループットを比較する() throws Exception {
+        TransactionTemplate perRequestTransaction = new TransactionTemplate(transactionManager);
+
+        // ウォームアップ
+        run(events -> perRequestTransaction.executeWithoutResult(status -> perRequestEventStore.save(events)));
+        run(groupCommitEventStore::save);
+
+        Result perRequest = run(events -> perRequestTransaction.executeWithoutResult(status -> perRequestEventStore.save(events)));
+        Result groupCommit = run(groupCommitEventStore::save);
+
+        System.out.printf("per-request : %,.0f commands/sec (failed: %d)%n", perRequest.commandsPerSecond(), perRequest.failed());
+        System.out.printf("group-commit: %,.0f commands/sec (failed: %d)%n", groupCommit.commandsPerSecond(), groupCommit.failed());
+    }
+
+    private Result run(Append append) throws InterruptedException {
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < COMMANDS_PER_THREAD; i++) {
+                    List<DomainEvent> events = List.of(new TodoCreatedEvent(UUID.randomUUID(), "title", "description", 0L));
+                    try {
+                        append.save(events);
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return new Result(THREADS * COMMANDS_PER_THREAD / seconds, failed.get());
+    }
+
+    private interface Append {
+        void save(List<DomainEvent> events);
+    }
+
+    private record Result(double commandsPerSecond, int failed) {}
+}
@@ -0,0 +1,96 @@
+package com.example.demo.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.domain.Todo;
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCompletedEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.JpaEventStore;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+import com.example.demo.infrastructure.eventstore.log.LogFileEventStore;
+
+/**
+ * セグメントファイルのEvent StoreとSQLiteのEvent Storeで、追記とリプレイのスループットを比較する
+ *
+ * 実行: ./mvnw test -Pbenchmark -Dtest=LogFileEventStoreBenchmarkTest [-Dbenchmark.aggregates=20000]
+ * 1集約あたり3回（作成・更新・完了）に分けて追記し、集約ごとのリプレイとグローバルフィードの全件読み出しを測ります。
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/benchmark-log-store.db?mode=rwc",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false"
+})
+class LogFileEventStoreBenchmarkTest {
+    private static final int AGGREGATES = Integer.getInteger("benchmark.aggregates", 20_000);
+
+    @Autowired
+    private JpaEventStore jpaEventStore;
+
+    @Autowired
+    private EventSerializer serializer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void セグメントファイルとSQLiteの追記とリプレイを比較する() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Path directory = Files.createTempDirectory(Paths.get("target"), "benchmark-event-log");
+        LogFileEventStore logFileEventStore = new LogFileEventStore(directory.toString(), 64, true, serializer, event -> {});
+        try {
+            measure("sqlite  ", events -> transaction.executeWithoutResult(status -> jpaEventStore.save(events)), jpaEventStore);
+            measure("log-file", logFileEventStore::save, logFileEventStore);
+        } finally {
+            logFileEventStore.close();
+        }
+    }
+
+    private void measure(String name, Append append, EventStore eventStore) {
+        List<UUID> ids = new ArrayList<>(AGGREGATES);
+        long start = System.nanoTime();
+        for (int i = 0; i < AGGREGATES; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            append.save(List.of(new TodoCreatedEvent(id, "title " + i, "description", 0L)));
+            append.save(List.of(new TodoUpdateEvent(id, "updated " + i, null, 1L)));
+            append.save(List.of(new TodoCompletedEvent(id, 2L)));
+        }
+        double appendSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        start = System.nanoTime();
+        long replayed = 0;
+        for (UUID id : ids) {
+            List<DomainEvent> events = eventStore.getEvents(id);
+            Todo.fromEvents(events);
+            replayed += events.size();
+        }
+        double replaySeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        start = System.nanoTime();
+        long streamed = eventStore.streamAll(0, 1_000).count();
+        double streamSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.out.printf("%s: append %,.0f commands/sec, replay %,.0f events/sec, streamAll %,.0f events/sec (%,d events)%n",
+            name, AGGREGATES * 3 / appendSeconds, replayed / replaySeconds, streamed / streamSeconds, streamed);
+    }
+
+    private interface Append {
+        void save(List<DomainEvent> events);
+    }
+}
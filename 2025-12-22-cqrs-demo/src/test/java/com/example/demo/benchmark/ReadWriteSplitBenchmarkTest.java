@@ -0,0 +1,100 @@
+package com.example.demo.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.application.command.TodoCommandService;
+import com.example.demo.infrastructure.readmodel.TodoReadModelRepository;
+
+/**
+ * 書き込みと並行した一覧の読み込みのスループットを、読み取り用と書き込み用のコネクションプールで比較する
+ *
+ * 実行: ./mvnw test -Pbenchmark -Dtest=ReadWriteSplitBenchmarkTest
+ * どちらも作成コマンドを流し続けながら測ります。読み取り専用トランザクションは読み取り用のプール、
+ * 通常のトランザクションは書き込み用のプール（1接続）で読むため、後者は書き込みと接続を取り合います。
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/benchmark-read-write-split.db?mode=rwc&journal_mode=WAL&busy_timeout=30000",
+    "spring.jpa.show-sql=false",
+    "datasource.reader.pool-size=8"
+})
+class ReadWriteSplitBenchmarkTest {
+    private static final int SEED_TODOS = 10_000;
+    private static final int WRITER_THREADS = 4;
+    private static final int READER_THREADS = 8;
+    private static final int PAGE_SIZE = 100;
+    private static final long DURATION_MILLIS = 10_000;
+
+    @Autowired
+    private TodoCommandService commandService;
+
+    @Autowired
+    private TodoReadModelRepository readModelRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void 書き込み中の読み込みスループットをプールごとに比較する() throws Exception {
+        for (int i = 0; i < SEED_TODOS; i++) {
+            commandService.createTodo("todo " + i, null);
+        }
+
+        TransactionTemplate readerTransaction = new TransactionTemplate(transactionManager);
+        readerTransaction.setReadOnly(true);
+        TransactionTemplate writerTransaction = new TransactionTemplate(transactionManager);
+
+        // ウォームアップ
+        run(readerTransaction, 2_000);
+        run(writerTransaction, 2_000);
+
+        Result writerPool = run(writerTransaction, DURATION_MILLIS);
+        Result readerPool = run(readerTransaction, DURATION_MILLIS);
+
+        System.out.printf("writer pool: %,.0f reads/sec, %,.0f writes/sec%n", writerPool.readsPerSecond(), writerPool.writesPerSecond());
+        System.out.printf("reader pool: %,.0f reads/sec, %,.0f writes/sec%n", readerPool.readsPerSecond(), readerPool.writesPerSecond());
+    }
+
+    private Result run(TransactionTemplate readTransaction, long durationMillis) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong writes = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITER_THREADS + READER_THREADS);
+        for (int t = 0; t < WRITER_THREADS; t++) {
+            executor.submit(() -> {
+                while (running.get()) {
+                    commandService.createTodo("title", "description");
+                    writes.incrementAndGet();
+                }
+            });
+        }
+        for (int t = 0; t < READER_THREADS; t++) {
+            executor.submit(() -> {
+                while (running.get()) {
+                    readTransaction.executeWithoutResult(status -> readModelRepository.findByDeletedFalseOrderByIdAsc(Limit.of(PAGE_SIZE)));
+                    reads.incrementAndGet();
+                }
+            });
+        }
+        Thread.sleep(durationMillis);
+        running.set(false);
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        double seconds = durationMillis / 1000.0;
+        return new Result(reads.get() / seconds, writes.get() / seconds);
+    }
+
+    private record Result(double readsPerSecond, double writesPerSecond) {}
+}
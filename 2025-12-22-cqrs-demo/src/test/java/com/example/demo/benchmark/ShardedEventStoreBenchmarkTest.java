@@ -0,0 +1,59 @@
+package com.example.demo.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+import com.example.demo.infrastructure.eventstore.sharded.ShardedEventStore;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * シャード数ごとの追記スループットを測る
+ *
+ * 実行: ./mvnw test -Pbenchmark -Dtest=ShardedEventStoreBenchmarkTest
+ * 各スレッドは新しい集約の作成イベントを1件ずつ追記します（競合はありません）。
+ * シャードごとにコミットのfsyncが並行して走るため、ディスクが追いつく範囲でシャード数に応じて伸びます。
+ */
+@Tag("benchmark")
+class ShardedEventStoreBenchmarkTest {
+    private static final int THREADS = 32;
+    private static final int COMMANDS_PER_THREAD = 500;
+
+    @Test
+    void シャード数ごとの追記スループットを測る() throws Exception {
+        EventSerializer serializer = new EventSerializer("binary", new SimpleMeterRegistry());
+        for (int shards = 1; shards <= 8; shards *= 2) {
+            Path directory = Files.createTempDirectory(Paths.get("target"), "benchmark-event-shards");
+            ShardedEventStore eventStore = new ShardedEventStore(directory.toString(), shards, 2, serializer, event -> {});
+            try {
+                ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+                long start = System.nanoTime();
+                for (int t = 0; t < THREADS; t++) {
+                    executor.submit(() -> {
+                        for (int i = 0; i < COMMANDS_PER_THREAD; i++) {
+                            eventStore.save(List.of(new TodoCreatedEvent(UUID.randomUUID(), "title", "description", 0L)));
+                        }
+                    });
+                }
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.MINUTES);
+                double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+                System.out.printf("shards=%d: %,.0f commands/sec (last position %,d)%n",
+                    shards, THREADS * COMMANDS_PER_THREAD / seconds, eventStore.getLastPosition());
+            } finally {
+                eventStore.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.demo.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.infrastructure.jdbc.UuidBytes;
+
+class UuidV7Test {
+    @Test
+    void バージョン7とRFCのバリアントで上位48bitが生成時刻になる() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.generate();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(before <= millis && millis <= after, millis + " is not between " + before + " and " + after);
+    }
+
+    // SQLiteはBLOBをバイト列として比較するため、保存したバイト列の順でも単調増加している必要がある
+    @Test
+    void 同じミリ秒内でも保存するバイト列の順に単調増加する() {
+        byte[] previous = UuidBytes.toBytes(UuidV7.generate());
+        for (int i = 0; i < 100_000; i++) {
+            byte[] next = UuidBytes.toBytes(UuidV7.generate());
+            assertTrue(Arrays.compareUnsigned(previous, next) < 0, "not increasing at " + i);
+            previous = next;
+        }
+    }
+
+    @Test
+    void 並行して生成しても重複しない() {
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        IntStream.range(0, 8).parallel().forEach(thread -> {
+            for (int i = 0; i < 10_000; i++) {
+                ids.add(UuidV7.generate());
+            }
+        });
+        assertEquals(80_000, ids.size());
+
+        // 上位64bit（時刻とカウンタ）だけでも重複しない
+        Set<Long> prefixes = new HashSet<>();
+        ids.forEach(id -> prefixes.add(id.getMostSignificantBits()));
+        assertEquals(80_000, prefixes.size());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.infrastructure.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.infrastructure.cache.TodoResponseCache.CachedResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TodoResponseCacheTest {
+    private final TodoResponseCache cache = new TodoResponseCache(1024 * 1024, new SimpleMeterRegistry());
+
+    @Test
+    void 複数のページを破棄してもバイト数が0に戻る() {
+        long generation = cache.generation();
+        cache.putPage(null, 20, response(1, 100), generation);
+        cache.putPage(UUID.randomUUID(), 20, response(1, 200), generation);
+        cache.putPage(UUID.randomUUID(), 50, response(1, 300), generation);
+        // アクセス順を入れ替えておく
+        assertTrue(cache.getPage(null, 20).isPresent());
+        assertEquals(3, cache.size());
+        assertEquals(600, cache.bytes());
+
+        cache.invalidate(List.of());
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void 変更されたTodoと全ページを破棄し他のTodoは残す() {
+        UUID changed = UUID.randomUUID();
+        UUID unchanged = UUID.randomUUID();
+        long generation = cache.generation();
+        cache.putTodo(changed, response(1, 10), generation);
+        cache.putTodo(unchanged, response(1, 20), generation);
+        cache.putPage(null, 20, response(1, 100), generation);
+        cache.putPage(UUID.randomUUID(), 20, response(1, 200), generation);
+
+        cache.invalidate(List.of(changed));
+
+        assertTrue(cache.getTodo(changed).isEmpty());
+        assertTrue(cache.getTodo(unchanged).isPresent());
+        assertEquals(1, cache.size());
+        assertEquals(20, cache.bytes());
+    }
+
+    @Test
+    void 破棄の前に読み込みを始めたレスポンスは格納しない() {
+        long generation = cache.generation();
+        cache.invalidate(List.of());
+
+        cache.putPage(null, 20, response(1, 100), generation);
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    private static CachedResponse response(long version, int size) {
+        return new CachedResponse(version, new byte[size]);
+    }
+}
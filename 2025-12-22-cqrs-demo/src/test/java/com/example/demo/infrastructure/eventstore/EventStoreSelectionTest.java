@@ -0,0 +1,27 @@
+package com.example.demo.infrastructure.eventstore;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.infrastructure.eventstore.memory.InMemoryEventStore;
+
+// eventstore.storage がsqlite以外なら、append-mode=group-commit を指定しても起動し、指定した保存先を使う
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-event-store-selection.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "eventstore.storage=memory",
+    "eventstore.memory.flush-file=",
+    "eventstore.append-mode=group-commit"
+})
+class EventStoreSelectionTest {
+    @Autowired
+    private EventStore eventStore;
+
+    @Test
+    void 保存先の指定がappend_modeより優先される() {
+        assertInstanceOf(InMemoryEventStore.class, eventStore);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.infrastructure.eventstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+
+// streamAllはreadAllをバッチごとに遅延して呼び、位置順に欠けなく読む
+class EventStoreStreamAllTest {
+    @Test
+    void 指定した位置より後を位置順に末尾まで読む() {
+        PositionedEventStore eventStore = new PositionedEventStore(10);
+
+        assertEquals(LongStream.rangeClosed(1, 10).boxed().toList(), positions(eventStore, 0, 3));
+        assertEquals(LongStream.rangeClosed(5, 10).boxed().toList(), positions(eventStore, 4, 3));
+        assertEquals(List.of(), positions(eventStore, 10, 3));
+    }
+
+    @Test
+    void 消費した分のバッチだけを読む() {
+        PositionedEventStore eventStore = new PositionedEventStore(10);
+
+        List<Long> first = eventStore.streamAll(0, 2).limit(3).map(StoredEvent::position).toList();
+        assertEquals(List.of(1L, 2L, 3L), first);
+        assertEquals(List.of(0L, 2L), eventStore.reads);
+    }
+
+    // batchSizeに満たないバッチが返ったら、末尾まで読み切ったものとして次を読まない
+    @Test
+    void 最後のバッチが埋まらなければ追加で読まない() {
+        PositionedEventStore eventStore = new PositionedEventStore(5);
+
+        assertEquals(5, eventStore.streamAll(0, 2).count());
+        assertEquals(List.of(0L, 2L, 4L), eventStore.reads);
+    }
+
+    private static List<Long> positions(EventStore eventStore, long fromPosition, int batchSize) {
+        return eventStore.streamAll(fromPosition, batchSize).map(StoredEvent::position).toList();
+    }
+
+    // 位置1〜eventsにイベントがあり、readAllの呼び出し（fromPosition）を記録するEvent Store
+    private static final class PositionedEventStore implements EventStore {
+        private final List<StoredEvent> events = new ArrayList<>();
+        private final List<Long> reads = new ArrayList<>();
+
+        PositionedEventStore(int count) {
+            for (long position = 1; position <= count; position++) {
+                events.add(new StoredEvent(position, new TodoCreatedEvent(UUID.randomUUID(), "todo", null, 0L)));
+            }
+        }
+
+        @Override
+        public void save(List<DomainEvent> events) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DomainEvent> getEvents(UUID aggregateId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DomainEvent> getEvents(UUID aggregateId, long afterVersion) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<StoredEvent> readAll(long fromPosition, int maxCount) {
+            reads.add(fromPosition);
+            return events.stream()
+                .filter(event -> event.position() > fromPosition)
+                .limit(maxCount)
+                .toList();
+        }
+
+        @Override
+        public long getLastPosition() {
+            return events.size();
+        }
+    }
+}
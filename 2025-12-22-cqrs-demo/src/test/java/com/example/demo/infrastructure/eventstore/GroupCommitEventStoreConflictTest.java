@@ -0,0 +1,111 @@
+package com.example.demo.infrastructure.eventstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.exceptions.OptimisticLockingException;
+
+// 書き込みスレッドを通らない追記に割り込まれたとき、追い越された集約の要求だけが競合になる
+class GroupCommitEventStoreConflictTest {
+
+    @Test
+    void 割り込まれた集約だけがOptimisticLockingExceptionになり他の要求は追記される() throws Exception {
+        UUID overtaken = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        FakeEventStore delegate = new FakeEventStore();
+        // 最初の追記の直前に、一括コマンドなどが overtaken のバージョン0を書き込む
+        delegate.interloper = overtaken;
+        GroupCommitEventStore store = new GroupCommitEventStore(delegate, new NoOpTransactionManager(), 2, 5_000, 4);
+        try {
+            CompletableFuture<Void> first = CompletableFuture.runAsync(() -> store.save(created(overtaken)));
+            CompletableFuture<Void> second = CompletableFuture.runAsync(() -> store.save(created(other)));
+
+            CompletionException failure = assertThrows(CompletionException.class, first::join);
+            assertInstanceOf(OptimisticLockingException.class, failure.getCause());
+            second.join();
+            assertEquals(0L, delegate.findCurrentVersion(other));
+            assertEquals(List.of(other), delegate.published);
+        } finally {
+            store.shutdown();
+        }
+    }
+
+    private static List<DomainEvent> created(UUID id) {
+        return List.of(new TodoCreatedEvent(id, "todo", null, 0L));
+    }
+
+    // (aggregate_id, version) の一意インデックスだけを真似たEvent Store。追記は全件成功するか何も書かない
+    private static final class FakeEventStore extends JpaEventStore {
+        private final Map<UUID, Long> versions = new HashMap<>();
+        private final List<UUID> published = new ArrayList<>();
+        private UUID interloper;
+
+        FakeEventStore() {
+            super(null, new JdbcTemplate(new DriverManagerDataSource()), new NoOpTransactionManager(), null, event -> {});
+        }
+
+        @Override
+        synchronized long findCurrentVersion(UUID aggregateId) {
+            return versions.getOrDefault(aggregateId, -1L);
+        }
+
+        @Override
+        List<EventStoreEntity> toEntities(List<DomainEvent> events) {
+            return events.stream()
+                .map(event -> new EventStoreEntity(event.getAggregateId(), "test", new byte[0], event.getVersion(), event.getOccurredAt()))
+                .toList();
+        }
+
+        @Override
+        synchronized void insert(List<EventStoreEntity> entries) {
+            if (interloper != null) {
+                versions.put(interloper, 0L);
+                interloper = null;
+            }
+            for (EventStoreEntity entry : entries) {
+                if (entry.getVersion() <= findCurrentVersion(entry.getAggregateId())) {
+                    throw new DuplicateKeyException("UNIQUE constraint failed: event_store.aggregate_id, event_store.version");
+                }
+            }
+            entries.forEach(entry -> versions.put(entry.getAggregateId(), entry.getVersion()));
+        }
+
+        @Override
+        synchronized void publish(List<DomainEvent> events) {
+            published.add(events.get(0).getAggregateId());
+        }
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {}
+
+        @Override
+        public void rollback(TransactionStatus status) {}
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.demo.infrastructure.eventstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.application.command.TodoCommandService;
+import com.example.demo.application.command.TodoRepository;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-group-commit.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "eventstore.append-mode=group-commit",
+    "datasource.writer.pool-size=1"
+})
+class GroupCommitEventStoreTest {
+    @Autowired
+    private EventStore eventStore;
+
+    @Autowired
+    private TodoCommandService commandService;
+
+    @Autowired
+    private TodoRepository todoRepository;
+
+    // コマンドのトランザクションが書き込み用の接続を持ったまま追記を待つと、書き込みスレッドが接続を得られず止まる
+    @Test
+    @Timeout(20)
+    void 書き込み用の接続が1つでも並行したコマンドが完了する() throws Exception {
+        assertInstanceOf(GroupCommitEventStore.class, eventStore);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            ids.add(commandService.createTodo("todo " + i, null));
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(ids.size())) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (UUID id : ids) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 1; i <= 10; i++) {
+                        commandService.updateTodo(id, "updated " + i, null);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        for (UUID id : ids) {
+            assertEquals(10, todoRepository.load(id).getVersion());
+        }
+    }
+}
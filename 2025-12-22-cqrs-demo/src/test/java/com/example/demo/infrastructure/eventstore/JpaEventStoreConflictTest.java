@@ -0,0 +1,96 @@
+package com.example.demo.infrastructure.eventstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.exceptions.OptimisticLockingException;
+
+// 事前にバージョンを読まず、(aggregate_id, version) の一意インデックス違反をOptimisticLockingExceptionにする
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-event-store.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false"
+})
+class JpaEventStoreConflictTest {
+    private static final int WRITERS = 8;
+
+    @Autowired
+    private JpaEventStore eventStore;
+
+    @Test
+    void 同じバージョンの追記は現在のバージョン付きのOptimisticLockingExceptionになる() {
+        UUID id = UUID.randomUUID();
+        eventStore.save(List.of(new TodoCreatedEvent(id, "todo", null, 0L)));
+        eventStore.save(List.of(new TodoUpdateEvent(id, "updated", null, 1L)));
+
+        OptimisticLockingException e = assertThrows(OptimisticLockingException.class,
+            () -> eventStore.save(List.of(new TodoUpdateEvent(id, "stale", null, 1L))));
+        assertTrue(e.getMessage().contains("Expected version: 0, Current version: 1"), e.getMessage());
+        assertEquals(2, eventStore.getEvents(id).size());
+    }
+
+    // 2件目が競合した場合も、1件目だけが書かれることはない（同じトランザクションでロールバックされる）
+    @Test
+    void 複数イベントの追記は途中で競合するとすべて書かれない() {
+        UUID id = UUID.randomUUID();
+        eventStore.save(List.of(new TodoCreatedEvent(id, "todo", null, 0L)));
+        eventStore.save(List.of(new TodoUpdateEvent(id, "other", null, 1L), new TodoUpdateEvent(id, "other", null, 2L)));
+
+        assertThrows(OptimisticLockingException.class, () -> eventStore.save(List.of(
+            new TodoUpdateEvent(id, "stale", null, 2L),
+            new TodoUpdateEvent(id, "stale", null, 3L))));
+        List<DomainEvent> events = eventStore.getEvents(id);
+        assertEquals(3, events.size());
+        assertEquals(2, events.get(2).getVersion());
+        assertEquals("other", ((TodoUpdateEvent) events.get(2)).getTitle());
+    }
+
+    @Test
+    void 同時に同じバージョンを追記すると1件だけ成功する() throws Exception {
+        UUID id = UUID.randomUUID();
+        eventStore.save(List.of(new TodoCreatedEvent(id, "todo", null, 0L)));
+
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(WRITERS)) {
+            for (int i = 0; i < WRITERS; i++) {
+                String title = "writer " + i;
+                results.add(executor.submit(() -> {
+                    ready.await();
+                    eventStore.save(List.of(new TodoUpdateEvent(id, title, null, 1L)));
+                    return null;
+                }));
+            }
+            ready.countDown();
+        }
+
+        int succeeded = 0;
+        for (Future<?> result : results) {
+            try {
+                result.get();
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof OptimisticLockingException, String.valueOf(e.getCause()));
+            }
+        }
+        assertEquals(1, succeeded);
+        assertEquals(2, eventStore.getEvents(id).size());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.infrastructure.eventstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.domain.Todo;
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+
+// foldEventsはイベントのリストを作らずに、getEventsと同じイベントを同じ順に畳み込む
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-fold.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false"
+})
+class JpaEventStoreFoldTest {
+    // ドライバのfetch size（256行）を何回かまたぐ長さ
+    private static final int UPDATES = 1000;
+
+    @Autowired
+    private JpaEventStore eventStore;
+
+    @Test
+    void 長いストリームをバージョン順に畳み込める() {
+        UUID id = UUID.randomUUID();
+        List<DomainEvent> events = new ArrayList<>();
+        events.add(new TodoCreatedEvent(id, "todo", null, 0L));
+        for (long version = 1; version <= UPDATES; version++) {
+            events.add(new TodoUpdateEvent(id, "todo " + version, null, version));
+        }
+        eventStore.save(events);
+
+        List<Long> versions = eventStore.foldEvents(id, -1, new ArrayList<Long>(), (folded, event) -> {
+            folded.add(event.getVersion());
+            return folded;
+        });
+        assertEquals(LongStream.rangeClosed(0, UPDATES).boxed().toList(), versions);
+
+        Todo todo = eventStore.foldEvents(id, -1, Todo.replayFrom(null), Todo::replay);
+        Todo expected = Todo.fromEvents(eventStore.getEvents(id));
+        assertEquals(expected.getVersion(), todo.getVersion());
+        assertEquals("todo " + UPDATES, todo.getTitle());
+        assertEquals(expected.toSnapshot(), todo.toSnapshot());
+    }
+
+    @Test
+    void 指定したバージョンより後だけを畳み込む() {
+        UUID id = UUID.randomUUID();
+        eventStore.save(List.of(
+            new TodoCreatedEvent(id, "todo", null, 0L),
+            new TodoUpdateEvent(id, "todo 1", null, 1L),
+            new TodoUpdateEvent(id, "todo 2", null, 2L)));
+
+        assertEquals(List.of(2L), eventStore.foldEvents(id, 1, new ArrayList<Long>(), (folded, event) -> {
+            folded.add(event.getVersion());
+            return folded;
+        }));
+        assertEquals(List.of(1L), eventStore.foldEvents(id, 0, 1, new ArrayList<Long>(), (folded, event) -> {
+            folded.add(event.getVersion());
+            return folded;
+        }));
+        // イベントがなければ初期値のまま
+        assertNull(eventStore.foldEvents(UUID.randomUUID(), -1, (DomainEvent) null, (folded, event) -> event));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.infrastructure.eventstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+
+// findVersionAtは時刻をミリ秒未満を切り捨てて比べ、同じミリ秒に発生したイベントを含める
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-version-at.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false"
+})
+class JpaEventStoreVersionAtTest {
+    private static final Instant BASE = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Autowired
+    private JpaEventStore eventStore;
+
+    @Test
+    void ミリ秒の境界で切り捨てて比べる() {
+        UUID id = UUID.randomUUID();
+        // 0ミリ秒目の700マイクロ秒後と、2ミリ秒目の300マイクロ秒後
+        eventStore.save(List.of(new TodoCreatedEvent(
+            UUID.randomUUID(), id, BASE.plusNanos(700_000), 0L, "todo", null)));
+        eventStore.save(List.of(new TodoUpdateEvent(
+            UUID.randomUUID(), id, BASE.plusNanos(2_300_000), 1L, "updated", null)));
+
+        assertEquals(-1, eventStore.findVersionAt(id, BASE.minusNanos(1)));
+        // 作成より700マイクロ秒前でも、同じミリ秒なので作成後として扱う
+        assertEquals(0, eventStore.findVersionAt(id, BASE));
+        assertEquals(0, eventStore.findVersionAt(id, BASE.plusNanos(1_999_999)));
+        assertEquals(1, eventStore.findVersionAt(id, BASE.plusMillis(2)));
+        assertEquals(1, eventStore.findVersionAt(id, BASE.plusSeconds(1)));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.infrastructure.eventstore.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCompletedEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoDeletedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+
+class BinaryEventCodecTest {
+    private final BinaryEventCodec codec = new BinaryEventCodec();
+
+    @Test
+    void すべてのイベント型が共通の項目ごと復元できる() {
+        UUID id = UUID.randomUUID();
+        Instant occurredAt = Instant.parse("2026-01-02T03:04:05.123456789Z");
+        DomainEvent[] events = {
+            new TodoCreatedEvent(UUID.randomUUID(), id, occurredAt, 0L, "title", "description"),
+            new TodoUpdateEvent(UUID.randomUUID(), id, occurredAt, 1L, "updated", null),
+            new TodoCompletedEvent(UUID.randomUUID(), id, occurredAt, 2L),
+            new TodoDeletedEvent(UUID.randomUUID(), id, occurredAt, Long.MAX_VALUE),
+        };
+        for (DomainEvent event : events) {
+            assertTrue(codec.canEncode(event));
+            SerializedEvent serialized = codec.encode(event);
+            assertTrue(codec.canDecode(serialized.eventType()));
+
+            DomainEvent decoded = codec.decode(serialized.eventType(), serialized.data());
+            assertEquals(event.getClass(), decoded.getClass());
+            assertEquals(event.getEventId(), decoded.getEventId());
+            assertEquals(event.getAggregateId(), decoded.getAggregateId());
+            assertEquals(event.getOccurredAt(), decoded.getOccurredAt());
+            assertEquals(event.getVersion(), decoded.getVersion());
+        }
+    }
+
+    // nullと空文字列は区別し、UTF-8の複数バイト文字もそのまま復元する
+    @Test
+    void 文字列のnullと空文字列とマルチバイト文字を区別して復元できる() {
+        TodoCreatedEvent event = new TodoCreatedEvent(UUID.randomUUID(), "買い物🛒", "", 0L);
+        SerializedEvent serialized = codec.encode(event);
+
+        TodoCreatedEvent decoded = assertInstanceOf(TodoCreatedEvent.class, codec.decode(serialized.eventType(), serialized.data()));
+        assertEquals("買い物🛒", decoded.getTitle());
+        assertEquals("", decoded.getDescription());
+
+        TodoUpdateEvent update = new TodoUpdateEvent(UUID.randomUUID(), "x".repeat(100_000), null, 1L);
+        serialized = codec.encode(update);
+        TodoUpdateEvent decodedUpdate = assertInstanceOf(TodoUpdateEvent.class, codec.decode(serialized.eventType(), serialized.data()));
+        assertEquals(update.getTitle(), decodedUpdate.getTitle());
+        assertNull(decodedUpdate.getDescription());
+    }
+
+    // JSONの行（event_typeが完全修飾クラス名）はこのコーデックでは読まない
+    @Test
+    void JSONの行と未知の型IDは読まない() {
+        assertFalse(codec.canDecode(TodoCreatedEvent.class.getName()));
+        assertThrows(IllegalStateException.class, () -> codec.decode("b99", new byte[] {1}));
+        assertThrows(IllegalStateException.class, () -> codec.decode("bx", new byte[] {1}));
+    }
+
+    @Test
+    void 未知の形式のバージョンは読まない() {
+        SerializedEvent serialized = codec.encode(new TodoCompletedEvent(UUID.randomUUID(), 1L));
+        byte[] data = serialized.data().clone();
+        data[0] = 99;
+
+        assertThrows(IllegalStateException.class, () -> codec.decode(serialized.eventType(), data));
+    }
+}
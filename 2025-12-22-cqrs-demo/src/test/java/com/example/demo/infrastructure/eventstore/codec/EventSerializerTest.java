@@ -0,0 +1,50 @@
+package com.example.demo.infrastructure.eventstore.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 書き込み形式を切り替えても、形式の異なる行が混在したまま読める
+class EventSerializerTest {
+    @Test
+    void JSONで書いた行とバイナリで書いた行を同じシリアライザで読める() {
+        EventSerializer json = new EventSerializer("json", new SimpleMeterRegistry());
+        EventSerializer binary = new EventSerializer("binary", new SimpleMeterRegistry());
+        UUID id = UUID.randomUUID();
+        TodoCreatedEvent created = new TodoCreatedEvent(id, "title", "description", 0L);
+        TodoUpdateEvent updated = new TodoUpdateEvent(id, "updated", null, 1L);
+
+        SerializedEvent jsonRow = json.serialize(created);
+        SerializedEvent binaryRow = binary.serialize(updated);
+        assertEquals(TodoCreatedEvent.class.getName(), jsonRow.eventType());
+        assertEquals("b4", binaryRow.eventType());
+
+        for (EventSerializer serializer : new EventSerializer[] {json, binary}) {
+            TodoCreatedEvent decodedCreated = assertInstanceOf(TodoCreatedEvent.class,
+                serializer.deserialize(jsonRow.eventType(), jsonRow.data()));
+            assertEquals(created.getEventId(), decodedCreated.getEventId());
+            assertEquals(created.getOccurredAt(), decodedCreated.getOccurredAt());
+            assertEquals("description", decodedCreated.getDescription());
+
+            TodoUpdateEvent decodedUpdated = assertInstanceOf(TodoUpdateEvent.class,
+                serializer.deserialize(binaryRow.eventType(), binaryRow.data()));
+            assertEquals(updated.getEventId(), decodedUpdated.getEventId());
+            assertEquals(1L, decodedUpdated.getVersion());
+            assertEquals("updated", decodedUpdated.getTitle());
+        }
+    }
+
+    @Test
+    void 未知の書き込み形式は起動時に拒否する() {
+        assertThrows(IllegalArgumentException.class, () -> new EventSerializer("avro", new SimpleMeterRegistry()));
+    }
+}
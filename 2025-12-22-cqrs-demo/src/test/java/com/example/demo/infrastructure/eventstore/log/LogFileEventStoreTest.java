@@ -0,0 +1,111 @@
+package com.example.demo.infrastructure.eventstore.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.exceptions.OptimisticLockingException;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 起動時の復元: コミット済みのレコードだけを読み直し、書き込み途中の末尾は捨てる
+class LogFileEventStoreTest {
+    private final EventSerializer serializer = new EventSerializer("binary", new SimpleMeterRegistry());
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void 開き直しても集約のイベントと位置が復元される() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        LogFileEventStore eventStore = open();
+        eventStore.save(List.of(new TodoCreatedEvent(first, "first", null, 0L)));
+        eventStore.save(List.of(new TodoCreatedEvent(second, "second", null, 0L)));
+        eventStore.save(List.of(new TodoUpdateEvent(first, "updated", null, 1L)));
+        eventStore.close();
+
+        LogFileEventStore reopened = open();
+        assertEquals(3, reopened.getLastPosition());
+        assertEquals(List.of(0L, 1L), versions(reopened.getEvents(first)));
+        assertEquals(List.of(1L, 2L, 3L), reopened.readAll(0, 10).stream().map(StoredEvent::position).toList());
+        assertEquals(second, reopened.readAll(1, 1).get(0).event().getAggregateId());
+        assertThrows(OptimisticLockingException.class,
+            () -> reopened.save(List.of(new TodoUpdateEvent(first, "stale", null, 1L))));
+        reopened.close();
+    }
+
+    // 3件のレコードを1回で追記し、最後のレコード（COMMITフラグ付き）を書き終える前に落ちた状態を作る
+    @Test
+    void 書き込み途中の末尾のバッチは捨てて続きから追記できる() throws IOException {
+        UUID committed = UUID.randomUUID();
+        UUID torn = UUID.randomUUID();
+        LogFileEventStore eventStore = open();
+        eventStore.save(List.of(new TodoCreatedEvent(committed, "committed", null, 0L)));
+        eventStore.save(List.of(
+            new TodoCreatedEvent(torn, "torn", null, 0L),
+            new TodoUpdateEvent(torn, "torn 1", null, 1L),
+            new TodoUpdateEvent(torn, "torn 2", null, 2L)));
+        eventStore.close();
+        tearLastRecord(directory.resolve(String.format("%020d.log", 0)), 4);
+
+        eventStore = open();
+        assertEquals(1, eventStore.getLastPosition());
+        assertTrue(eventStore.getEvents(torn).isEmpty());
+        assertEquals(List.of(1L), eventStore.readAll(0, 10).stream().map(StoredEvent::position).toList());
+
+        // 捨てた位置から追記し直せて、もう一度開いても捨てたレコードは現れない
+        eventStore.save(List.of(new TodoCreatedEvent(torn, "retried", null, 0L)));
+        eventStore.close();
+        eventStore = open();
+        assertEquals(2, eventStore.getLastPosition());
+        List<DomainEvent> events = eventStore.getEvents(torn);
+        assertEquals(1, events.size());
+        assertEquals("retried", ((TodoCreatedEvent) events.get(0)).getTitle());
+        eventStore.close();
+    }
+
+    private LogFileEventStore open() {
+        return new LogFileEventStore(directory.toString(), 1, false, serializer, event -> {});
+    }
+
+    // 最後のレコードの先頭からkeepBytes以降を0で上書きする（レコードの途中までしか書けていない状態）
+    private static void tearLastRecord(Path segment, int keepBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer size = ByteBuffer.allocate(4);
+            int offset = 0;
+            int last = -1;
+            while (true) {
+                size.clear();
+                channel.read(size, offset);
+                int recordSize = size.getInt(0);
+                if (recordSize == 0) {
+                    break;
+                }
+                last = offset;
+                offset += recordSize;
+            }
+            channel.write(ByteBuffer.allocate(offset - last - keepBytes), last + keepBytes);
+        }
+    }
+
+    private static List<Long> versions(List<DomainEvent> events) {
+        return events.stream().map(DomainEvent::getVersion).toList();
+    }
+}
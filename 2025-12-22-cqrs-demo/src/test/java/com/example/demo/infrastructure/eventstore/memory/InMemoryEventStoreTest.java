@@ -0,0 +1,117 @@
+package com.example.demo.infrastructure.eventstore.memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.exceptions.OptimisticLockingException;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// 並行して追記しても、readAllで読める位置は欠番なく連続し、後から小さい位置が現れない
+class InMemoryEventStoreTest {
+    private static final int WRITERS = 8;
+    private static final int AGGREGATES_PER_WRITER = 50;
+    private static final int UPDATES = 3;
+
+    private final InMemoryEventStore eventStore = new InMemoryEventStore(
+        "", 0, new EventSerializer("binary", new SimpleMeterRegistry()), event -> {});
+
+    @Test
+    @Timeout(30)
+    void 並行して追記しても位置は欠番なく読める() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        // 書き込みと並行して、読めた位置の続きから読み進める
+        CompletableFuture<List<StoredEvent>> reader = CompletableFuture.supplyAsync(() -> {
+            List<StoredEvent> read = new ArrayList<>();
+            long position = 0;
+            while (true) {
+                boolean last = !writing.get();
+                List<StoredEvent> batch = eventStore.readAll(position, 100);
+                for (StoredEvent stored : batch) {
+                    assertEquals(position + 1, stored.position(), "gap or duplicate after position " + position);
+                    assertNotNull(stored.event());
+                    read.add(stored);
+                    position = stored.position();
+                }
+                if (last && batch.isEmpty()) {
+                    return read;
+                }
+            }
+        });
+
+        List<Future<?>> writers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(WRITERS)) {
+            for (int w = 0; w < WRITERS; w++) {
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < AGGREGATES_PER_WRITER; i++) {
+                        UUID id = UUID.randomUUID();
+                        eventStore.save(List.of(new TodoCreatedEvent(id, "todo", null, 0L)));
+                        // 複数イベントの追記も混ぜる
+                        List<DomainEvent> updates = new ArrayList<>();
+                        for (long version = 1; version <= UPDATES; version++) {
+                            updates.add(new TodoUpdateEvent(id, "todo " + version, null, version));
+                        }
+                        eventStore.save(updates);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        }
+        writing.set(false);
+        List<StoredEvent> read = reader.get(10, TimeUnit.SECONDS);
+
+        int total = WRITERS * AGGREGATES_PER_WRITER * (1 + UPDATES);
+        assertEquals(total, eventStore.getLastPosition());
+        assertEquals(total, read.size());
+        // 集約ごとには、位置の順がバージョンの順になっている
+        Map<UUID, Long> lastVersions = new HashMap<>();
+        Set<UUID> eventIds = new HashSet<>();
+        for (StoredEvent stored : read) {
+            assertTrue(eventIds.add(stored.event().getEventId()));
+            long previous = lastVersions.getOrDefault(stored.event().getAggregateId(), -1L);
+            assertEquals(previous + 1, stored.event().getVersion());
+            lastVersions.put(stored.event().getAggregateId(), stored.event().getVersion());
+        }
+        assertEquals(WRITERS * AGGREGATES_PER_WRITER, lastVersions.size());
+    }
+
+    @Test
+    void 競合した追記は位置を消費しない() {
+        UUID id = UUID.randomUUID();
+        eventStore.save(List.of(new TodoCreatedEvent(id, "todo", null, 0L)));
+
+        assertThrows(OptimisticLockingException.class,
+            () -> eventStore.save(List.of(new TodoCreatedEvent(id, "duplicate", null, 0L))));
+        eventStore.save(List.of(new TodoUpdateEvent(id, "updated", null, 1L)));
+
+        assertEquals(2, eventStore.getLastPosition());
+        assertEquals(List.of(1L, 2L), eventStore.readAll(0, 10).stream().map(StoredEvent::position).toList());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.infrastructure.eventstore.memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// EventStore.findVersionAtのデフォルト実装も、SQLiteの実装と同じくミリ秒未満を切り捨てて比べる
+class InMemoryEventStoreVersionAtTest {
+    private static final Instant BASE = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final InMemoryEventStore eventStore = new InMemoryEventStore(
+        "", 0, new EventSerializer("binary", new SimpleMeterRegistry()), event -> {});
+
+    @Test
+    void ミリ秒の境界で切り捨てて比べる() {
+        UUID id = UUID.randomUUID();
+        eventStore.save(List.of(new TodoCreatedEvent(
+            UUID.randomUUID(), id, BASE.plusNanos(700_000), 0L, "todo", null)));
+        eventStore.save(List.of(new TodoUpdateEvent(
+            UUID.randomUUID(), id, BASE.plusNanos(2_300_000), 1L, "updated", null)));
+
+        assertEquals(-1, eventStore.findVersionAt(id, BASE.minusNanos(1)));
+        assertEquals(0, eventStore.findVersionAt(id, BASE));
+        assertEquals(0, eventStore.findVersionAt(id, BASE.plusNanos(1_999_999)));
+        assertEquals(1, eventStore.findVersionAt(id, BASE.plusMillis(2)));
+        assertEquals(1, eventStore.findVersionAt(id, BASE.plusSeconds(1)));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.infrastructure.eventstore.sharded;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class PositionSequencerTest {
+    @Test
+    void コミット中の範囲があればその手前までしか見せない() {
+        PositionSequencer sequencer = new PositionSequencer(10);
+        long first = sequencer.allocate(2);
+        long second = sequencer.allocate(3);
+        assertEquals(11, first);
+        assertEquals(13, second);
+        assertEquals(10, sequencer.watermark());
+
+        // 後に割り当てた範囲が先にコミットされても、前の範囲が終わるまでは見せない
+        sequencer.complete(second);
+        assertEquals(10, sequencer.watermark());
+
+        sequencer.complete(first);
+        assertEquals(15, sequencer.watermark());
+    }
+
+    @Test
+    void 失敗した範囲は欠番になり後続の位置を妨げない() {
+        PositionSequencer sequencer = new PositionSequencer(0);
+        long failed = sequencer.allocate(2);
+        long committed = sequencer.allocate(1);
+        sequencer.complete(committed);
+        assertEquals(0, sequencer.watermark());
+
+        sequencer.complete(failed);
+        assertEquals(3, sequencer.watermark());
+        assertEquals(4, sequencer.allocate(1));
+    }
+}
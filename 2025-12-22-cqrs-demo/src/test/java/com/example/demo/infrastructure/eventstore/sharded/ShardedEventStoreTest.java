@@ -0,0 +1,98 @@
+package com.example.demo.infrastructure.eventstore.sharded;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// readAllは全シャードを位置順にマージし、ページを続けて読むと欠番も重複もない
+class ShardedEventStoreTest {
+    private static final int SHARDS = 4;
+
+    @TempDir
+    private Path directory;
+
+    private ShardedEventStore eventStore;
+
+    @BeforeEach
+    void setUp() {
+        eventStore = new ShardedEventStore(directory.toString(), SHARDS, 2,
+            new EventSerializer("binary", new SimpleMeterRegistry()), event -> {});
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventStore.close();
+    }
+
+    @Test
+    void 全シャードのイベントを位置順にページングで読める() {
+        for (int i = 0; i < 50; i++) {
+            eventStore.save(List.of(new TodoCreatedEvent(UUID.randomUUID(), "todo " + i, null, 0L)));
+        }
+
+        assertEquals(LongStream.rangeClosed(1, 50).boxed().toList(), readAllInPages(0, 7));
+        assertEquals(LongStream.rangeClosed(21, 50).boxed().toList(), readAllInPages(20, 3));
+    }
+
+    // 1つのシャードに偏っていても、1ページ目で他のシャードに先を越されずに位置順になる
+    @Test
+    void 一部のシャードに偏ったイベントも位置順に読める() {
+        UUID hot = UUID.randomUUID();
+        List<DomainEvent> events = new ArrayList<>();
+        events.add(new TodoCreatedEvent(hot, "hot", null, 0L));
+        for (long version = 1; version < 30; version++) {
+            events.add(new TodoUpdateEvent(hot, "hot " + version, null, version));
+        }
+        eventStore.save(events);
+        for (int i = 0; i < 5; i++) {
+            eventStore.save(List.of(new TodoCreatedEvent(UUID.randomUUID(), "todo " + i, null, 0L)));
+        }
+
+        List<StoredEvent> page = eventStore.readAll(0, 32);
+        assertEquals(LongStream.rangeClosed(1, 32).boxed().toList(), page.stream().map(StoredEvent::position).toList());
+        assertEquals(hot, page.get(29).event().getAggregateId());
+        assertEquals(LongStream.rangeClosed(1, 35).boxed().toList(), readAllInPages(0, 4));
+    }
+
+    @Test
+    void 最後の位置より後からは何も読まない() {
+        eventStore.save(List.of(new TodoCreatedEvent(UUID.randomUUID(), "todo", null, 0L)));
+
+        assertEquals(1, eventStore.getLastPosition());
+        assertTrue(eventStore.readAll(1, 10).isEmpty());
+    }
+
+    private List<Long> readAllInPages(long fromPosition, int pageSize) {
+        List<Long> positions = new ArrayList<>();
+        long position = fromPosition;
+        while (true) {
+            List<StoredEvent> page = eventStore.readAll(position, pageSize);
+            if (page.isEmpty()) {
+                return positions;
+            }
+            assertTrue(page.size() <= pageSize);
+            for (StoredEvent stored : page) {
+                positions.add(stored.position());
+            }
+            position = page.get(page.size() - 1).position();
+        }
+    }
+}
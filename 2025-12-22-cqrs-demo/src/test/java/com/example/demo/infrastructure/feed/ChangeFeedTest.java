@@ -0,0 +1,144 @@
+package com.example.demo.infrastructure.feed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.exceptions.ServiceUnavailableException;
+import com.example.demo.infrastructure.eventstore.codec.EventSerializer;
+import com.example.demo.infrastructure.eventstore.memory.InMemoryEventStore;
+import com.example.demo.support.Await;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Last-Event-IDからの再開: 追いつき（catchUp）とバッファの境目でイベントが欠けたり重複したりしない
+class ChangeFeedTest {
+    private static final int EVENTS = 200;
+
+    private final InMemoryEventStore eventStore = new InMemoryEventStore(
+        "", 0, new EventSerializer("binary", new SimpleMeterRegistry()), event -> {});
+    private ChangeFeed feed;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (feed != null) {
+            feed.stop();
+        }
+    }
+
+    @Test
+    @Timeout(20)
+    void 追記と並行して再開しても欠けも重複もなく受け取れる() throws Exception {
+        feed = new ChangeFeed(eventStore, EVENTS * 2, 7, 5, new SimpleMeterRegistry());
+        append(20);
+        feed.start();
+
+        // 購読の登録と配信が入れ違うよう、追記しながら再開する
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> append(EVENTS - 20));
+        long lastEventId = 5;
+        List<Long> received = new ArrayList<>();
+        try (FeedSubscription subscription = feed.subscribe()) {
+            received.addAll(catchUp(lastEventId, subscription));
+            writer.join();
+            while (received.size() < EVENTS - lastEventId) {
+                FeedEvent event = subscription.poll(5_000);
+                assertTrue(event != null, "timed out after " + received);
+                received.add(event.position());
+            }
+            assertFalse(subscription.isEvicted());
+        }
+
+        assertEquals(LongStream.rangeClosed(lastEventId + 1, EVENTS).boxed().toList(), received);
+    }
+
+    // バッファが溢れて追い出されても、最後に受け取った位置から再接続すれば続きを読める
+    @Test
+    @Timeout(20)
+    void 追い出された購読者は最後に受け取った位置から再開できる() throws Exception {
+        feed = new ChangeFeed(eventStore, 4, 7, 5, new SimpleMeterRegistry());
+        feed.start();
+        List<Long> received = new ArrayList<>();
+        try (FeedSubscription slow = feed.subscribe()) {
+            // 追いつくまでは溢れても追い出されないので、先に追いついた状態にする
+            assertEquals(List.of(), catchUp(slow.liveAfter(), slow));
+            append(20);
+            Await.until("the slow subscriber is evicted", slow::isEvicted);
+            for (FeedEvent event = slow.poll(0); event != null; event = slow.poll(0)) {
+                received.add(event.position());
+            }
+        }
+        assertEquals(List.of(1L, 2L, 3L, 4L), received);
+        // 配信が末尾まで進んでから再開し、小さいバッファでも再び溢れないようにする
+        Await.until("the feed dispatches every event", () -> {
+            try (FeedSubscription probe = feed.subscribe()) {
+                return probe.liveAfter() == 20;
+            }
+        });
+
+        try (FeedSubscription resumed = feed.subscribe()) {
+            received.addAll(catchUp(received.get(received.size() - 1), resumed));
+            while (received.size() < 20) {
+                FeedEvent event = resumed.poll(5_000);
+                assertTrue(event != null, "timed out after " + received);
+                received.add(event.position());
+            }
+        }
+        assertEquals(LongStream.rangeClosed(1, 20).boxed().toList(), received);
+    }
+
+    // 追いつく間に溢れた分はEvent Storeから読み、追いついた直後に追い出されない
+    @Test
+    @Timeout(20)
+    void 追いつく間にバッファが溢れても追い出されない() throws Exception {
+        feed = new ChangeFeed(eventStore, 4, 7, 5, new SimpleMeterRegistry());
+        feed.start();
+        List<Long> received = new ArrayList<>();
+        try (FeedSubscription resuming = feed.subscribe()) {
+            append(20);
+            Await.until("the buffer overflows while catching up", () -> resuming.liveAfter() == 20);
+            received.addAll(catchUp(0, resuming));
+            assertFalse(resuming.isEvicted());
+
+            append(2);
+            while (received.size() < 22) {
+                FeedEvent event = resuming.poll(5_000);
+                assertTrue(event != null, "timed out after " + received);
+                received.add(event.position());
+            }
+            assertFalse(resuming.isEvicted());
+        }
+        assertEquals(LongStream.rangeClosed(1, 22).boxed().toList(), received);
+    }
+
+    @Test
+    void 起動前の購読は再試行を促す() {
+        feed = new ChangeFeed(eventStore, 4, 7, 5, new SimpleMeterRegistry());
+
+        assertThrows(ServiceUnavailableException.class, feed::subscribe);
+    }
+
+    private List<Long> catchUp(long lastEventId, FeedSubscription subscription) {
+        try (Stream<FeedEvent> missed = feed.catchUp(lastEventId, subscription)) {
+            return missed.map(FeedEvent::position).toList();
+        }
+    }
+
+    private void append(int count) {
+        for (int i = 0; i < count; i++) {
+            eventStore.save(List.of(new TodoCreatedEvent(UUID.randomUUID(), "todo", null, 0L)));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.infrastructure.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class UuidBytesTest {
+    @Test
+    void 上位64bitから順のビッグエンディアンで16バイトになる() {
+        UUID id = UUID.fromString("01234567-89ab-cdef-fedc-ba9876543210");
+
+        byte[] bytes = UuidBytes.toBytes(id);
+        assertArrayEquals(new byte[] {
+            0x01, 0x23, 0x45, 0x67, (byte) 0x89, (byte) 0xab, (byte) 0xcd, (byte) 0xef,
+            (byte) 0xfe, (byte) 0xdc, (byte) 0xba, (byte) 0x98, 0x76, 0x54, 0x32, 0x10}, bytes);
+        assertEquals(id, UuidBytes.fromBytes(bytes));
+    }
+
+    @Test
+    void ランダムなUUIDも元に戻る() {
+        for (int i = 0; i < 1000; i++) {
+            UUID id = UUID.randomUUID();
+            assertEquals(id, UuidBytes.fromBytes(UuidBytes.toBytes(id)));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.demo.infrastructure.projection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.infrastructure.eventstore.EventStore;
+import com.example.demo.infrastructure.eventstore.StoredEvent;
+import com.example.demo.support.Await;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProjectionRunnerTest {
+    private static final String NAME = "test";
+
+    // 以前は5秒で待つのをやめて戻っていたため、その後に古いワーカーがチェックポイントを書き込めた
+    @Test
+    void pauseは処理中のバッチが終わってワーカーが終了するまで戻らない() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Projection projection = new Projection() {
+            @Override
+            public String getName() {
+                return NAME;
+            }
+
+            @Override
+            public void handle(DomainEvent event) {
+                entered.countDown();
+                // 書き込み用の接続の順番待ちなど、割り込みでは抜けられない待ちを真似る
+                while (true) {
+                    try {
+                        release.await();
+                        return;
+                    } catch (InterruptedException e) {
+                        // 割り込まれても待ち続ける
+                    }
+                }
+            }
+        };
+        Map<String, ProjectionCheckpoint> checkpoints = new ConcurrentHashMap<>();
+        AtomicInteger checkpointSaves = new AtomicInteger();
+        ProjectionRunner runner = new ProjectionRunner(
+            List.of(projection),
+            new SingleEventStore(),
+            checkpointRepository(checkpoints, checkpointSaves),
+            new NoOpTransactionManager(),
+            500,
+            50,
+            new SimpleMeterRegistry());
+
+        runner.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> paused = CompletableFuture.runAsync(() -> {
+            try {
+                runner.pause(NAME);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(5_500);
+        assertFalse(paused.isDone(), "pause returned while the batch was still running");
+
+        release.countDown();
+        paused.get(5, TimeUnit.SECONDS);
+        assertEquals(1, checkpointSaves.get());
+        Thread.sleep(200);
+        assertEquals(1, checkpointSaves.get());
+        runner.stop();
+    }
+
+    // 未適用のイベント数はゲージの参照時に計算し、バッチごとにEvent Storeの最後の位置を読まない
+    @Test
+    void 未適用のイベント数はゲージの参照時に計算する() throws Exception {
+        Projection projection = new Projection() {
+            @Override
+            public String getName() {
+                return NAME;
+            }
+
+            @Override
+            public void handle(DomainEvent event) {}
+        };
+        Map<String, ProjectionCheckpoint> checkpoints = new ConcurrentHashMap<>();
+        AtomicInteger checkpointSaves = new AtomicInteger();
+        CountingEventStore eventStore = new CountingEventStore(3);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProjectionRunner runner = new ProjectionRunner(
+            List.of(projection),
+            eventStore,
+            checkpointRepository(checkpoints, checkpointSaves),
+            new NoOpTransactionManager(),
+            1,
+            50,
+            meterRegistry);
+
+        runner.start();
+        Await.until("the projection applies 3 batches", () -> checkpointSaves.get() == 3);
+        assertEquals(0, eventStore.lastPositionReads.get());
+
+        // 読める範囲より先まで追記されている（コミット待ちなど）
+        eventStore.lastPosition = 5;
+        double lag = meterRegistry.get("projection.lag.events").tag("projection", NAME).gauge().value();
+        assertEquals(2.0, lag);
+        assertEquals(1, eventStore.lastPositionReads.get());
+        runner.stop();
+    }
+
+    // チェックポイントはメモリ上に持つ
+    @SuppressWarnings("unchecked")
+    private static ProjectionCheckpointRepository checkpointRepository(
+            Map<String, ProjectionCheckpoint> checkpoints, AtomicInteger saves) {
+        return (ProjectionCheckpointRepository) Proxy.newProxyInstance(
+            ProjectionCheckpointRepository.class.getClassLoader(),
+            new Class<?>[] {ProjectionCheckpointRepository.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "findById" -> Optional.ofNullable(checkpoints.get((String) args[0]));
+                case "save" -> {
+                    ProjectionCheckpoint checkpoint = (ProjectionCheckpoint) args[0];
+                    checkpoints.put(checkpoint.getProjectionName(), checkpoint);
+                    saves.incrementAndGet();
+                    yield checkpoint;
+                }
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    // 位置1にイベントが1件だけあるEvent Store
+    private static final class SingleEventStore implements EventStore {
+        private final StoredEvent event = new StoredEvent(1, new TodoCreatedEvent(UUID.randomUUID(), "todo", null, 0L));
+
+        @Override
+        public void save(List<DomainEvent> events) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DomainEvent> getEvents(UUID aggregateId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DomainEvent> getEvents(UUID aggregateId, long afterVersion) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<StoredEvent> readAll(long fromPosition, int maxCount) {
+            return fromPosition < event.position() ? List.of(event) : List.of();
+        }
+
+        @Override
+        public long getLastPosition() {
+            return event.position();
+        }
+    }
+
+    // 位置1〜eventsにイベントがあり、getLastPositionの呼び出しを数えるEvent Store
+    private static final class CountingEventStore implements EventStore {
+        private final List<StoredEvent> events;
+        private final AtomicInteger lastPositionReads = new AtomicInteger();
+        private volatile long lastPosition;
+
+        CountingEventStore(int events) {
+            this.events = LongStream.rangeClosed(1, events)
+                .mapToObj(position -> new StoredEvent(position, new TodoCreatedEvent(UUID.randomUUID(), "todo", null, 0L)))
+                .toList();
+            this.lastPosition = events;
+        }
+
+        @Override
+        public void save(List<DomainEvent> events) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DomainEvent> getEvents(UUID aggregateId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<DomainEvent> getEvents(UUID aggregateId, long afterVersion) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<StoredEvent> readAll(long fromPosition, int maxCount) {
+            return events.stream()
+                .filter(event -> event.position() > fromPosition)
+                .limit(maxCount)
+                .toList();
+        }
+
+        @Override
+        public long getLastPosition() {
+            lastPositionReads.incrementAndGet();
+            return lastPosition;
+        }
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {}
+
+        @Override
+        public void rollback(TransactionStatus status) {}
+    }
+}
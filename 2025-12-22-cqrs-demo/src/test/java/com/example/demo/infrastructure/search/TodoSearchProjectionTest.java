@@ -0,0 +1,98 @@
+package com.example.demo.infrastructure.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoDeletedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+
+// 更新・削除したTodoが、古い内容で検索に残らない
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-search.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false"
+})
+class TodoSearchProjectionTest {
+    @Autowired
+    private TodoSearchProjection projection;
+
+    @Autowired
+    private TodoSearchRepository searchRepository;
+
+    @Test
+    void 更新後は新しいタイトルでだけ見つかり説明はそのまま残る() {
+        UUID id = UUID.randomUUID();
+        String oldTitle = uniqueTerm("old");
+        String newTitle = uniqueTerm("new");
+        String description = uniqueTerm("desc");
+        projection.handleBatch(List.of(new TodoCreatedEvent(id, oldTitle, description, 0L)));
+        assertEquals(List.of(id), ids(oldTitle));
+
+        // descriptionがnullの更新はtitleだけを変える
+        projection.handleBatch(List.of(new TodoUpdateEvent(id, newTitle, null, 1L)));
+
+        assertTrue(ids(oldTitle).isEmpty());
+        assertEquals(List.of(id), ids(newTitle));
+        List<TodoSearchRow> rows = searchRepository.search(description, 10, 0);
+        assertEquals(1, rows.size());
+        assertEquals(newTitle, rows.get(0).title());
+        assertEquals(description, rows.get(0).description());
+    }
+
+    @Test
+    void 削除したTodoは見つからない() {
+        UUID id = UUID.randomUUID();
+        String title = uniqueTerm("deleted");
+        projection.handleBatch(List.of(new TodoCreatedEvent(id, title, null, 0L)));
+        assertEquals(List.of(id), ids(title));
+
+        projection.handleBatch(List.of(new TodoDeletedEvent(id, 1L)));
+
+        assertTrue(ids(title).isEmpty());
+    }
+
+    @Test
+    void 同じバッチ内で作成して更新したTodoは最終的な内容で見つかる() {
+        UUID kept = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        String createdTitle = uniqueTerm("created");
+        String updatedTitle = uniqueTerm("updated");
+        String removedTitle = uniqueTerm("removed");
+
+        projection.handleBatch(List.of(
+            new TodoCreatedEvent(kept, createdTitle, null, 0L),
+            new TodoUpdateEvent(kept, updatedTitle, null, 1L),
+            new TodoCreatedEvent(removed, removedTitle, null, 0L),
+            new TodoDeletedEvent(removed, 1L)));
+
+        assertTrue(ids(createdTitle).isEmpty());
+        assertEquals(List.of(kept), ids(updatedTitle));
+        assertTrue(ids(removedTitle).isEmpty());
+    }
+
+    @Test
+    void 短すぎる語は検索できない() {
+        assertThrows(IllegalArgumentException.class, () -> searchRepository.search("ab", 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> searchRepository.search("   ", 10, 0));
+    }
+
+    // DBはテストの実行をまたいで残るので、実行ごとに他の文書と重ならない語を使う
+    private static String uniqueTerm(String prefix) {
+        return prefix + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private List<UUID> ids(String text) {
+        return searchRepository.search(text, 10, 0).stream()
+            .map(TodoSearchRow::id)
+            .toList();
+    }
+}
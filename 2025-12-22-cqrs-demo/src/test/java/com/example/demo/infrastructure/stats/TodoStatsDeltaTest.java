@@ -0,0 +1,66 @@
+package com.example.demo.infrastructure.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCompletedEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoDeletedEvent;
+import com.example.demo.domain.events.TodoUpdateEvent;
+import com.example.demo.infrastructure.stats.TodoStatsDelta.State;
+
+class TodoStatsDeltaTest {
+    @Test
+    void 作成と完了と削除を件数の増減にまとめる() {
+        UUID completed = UUID.randomUUID();
+        UUID deletedOpen = UUID.randomUUID();
+        UUID deletedCompleted = UUID.randomUUID();
+        TodoStatsDelta delta = new TodoStatsDelta(new HashMap<>(Map.of(deletedCompleted, State.COMPLETED)));
+
+        apply(delta, List.of(
+            new TodoCreatedEvent(completed, "todo", null, 0L),
+            new TodoUpdateEvent(completed, "updated", null, 1L),
+            new TodoCompletedEvent(completed, 2L),
+            new TodoCreatedEvent(deletedOpen, "todo", null, 0L),
+            new TodoDeletedEvent(deletedOpen, 1L),
+            new TodoDeletedEvent(deletedCompleted, 5L)));
+
+        assertEquals(0, delta.open);
+        assertEquals(0, delta.completed);
+        assertEquals(2, delta.deleted);
+        assertEquals(State.COMPLETED, delta.states.get(completed));
+        assertEquals(State.DELETED, delta.states.get(deletedOpen));
+        assertEquals(State.DELETED, delta.states.get(deletedCompleted));
+    }
+
+    // プロジェクションが同じバッチを再び受け取っても（チェックポイントの保存前に落ちた場合など）件数はずれない
+    @Test
+    void 同じイベントを2回適用しても件数は変わらない() {
+        UUID id = UUID.randomUUID();
+        List<DomainEvent> events = List.of(
+            new TodoCreatedEvent(id, "todo", null, 0L),
+            new TodoCompletedEvent(id, 1L));
+        TodoStatsDelta first = new TodoStatsDelta(new HashMap<>());
+        apply(first, events);
+        assertEquals(1, first.completed);
+
+        TodoStatsDelta second = new TodoStatsDelta(new HashMap<>(first.states));
+        apply(second, events);
+        assertEquals(0, second.open);
+        assertEquals(0, second.completed);
+        assertEquals(0, second.deleted);
+        assertTrue(second.changed.isEmpty());
+    }
+
+    private static void apply(TodoStatsDelta delta, List<DomainEvent> events) {
+        events.forEach(delta::apply);
+    }
+}
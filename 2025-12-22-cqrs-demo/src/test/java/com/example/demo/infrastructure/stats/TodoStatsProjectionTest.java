@@ -0,0 +1,65 @@
+package com.example.demo.infrastructure.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.domain.events.DomainEvent;
+import com.example.demo.domain.events.TodoCompletedEvent;
+import com.example.demo.domain.events.TodoCreatedEvent;
+import com.example.demo.domain.events.TodoDeletedEvent;
+
+// todo_statsは同じバッチを2回適用しても、1回分しか増減しない
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-stats.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false",
+    "projection.enabled=false"
+})
+class TodoStatsProjectionTest {
+    @Autowired
+    private TodoStatsProjection projection;
+
+    @Autowired
+    private TodoStatsRepository statsRepository;
+
+    @Test
+    void 同じバッチを再び適用しても件数は変わらない() {
+        UUID open = UUID.randomUUID();
+        UUID completed = UUID.randomUUID();
+        UUID deleted = UUID.randomUUID();
+        List<DomainEvent> batch = List.of(
+            new TodoCreatedEvent(open, "open", null, 0L),
+            new TodoCreatedEvent(completed, "completed", null, 0L),
+            new TodoCompletedEvent(completed, 1L),
+            new TodoCreatedEvent(deleted, "deleted", null, 0L),
+            new TodoCompletedEvent(deleted, 1L),
+            new TodoDeletedEvent(deleted, 2L));
+        long[] before = counts();
+
+        projection.handleBatch(batch);
+        long[] once = counts();
+        assertEquals(before[0] + 1, once[0]);
+        assertEquals(before[1] + 1, once[1]);
+        assertEquals(before[2] + 1, once[2]);
+
+        projection.handleBatch(batch);
+        // 一部だけを別のバッチとして受け取り直した場合も同じ
+        projection.handleBatch(batch.subList(2, 5));
+        long[] twice = counts();
+        assertEquals(once[0], twice[0]);
+        assertEquals(once[1], twice[1]);
+        assertEquals(once[2], twice[2]);
+    }
+
+    // 未完了・完了済み・削除済みの順
+    private long[] counts() {
+        return statsRepository.findById(TodoStats.ALL)
+            .map(stats -> new long[] {stats.getOpenCount(), stats.getCompletedCount(), stats.getDeletedCount()})
+            .orElseGet(() -> new long[3]);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.presentation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import com.example.demo.application.command.TodoCommandService;
+import com.example.demo.application.query.TodoQueryService;
+import com.example.demo.exceptions.NotFoundException;
+import com.example.demo.infrastructure.cache.TodoResponseCache;
+import com.example.demo.support.Await;
+
+// GET /api/todos/{id}のIf-None-Matchは、JSONを作らずにバージョンだけで304を返す
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:target/test-etag.db?mode=rwc&journal_mode=WAL&busy_timeout=5000",
+    "spring.jpa.show-sql=false"
+})
+class TodoControllerETagTest {
+    @Autowired
+    private TodoController controller;
+
+    @Autowired
+    private TodoCommandService commandService;
+
+    @Autowired
+    private TodoQueryService queryService;
+
+    @Autowired
+    private TodoResponseCache responseCache;
+
+    @Test
+    void ETagが一致すれば304を返しJSONは作らない() {
+        UUID id = commandService.createTodo("todo", null);
+        awaitVersion(id, 0);
+
+        ResponseEntity<byte[]> notModified = controller.getTodo(id, "\"0\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals("\"0\"", notModified.getHeaders().getETag());
+        assertNull(notModified.getBody());
+        // getTodoJsonを通っていれば、シリアライズした結果がキャッシュに入っている
+        assertTrue(responseCache.getTodo(id).isEmpty());
+
+        ResponseEntity<byte[]> ok = controller.getTodo(id, null);
+        assertEquals(HttpStatus.OK, ok.getStatusCode());
+        assertEquals("\"0\"", ok.getHeaders().getETag());
+        // キャッシュにある場合も、同じETagなら304
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getTodo(id, "W/\"0\"").getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getTodo(id, "*").getStatusCode());
+    }
+
+    @Test
+    void ETagが古ければ新しい内容とETagを返す() {
+        UUID id = commandService.createTodo("todo", null);
+        commandService.updateTodo(id, "updated", null);
+        awaitVersion(id, 1);
+
+        ResponseEntity<byte[]> ok = controller.getTodo(id, "\"0\"");
+        assertEquals(HttpStatus.OK, ok.getStatusCode());
+        assertEquals("\"1\"", ok.getHeaders().getETag());
+        assertArrayEquals(queryService.getTodoJson(id).body(), ok.getBody());
+    }
+
+    @Test
+    void 削除済みのTodoはETagが一致しても404() {
+        UUID id = commandService.createTodo("todo", null);
+        awaitVersion(id, 0);
+        commandService.deleteTodo(id);
+        Await.until("the todo is deleted in the read model", () -> queryService.findTodoVersion(id).isEmpty());
+
+        assertThrows(NotFoundException.class, () -> controller.getTodo(id, "\"0\""));
+        assertThrows(NotFoundException.class, () -> controller.getTodo(id, "*"));
+        assertThrows(NotFoundException.class, () -> controller.getTodo(UUID.randomUUID(), "*"));
+    }
+
+    private void awaitVersion(UUID id, long version) {
+        Await.until("the read model reaches version " + version, () -> queryService.findTodoVersion(id)
+            .stream()
+            .anyMatch(current -> current == version));
+    }
+}
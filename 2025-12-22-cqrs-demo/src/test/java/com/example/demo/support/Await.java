@@ -0,0 +1,26 @@
+package com.example.demo.support;
+
+import java.util.function.BooleanSupplier;
+
+// 非同期に反映される処理（プロジェクション、スナップショットの保存など）を待つ
+public final class Await {
+    private static final long TIMEOUT_MILLIS = 10_000;
+    private static final long POLL_INTERVAL_MILLIS = 20;
+
+    private Await() {}
+
+    public static void until(String description, BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting until " + description);
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError("Interrupted while waiting until " + description, e);
+            }
+        }
+    }
+}